@@ -0,0 +1,41 @@
+package com.clear.solutions.cs.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the selected benchmarks once per thread count and writes one JMH JSON result file
+ * per run, {@code jmh-threads-<n>.json}, into the result directory.
+ * <p>
+ * System properties: {@code jmh.threads} (comma separated, default {@code 1}) and
+ * {@code jmh.resultDir} (default {@code target/jmh}). Program arguments are passed to JMH
+ * as on its own command line, e.g. a benchmark regex or {@code -p size=10000}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        File resultDir = new File(System.getProperty("jmh.resultDir", "target/jmh"));
+        resultDir.mkdirs();
+
+        for (String threads : System.getProperty("jmh.threads", "1").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "jmh-threads-" + threadCount + ".json").getPath())
+                    .build())
+                    .run();
+        }
+    }
+}
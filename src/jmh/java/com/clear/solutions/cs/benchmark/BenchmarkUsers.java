@@ -0,0 +1,57 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.config.UserProperties;
+import com.cs.dto.UserRepository;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.offheap.OffHeapUserRepository;
+import com.cs.patcher.UserPatcher;
+import com.cs.validation.UserValidationPolicy;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.time.LocalDate;
+
+/**
+ * Deterministic users and pre-filled repositories shared by the benchmarks.
+ */
+final class BenchmarkUsers {
+
+    static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+    static final int BIRTH_DATE_SPAN_DAYS = 50 * 365;
+
+    private BenchmarkUsers() {
+    }
+
+    static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    static User user(int i) {
+        return new User(email(i), "User" + i, "Test" + (i % 1000),
+                FIRST_BIRTH_DATE.plusDays(i % BIRTH_DATE_SPAN_DAYS),
+                "Bridgewalk " + i, "+380" + (100000000 + i));
+    }
+
+    static UserValidationPolicy validationPolicy() {
+        return new UserValidationPolicy(new UserProperties(), new StandardEnvironment());
+    }
+
+    static UserRepositoryImpl emptyRepository() {
+        return new UserRepositoryImpl(validationPolicy(), new UserPatcher());
+    }
+
+    static UserRepositoryImpl repository(int size) {
+        return fill(emptyRepository(), size);
+    }
+
+    static OffHeapUserRepository offHeapRepository(int size) {
+        return fill(new OffHeapUserRepository(validationPolicy(), new UserPatcher()), size);
+    }
+
+    static <R extends UserRepository> R fill(R repository, int size) {
+        for (int i = 0; i < size; i++) {
+            repository.save(user(i));
+        }
+        return repository;
+    }
+}
@@ -0,0 +1,50 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.cache.CachingUserRepository;
+import com.cs.cache.CaffeineUserCache;
+import com.cs.cache.LruUserCache;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code findByEmail} through the read-through cache in front of the off-heap store, whose
+ * lookups decode every field. Keys are skewed so that 90% of lookups go to 10% of the
+ * users, with the cache sized to that hot set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CachingUserRepositoryBenchmark {
+
+    @Param({"none", "tinylfu", "lru"})
+    public String cache;
+
+    @Param({"100000"})
+    public int size;
+
+    private UserRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserRepository backend = BenchmarkUsers.offHeapRepository(size);
+        repository = switch (cache) {
+            case "tinylfu" -> new CachingUserRepository(backend, new CaffeineUserCache(size / 10));
+            case "lru" -> new CachingUserRepository(backend, new LruUserCache(size / 10));
+            default -> backend;
+        };
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(10) == 0 ? random.nextInt(size) : random.nextInt(size / 10);
+        return repository.findByEmail(BenchmarkUsers.email(i));
+    }
+}
@@ -0,0 +1,50 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.store.EmailKeys;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A dedicated email key: the canonical email as Latin-1 bytes, or UTF-8 when it has other
+ * characters, with its hash computed up front. Kept as the alternative {@code EmailKeys}
+ * was measured against.
+ */
+final class CompactEmailKey {
+
+    private final byte[] bytes;
+    private final int hash;
+    private final boolean utf8;
+
+    private CompactEmailKey(byte[] bytes, boolean utf8) {
+        this.bytes = bytes;
+        this.utf8 = utf8;
+        this.hash = Arrays.hashCode(bytes) * 31 + (utf8 ? 1 : 0);
+    }
+
+    static CompactEmailKey of(String email) {
+        String canonical = EmailKeys.canonical(email);
+        for (int i = 0; i < canonical.length(); i++) {
+            if (canonical.charAt(i) > 0xFF) {
+                return new CompactEmailKey(canonical.getBytes(StandardCharsets.UTF_8), true);
+            }
+        }
+        return new CompactEmailKey(canonical.getBytes(StandardCharsets.ISO_8859_1), false);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CompactEmailKey key && key.hash == hash && key.utf8 == utf8
+               && Arrays.equals(key.bytes, bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+    }
+}
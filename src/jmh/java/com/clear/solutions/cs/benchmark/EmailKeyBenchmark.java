@@ -0,0 +1,85 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.store.EmailKeys;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the primary index pays for its keys. Every stored user holds its email string
+ * anyway, so the store's emails are kept alive in all variants and only the map keys
+ * differ: {@code raw} and {@code canonical} key the map by those same strings,
+ * {@code compact} by a {@link CompactEmailKey} per email. {@code fullGc} reports the
+ * heap retained by emails plus map as an auxiliary counter.
+ * <p>
+ * Lookups build a fresh email string each time, as a request does: {@code raw} looks it
+ * up as is (the store before keys were canonical), {@code canonical} through
+ * {@link EmailKeys#canonical}, {@code compact} through a new key. {@code lookupMixedCase}
+ * spells the domain in capitals, which {@code raw} misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class EmailKeyBenchmark {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @Param({"raw", "canonical", "compact"})
+    public String keys;
+
+    @Param({"10000000"})
+    public int size;
+
+    private String[] emails;
+    private Map<Object, Boolean> index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emails = new String[size];
+        index = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            emails[i] = EmailKeys.canonical(BenchmarkUsers.email(i));
+            index.put(key(emails[i]), Boolean.TRUE);
+        }
+    }
+
+    @Benchmark
+    public Boolean lookup() {
+        return index.get(key(BenchmarkUsers.email(ThreadLocalRandom.current().nextInt(size))));
+    }
+
+    @Benchmark
+    public Boolean lookupMixedCase() {
+        return index.get(key("user" + ThreadLocalRandom.current().nextInt(size) + "@Example.COM"));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(1)
+    public void fullGc(Footprint footprint) {
+        System.gc();
+        footprint.retainedHeapBytes = MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private Object key(String email) {
+        return switch (keys) {
+            case "canonical" -> EmailKeys.canonical(email);
+            case "compact" -> CompactEmailKey.of(email);
+            default -> email;
+        };
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedHeapBytes;
+    }
+}
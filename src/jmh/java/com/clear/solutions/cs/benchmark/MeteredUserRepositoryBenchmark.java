@@ -0,0 +1,51 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.metrics.MeteredUserRepository;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the metrics decorator on the hottest read and write paths, with the
+ * Prometheus registry the application exposes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class MeteredUserRepositoryBenchmark {
+
+    @Param({"false", "true"})
+    public boolean metered;
+
+    @Param({"10000"})
+    public int size;
+
+    private UserRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserRepository backend = BenchmarkUsers.repository(size);
+        repository = metered
+                ? new MeteredUserRepository(backend, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT))
+                : backend;
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        return repository.findByEmail(BenchmarkUsers.email(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    public User update() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        return repository.update(BenchmarkUsers.email(i), BenchmarkUsers.user(i));
+    }
+}
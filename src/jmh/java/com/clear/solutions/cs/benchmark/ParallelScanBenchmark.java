@@ -0,0 +1,53 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.patcher.UserPatcher;
+import com.cs.store.UserScanPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of findAll and of a birth-date range covering half the store with the number of
+ * scan pool threads. {@code parallelism = 1} is the sequential read every store below the
+ * threshold gets; the curve only bends on a machine with at least as many cores as threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ParallelScanBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int parallelism;
+
+    private UserRepositoryImpl repository;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkUsers.fill(new UserRepositoryImpl(BenchmarkUsers.validationPolicy(), new UserPatcher(),
+                new UserScanPool(parallelism, UserScanPool.DEFAULT_THRESHOLD)), size);
+        from = BenchmarkUsers.FIRST_BIRTH_DATE;
+        to = from.plusDays(BenchmarkUsers.BIRTH_DATE_SPAN_DAYS / 2);
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public List<User> findHalfByBirthDate() {
+        return repository.findUsersInBirthDateRange(from, true, to, false);
+    }
+}
@@ -0,0 +1,70 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.query.UserQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Where reading a birth-date range through the index stops paying off against a parallel
+ * scan of the whole store, as the share of users in the range grows. {@code planned} runs
+ * the query as the planner decides, switching at {@code UserQueryPlanner.scanFraction()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class QueryPlannerBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0.001", "0.01", "0.05", "0.1", "0.25", "0.5"})
+    public double selectivity;
+
+    private UserRepositoryImpl repository;
+    private LocalDate from;
+    private LocalDate to;
+    private UserQuery indexed;
+    private UserQuery scanned;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkUsers.repository(size);
+        // birth dates run through the span one day per user, so days are equally full
+        long days = Math.max(1, Math.round(selectivity * Math.min(size, BenchmarkUsers.BIRTH_DATE_SPAN_DAYS)));
+        from = BenchmarkUsers.FIRST_BIRTH_DATE;
+        to = from.plusDays(days);
+        String range = "birthDate >= " + from + " and birthDate < " + to;
+        indexed = UserQuery.parse(range, null, null);
+        // no user has this address, but no index answers it, so the planner has to scan
+        scanned = UserQuery.parse("(" + range + ") or address = nowhere", null, null);
+    }
+
+    @Benchmark
+    public long indexRead() {
+        try (Stream<User> users = repository.streamUsersInBirthDateRange(from, true, to, false)) {
+            return users.filter(indexed.where()::test).count();
+        }
+    }
+
+    @Benchmark
+    public long parallelScan() {
+        try (Stream<User> users = repository.query(scanned)) {
+            return users.count();
+        }
+    }
+
+    @Benchmark
+    public long planned() {
+        try (Stream<User> users = repository.query(indexed)) {
+            return users.count();
+        }
+    }
+}
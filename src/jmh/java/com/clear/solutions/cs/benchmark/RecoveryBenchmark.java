@@ -0,0 +1,69 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.patcher.UserPatcher;
+import com.cs.persistence.DurableUserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of {@link DurableUserRepository}: loading a snapshot of {@code size} users
+ * and replaying a log tail of another 10%. The 10M point needs a larger heap, e.g.
+ * {@code -Djmh.params="-p size=10000000 -jvmArgsAppend -Xmx24g"}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    private Path directory;
+    private DurableUserRepository recovered;
+
+    @Setup(Level.Trial)
+    public void writeData() throws IOException {
+        directory = Files.createTempDirectory("user-recovery");
+        DurableUserRepository repository = open();
+        for (int i = 0; i < size; i++) {
+            repository.save(BenchmarkUsers.user(i));
+        }
+        repository.compact();
+        for (int i = size; i < size + size / 10; i++) {
+            repository.save(BenchmarkUsers.user(i));
+        }
+        // abandoned without close, so the tail stays in the log
+    }
+
+    @Benchmark
+    public DurableUserRepository recover() throws IOException {
+        recovered = open();
+        return recovered;
+    }
+
+    @TearDown(Level.Invocation)
+    public void release() {
+        // the recovered store is dropped without a final snapshot so the next
+        // invocation replays the same snapshot and tail
+        recovered = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    private DurableUserRepository open() throws IOException {
+        return new DurableUserRepository(BenchmarkUsers.validationPolicy(), new UserPatcher(),
+                directory, false, Duration.ofDays(1));
+    }
+}
@@ -0,0 +1,28 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.entity.User;
+
+import java.lang.reflect.Field;
+
+/**
+ * The per-call reflection patcher that {@code UserPatcher} replaced, kept as the
+ * benchmark baseline.
+ */
+public class ReflectiveUserPatcher {
+    public User patch(User existingUser, User newUser) throws IllegalAccessException {
+        Class<?> userClass = User.class;
+        Field[] userFields = userClass.getDeclaredFields();
+
+        for(Field field : userFields){
+            field.setAccessible(true);
+
+            Object value = field.get(newUser);
+            if(value!=null){
+                field.set(existingUser, value);
+            }
+            field.setAccessible(false);
+        }
+
+        return existingUser;
+    }
+}
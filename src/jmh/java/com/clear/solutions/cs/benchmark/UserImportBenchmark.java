@@ -0,0 +1,63 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.bulk.UserImportService;
+import com.cs.bulk.UserRowReaders;
+import com.cs.dto.UserRepositoryImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NDJSON import throughput, parse through insert, into an empty store. The score is the
+ * time for one import of {@code rows} rows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class UserImportBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private final ObjectMapper mapper = new Jackson2ObjectMapperBuilder().build();
+
+    private byte[] payload;
+    private UserRepositoryImpl repository;
+    private UserImportService importService;
+
+    @Setup(Level.Trial)
+    public void writePayload() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            ndjson.append(mapper.writeValueAsString(BenchmarkUsers.user(i))).append('\n');
+        }
+        payload = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyStore() {
+        repository = BenchmarkUsers.emptyRepository();
+        importService = new UserImportService(repository,
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Benchmark
+    public long importNdjson() {
+        LongAdder created = new LongAdder();
+        BufferedReader input = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(payload), StandardCharsets.UTF_8));
+        importService.importRows(UserRowReaders.ndjson(input, mapper), result -> created.increment());
+        return created.sum();
+    }
+}
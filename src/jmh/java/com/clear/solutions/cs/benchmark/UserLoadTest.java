@@ -0,0 +1,134 @@
+package com.clear.solutions.cs.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop HTTP load against a running instance, used to compare the platform-thread
+ * pool with virtual threads: start the application once per mode with the same backend
+ * and run this against each. Every worker keeps one request in flight; 80% are lookups of
+ * preloaded users and 20% create new users, which block on the log with the durable
+ * backend. Prints throughput and p50/p99/max latency of the measured window.
+ * <p>
+ * System properties: {@code load.url} (default {@code http://localhost:8080}),
+ * {@code load.concurrency} (default 400, twice Tomcat's default pool),
+ * {@code load.users} (preloaded, default 10000), {@code load.warmup} and
+ * {@code load.duration} in seconds (default 10 and 30).
+ */
+public final class UserLoadTest {
+
+    private static final int PRELOAD_BATCH = 1000;
+
+    private UserLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("load.url", "http://localhost:8080");
+        int concurrency = Integer.getInteger("load.concurrency", 400);
+        int users = Integer.getInteger("load.users", 10000);
+        long warmupNanos = Duration.ofSeconds(Integer.getInteger("load.warmup", 10)).toNanos();
+        long durationNanos = Duration.ofSeconds(Integer.getInteger("load.duration", 30)).toNanos();
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int from = 0; from < users; from += PRELOAD_BATCH) {
+            String body = IntStream.range(from, Math.min(from + PRELOAD_BATCH, users))
+                    .mapToObj(i -> json(run, i))
+                    .collect(Collectors.joining(",", "[", "]"));
+            send(client, post(url + "/users/batch", body));
+        }
+
+        AtomicInteger nextUser = new AtomicInteger(users);
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        long[][] latencies = new long[concurrency][];
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int worker = 0; worker < concurrency; worker++) {
+            int id = worker;
+            Thread thread = new Thread(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                try {
+                    for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        HttpRequest request = random.nextInt(5) == 0
+                                ? post(url + "/users", json(run, nextUser.getAndIncrement()))
+                                : HttpRequest.newBuilder(URI.create(url + "/users/" + email(run, random.nextInt(users))))
+                                        .GET()
+                                        .build();
+                        if (!send(client, request)) {
+                            errors.incrementAndGet();
+                        }
+                        long finished = System.nanoTime();
+                        if (now >= measureFrom && finished < end) {
+                            if (count == samples.length) {
+                                samples = Arrays.copyOf(samples, count * 2);
+                            }
+                            samples[count++] = finished - now;
+                        }
+                    }
+                } finally {
+                    latencies[id] = Arrays.copyOf(samples, count);
+                    done.countDown();
+                }
+            }, "load-" + worker);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        double seconds = durationNanos / 1e9;
+        System.out.printf("concurrency=%d requests=%d errors=%d throughput=%.0f req/s "
+                        + "p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                concurrency, all.length, errors.get(), all.length / seconds,
+                percentile(all, 0.50), percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String email(String run, int i) {
+        return "load" + run + "-" + i + "@example.com";
+    }
+
+    private static String json(String run, int i) {
+        return "{\"email\":\"" + email(run, i) + "\",\"firstName\":\"Load" + i
+                + "\",\"lastName\":\"Test\",\"birthDate\":\"1990-01-01\"}";
+    }
+}
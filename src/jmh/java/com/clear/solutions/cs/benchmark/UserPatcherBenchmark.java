@@ -0,0 +1,47 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.entity.User;
+import com.cs.patcher.UserPatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserPatcherBenchmark {
+
+    private final UserPatcher patcher = new UserPatcher();
+    private final ReflectiveUserPatcher reflectivePatcher = new ReflectiveUserPatcher();
+
+    private User existing;
+    private User patch;
+
+    @Setup
+    public void setUp() {
+        existing = new User("user@example.com", "User", "Test",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000");
+        patch = User.builder()
+                .firstName("Patched")
+                .birthDate(LocalDate.of(2000, 1, 1))
+                .build();
+    }
+
+    @Benchmark
+    public User methodHandles() {
+        return patcher.patch(existing, patch);
+    }
+
+    @Benchmark
+    public User reflection() throws IllegalAccessException {
+        // the reflective patcher mutates in place, so it is handed a fresh copy like
+        // the copy-on-write path produces
+        User copy = new User(existing.getEmail(), existing.getFirstName(), existing.getLastName(),
+                existing.getBirthDate(), existing.getAddress(), existing.getPhone());
+        return reflectivePatcher.patch(copy, patch);
+    }
+}
@@ -0,0 +1,128 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserNotFoundException;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class UserRepositoryBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private static final LocalDate AGE_HISTOGRAM_DATE = LocalDate.of(2024, 6, 15);
+
+    private UserRepositoryImpl repository;
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkUsers.repository(size);
+        nextId.set(size);
+    }
+
+    @Benchmark
+    public User saveAndDelete() {
+        // paired with a delete so the store keeps its size for the whole run
+        User user = BenchmarkUsers.user(nextId.getAndIncrement());
+        repository.save(user);
+        repository.deleteByEmail(user.getEmail());
+        return user;
+    }
+
+    @Benchmark
+    public User update() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        return repository.update(BenchmarkUsers.email(i), BenchmarkUsers.user(i));
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        return repository.findByEmail(BenchmarkUsers.email(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    public Object findByEmailMiss() {
+        try {
+            return repository.findByEmail(BenchmarkUsers.email(size + ThreadLocalRandom.current().nextInt(size)));
+        } catch (UserNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findOptionalByEmailMiss() {
+        return repository.findOptionalByEmail(BenchmarkUsers.email(size + ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<User> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public List<User> findUsersInBirthDateRange() {
+        // a one-year window at a random offset
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPAN_DAYS - 365));
+        return repository.findUsersInBirthDateRange(from, true, from.plusYears(1), false);
+    }
+
+    @Benchmark
+    public long countUsersInBirthDateRangeByScan() {
+        // what reporting did before range counts: materialize the range to count it
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPAN_DAYS - 365));
+        return repository.findUsersInBirthDateRange(from, true, from.plusYears(1), false).size();
+    }
+
+    @Benchmark
+    public long countInBirthDateRange() {
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPAN_DAYS - 365));
+        return repository.countInBirthDateRange(from, true, from.plusYears(1), false);
+    }
+
+    @Benchmark
+    public List<AgeBucket> ageHistogram() {
+        return repository.ageHistogram(AGE_HISTOGRAM_DATE, 10, 100);
+    }
+
+    @Benchmark
+    public List<User> findByBirthday() {
+        return repository.findByBirthday(MonthDay.from(BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(366))));
+    }
+
+    @Benchmark
+    public List<User> findByPhone() {
+        return repository.findByPhone(BenchmarkUsers.user(ThreadLocalRandom.current().nextInt(size)).getPhone());
+    }
+
+    @Benchmark
+    public List<User> findByLastName() {
+        // every last name is shared by size / 1000 users
+        return repository.findByLastName("Test" + ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    @Benchmark
+    public List<User> findByNamePrefix() {
+        return repository.findByNamePrefix("User" + ThreadLocalRandom.current().nextInt(1000), 10);
+    }
+}
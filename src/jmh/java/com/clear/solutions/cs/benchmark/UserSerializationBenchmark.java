@@ -0,0 +1,54 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.entity.User;
+import com.cs.json.UserSerializer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /users} serialization cost with the default bean serializer against
+ * {@link UserSerializer}, both on a mapper configured the way Spring Boot configures the
+ * application's mapper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int size;
+
+    @Param({"default", "fast"})
+    public String serializer;
+
+    private ObjectMapper mapper;
+
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        if (serializer.equals("fast")) {
+            builder.serializers(new UserSerializer());
+        }
+        mapper = builder.build();
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(BenchmarkUsers.user(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,66 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.offheap.OffHeapUserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the on-heap store with the off-heap one at the same size. {@code fullGc} times
+ * a full collection with the store as the live set and reports, as auxiliary counters, the
+ * heap retained after it and the direct memory the off-heap store holds. Run with
+ * {@code -prof gc} to also see allocation and collection counts for the lookups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-XX:MaxDirectMemorySize=3g"})
+@State(Scope.Benchmark)
+public class UserStoreFootprintBenchmark {
+
+    @Param({"heap", "offheap"})
+    public String backend;
+
+    @Param({"1000000"})
+    public int size;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private UserRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = backend.equals("offheap")
+                ? BenchmarkUsers.offHeapRepository(size)
+                : BenchmarkUsers.repository(size);
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        return repository.findByEmail(BenchmarkUsers.email(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(1)
+    public void fullGc(Footprint footprint) {
+        System.gc();
+        footprint.retainedHeapBytes = MEMORY.getHeapMemoryUsage().getUsed();
+        footprint.offHeapBytes = repository instanceof OffHeapUserRepository offHeap
+                ? offHeap.allocatedBytes()
+                : 0;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedHeapBytes;
+        public long offHeapBytes;
+    }
+}
@@ -0,0 +1,82 @@
+package com.clear.solutions.cs.benchmark;
+
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.patcher.UserPatcher;
+import com.cs.persistence.DurableUserRepository;
+import com.cs.write.BatchingUserRepository;
+import com.cs.write.UserWriteQueue;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Update throughput of the durable backend with fsync on, each writer updating a user of
+ * its own, with writes applied by their callers and with writes going through the
+ * {@link UserWriteQueue}. Meant to run at several writer counts:
+ * {@code -Djmh.includes=WriteBatching -Djmh.threads=1,8,64}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class WriteBatchingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean batching;
+
+    @Param({"256"})
+    public int maxBatchSize;
+
+    private final AtomicInteger writers = new AtomicInteger();
+    private Path directory;
+    private DurableUserRepository backend;
+    private UserWriteQueue writes;
+    private UserRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("user-writes");
+        backend = new DurableUserRepository(BenchmarkUsers.validationPolicy(), new UserPatcher(),
+                directory, true, Duration.ofDays(1));
+        if (batching) {
+            writes = new UserWriteQueue(backend, maxBatchSize);
+            repository = new BatchingUserRepository(backend, writes);
+        } else {
+            repository = backend;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (writes != null) {
+            writes.close();
+        }
+        backend.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private User user;
+
+        @Setup(Level.Trial)
+        public void setUp(WriteBatchingBenchmark benchmark) {
+            user = BenchmarkUsers.user(benchmark.writers.getAndIncrement());
+            benchmark.repository.save(user);
+        }
+    }
+
+    @Benchmark
+    public User update(Writer writer) {
+        return repository.update(writer.user.getEmail(), writer.user);
+    }
+}
@@ -0,0 +1,51 @@
+package com.cs.bulk;
+
+import com.cs.entity.User;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.util.List;
+
+/**
+ * CSV layout of users: a header row followed by one user per line, columns as in
+ * {@link #COLUMNS}. Empty cells are read as {@code null}.
+ */
+public final class UserCsv {
+
+    public static final List<String> COLUMNS =
+            List.of("email", "firstName", "lastName", "birthDate", "address", "phone");
+
+    private static final CsvMapper MAPPER = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .build();
+
+    private UserCsv() {
+    }
+
+    /**
+     * Writer for a header row followed by users, for use with {@code writeValues}.
+     */
+    public static ObjectWriter writer() {
+        return MAPPER.writerFor(User.class).with(schema(COLUMNS).withHeader());
+    }
+
+    /**
+     * Reader for single data lines laid out as the given header columns.
+     */
+    static ObjectReader lineReader(List<String> columns) {
+        return MAPPER.readerFor(User.class).with(schema(columns));
+    }
+
+    private static CsvSchema schema(List<String> columns) {
+        CsvSchema.Builder schema = CsvSchema.builder();
+        columns.forEach(schema::addColumn);
+        return schema.build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.cs.bulk;
+
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Imports users in fixed-size chunks: each chunk is bean-validated in parallel and the
+ * valid rows are inserted with a single {@code saveAll} call. Results are handed to the
+ * consumer chunk by chunk in input order, so arbitrarily long inputs are never held in
+ * memory at once.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+    static final int CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final Validator validator;
+
+    public List<UserBatchResult> importUsers(List<User> users) {
+        List<UserBatchResult> results = new ArrayList<>(users.size());
+        importRows(IntStream.range(0, users.size())
+                .mapToObj(i -> UserRow.of(i + 1, users.get(i)))
+                .iterator(), results::add);
+        return results;
+    }
+
+    public void importRows(Iterator<UserRow> rows, Consumer<UserBatchResult> results) {
+        List<UserRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == CHUNK_SIZE) {
+                importChunk(chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, results);
+        }
+    }
+
+    private void importChunk(List<UserRow> chunk, Consumer<UserBatchResult> results) {
+        UserBatchResult[] chunkResults = new UserBatchResult[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+            UserRow row = chunk.get(i);
+            String error = row.error() != null ? row.error() : violations(row.user());
+            if (error != null) {
+                String email = row.user() == null ? null : row.user().getEmail();
+                chunkResults[i] = UserBatchResult.invalid(row.row(), email, error);
+            }
+        });
+
+        List<User> valid = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunkResults[i] == null) {
+                valid.add(chunk.get(i).user());
+                positions.add(i);
+            }
+        }
+
+        List<UserBatchResult> saved = valid.isEmpty() ? List.of() : userRepository.saveAll(valid);
+        for (int i = 0; i < saved.size(); i++) {
+            int position = positions.get(i);
+            chunkResults[position] = saved.get(i).withRow(chunk.get(position).row());
+        }
+
+        for (UserBatchResult result : chunkResults) {
+            results.accept(result);
+        }
+    }
+
+    private String violations(User user) {
+        // a JSON null, a blank array element or an NDJSON line reading "null"
+        if (user == null) {
+            return "A user object is expected";
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
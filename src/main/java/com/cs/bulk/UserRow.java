@@ -0,0 +1,17 @@
+package com.cs.bulk;
+
+import com.cs.entity.User;
+
+/**
+ * One parsed input row: either a user or the reason the row could not be read.
+ */
+public record UserRow(int row, User user, String error) {
+
+    public static UserRow of(int row, User user) {
+        return new UserRow(row, user, null);
+    }
+
+    public static UserRow unreadable(int row, String error) {
+        return new UserRow(row, null, error);
+    }
+}
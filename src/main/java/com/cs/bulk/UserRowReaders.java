@@ -0,0 +1,109 @@
+package com.cs.bulk;
+
+import com.cs.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Incremental readers for bulk imports. Input is consumed one line at a time, so a
+ * malformed line only fails its own row and memory use does not grow with the payload.
+ * CSV cells may be quoted but must not contain line breaks.
+ */
+public final class UserRowReaders {
+
+    private UserRowReaders() {
+    }
+
+    public static Iterator<UserRow> ndjson(BufferedReader input, ObjectMapper mapper) {
+        ObjectReader reader = mapper.readerFor(User.class);
+        return new LineIterator(input) {
+            @Override
+            UserRow parse(int row, String line) {
+                try {
+                    return UserRow.of(row, reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    return UserRow.unreadable(row, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    public static Iterator<UserRow> csv(BufferedReader input) {
+        String header = readLine(input);
+        if (header == null) {
+            return List.<UserRow>of().iterator();
+        }
+
+        List<String> columns = Arrays.stream(header.split(",")).map(String::trim).toList();
+        List<String> unknown = columns.stream().filter(column -> !UserCsv.COLUMNS.contains(column)).toList();
+        if (!unknown.isEmpty()) {
+            return List.of(UserRow.unreadable(0, "Unknown CSV columns " + unknown)).iterator();
+        }
+
+        ObjectReader reader = UserCsv.lineReader(columns);
+        return new LineIterator(input) {
+            @Override
+            UserRow parse(int row, String line) {
+                try {
+                    return UserRow.of(row, reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    return UserRow.unreadable(row, "Malformed CSV: " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    private static String readLine(BufferedReader input) {
+        try {
+            return input.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private abstract static class LineIterator implements Iterator<UserRow> {
+
+        private final BufferedReader input;
+        private String nextLine;
+        private int row;
+
+        LineIterator(BufferedReader input) {
+            this.input = input;
+        }
+
+        abstract UserRow parse(int row, String line);
+
+        @Override
+        public boolean hasNext() {
+            while (nextLine == null) {
+                String line = readLine(input);
+                if (line == null) {
+                    return false;
+                }
+                if (!line.isBlank()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public UserRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            return parse(++row, line);
+        }
+    }
+}
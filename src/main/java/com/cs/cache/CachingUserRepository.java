@@ -0,0 +1,259 @@
+package com.cs.cache;
+
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.query.UserQuery;
+import com.cs.store.EmailKeys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Serves {@code findByEmail} and {@code findOptionalByEmail} from a {@link UserCache},
+ * loading misses from the backend and caching "not found" as well, so repeated lookups of
+ * unknown emails never reach the backend. Entries are keyed by the
+ * {@link EmailKeys#canonical canonical} email, as the backends key users. Every write goes
+ * to the backend first and then invalidates the emails it touched; all other calls pass
+ * straight through.
+ * <p>
+ * A miss that races with a write must not cache what it read before the write. Writers
+ * bump a write counter before invalidating, and a loader re-checks the counter after
+ * caching its result, dropping the entry if any write happened while it was loading.
+ */
+public class CachingUserRepository implements UserRepository, MeterBinder {
+
+    static final String GETS = "user.cache.gets";
+    static final String EVICTIONS = "user.cache.evictions";
+    static final String SIZE = "user.cache.size";
+
+    private final UserRepository repository;
+    private final UserCache cache;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingUserRepository(UserRepository repository, UserCache cache) {
+        this.repository = repository;
+        this.cache = cache;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return findOptionalByEmail(email).orElseThrow(() -> notFound(email));
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        String key = EmailKeys.canonical(email);
+        Optional<User> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long stamp = writes.get();
+        Optional<User> loaded = repository.findOptionalByEmail(key);
+        cache.put(key, loaded);
+        if (writes.get() != stamp) {
+            cache.invalidate(key);
+        }
+
+        return loaded;
+    }
+
+    @Override
+    public List<User> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        return repository.findPage(cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return repository.streamAll();
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return repository.findByPhone(phone);
+    }
+
+    @Override
+    public List<User> findByLastName(String lastName) {
+        return repository.findByLastName(lastName);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return repository.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public User save(User user) {
+        try {
+            return repository.save(user);
+        } finally {
+            invalidate(user.getEmail());
+        }
+    }
+
+    @Override
+    public User restore(User user) {
+        try {
+            return repository.restore(user);
+        } finally {
+            invalidate(user.getEmail());
+        }
+    }
+
+    @Override
+    public List<UserBatchResult> saveAll(List<User> users) {
+        try {
+            return repository.saveAll(users);
+        } finally {
+            users.forEach(user -> invalidate(user.getEmail()));
+        }
+    }
+
+    @Override
+    public User update(String email, User user, long expectedVersion) {
+        try {
+            return repository.update(email, user, expectedVersion);
+        } finally {
+            invalidate(email, user.getEmail());
+        }
+    }
+
+    @Override
+    public User patchUser(String email, User newUser, long expectedVersion) {
+        try {
+            return repository.patchUser(email, newUser, expectedVersion);
+        } finally {
+            invalidate(email, newUser.getEmail());
+        }
+    }
+
+    @Override
+    public void inBatch(Runnable mutations) {
+        repository.inBatch(mutations);
+    }
+
+    @Override
+    public boolean readsBlock() {
+        return repository.readsBlock();
+    }
+
+    @Override
+    public boolean writesBlock() {
+        return repository.writesBlock();
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        try {
+            repository.deleteByEmail(email);
+        } finally {
+            invalidate(email);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        try {
+            repository.deleteAll();
+        } finally {
+            writes.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        return repository.findUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return repository.streamUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        return repository.findByBirthday(day);
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return repository.countInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(LocalDate date, int width, int maxAge) {
+        return repository.ageHistogram(date, width, maxAge);
+    }
+
+    @Override
+    public Stream<User> query(UserQuery query) {
+        return repository.query(query);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(GETS, hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("findByEmail calls answered from the cache, found or not")
+                .register(registry);
+        FunctionCounter.builder(GETS, misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("findByEmail calls loaded from the backend")
+                .register(registry);
+        FunctionCounter.builder(EVICTIONS, cache, UserCache::evictionCount)
+                .description("Entries dropped to stay within the maximum size")
+                .register(registry);
+        Gauge.builder(SIZE, cache, UserCache::size)
+                .description("Cached lookups")
+                .register(registry);
+    }
+
+    // also runs when the write failed: a partial failure may still have changed the backend
+    private void invalidate(String... emails) {
+        writes.incrementAndGet();
+        for (String email : emails) {
+            if (email != null) {
+                cache.invalidate(EmailKeys.canonical(email));
+            }
+        }
+    }
+
+    private static UserNotFoundException notFound(String email) {
+        return new UserNotFoundException("User with email " +
+                                         email +
+                                         " was not found");
+    }
+}
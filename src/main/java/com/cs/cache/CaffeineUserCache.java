@@ -0,0 +1,52 @@
+package com.cs.cache;
+
+import com.cs.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Optional;
+
+/**
+ * W-TinyLFU cache backed by Caffeine.
+ */
+public class CaffeineUserCache implements UserCache {
+
+    private final Cache<String, Optional<User>> cache;
+
+    public CaffeineUserCache(long maximumSize) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<User> getIfPresent(String email) {
+        return cache.getIfPresent(email);
+    }
+
+    @Override
+    public void put(String email, Optional<User> user) {
+        cache.put(email, user);
+    }
+
+    @Override
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+}
@@ -0,0 +1,93 @@
+package com.cs.cache;
+
+import com.cs.entity.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Least-recently-used cache: an access-ordered {@link LinkedHashMap} behind one lock.
+ * Every hit reorders the map, so this trades concurrency for strict recency; prefer
+ * {@link CaffeineUserCache} under heavy parallel reads.
+ */
+public class LruUserCache implements UserCache {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Optional<User>> users;
+    private long evictions;
+
+    public LruUserCache(long maximumSize) {
+        users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<User>> eldest) {
+                if (size() > maximumSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Optional<User> getIfPresent(String email) {
+        lock.lock();
+        try {
+            return users.get(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(String email, Optional<User> user) {
+        lock.lock();
+        try {
+            users.put(email, user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(String email) {
+        lock.lock();
+        try {
+            users.remove(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            users.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        lock.lock();
+        try {
+            return users.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long evictionCount() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.cs.cache;
+
+import com.cs.entity.User;
+
+import java.util.Optional;
+
+/**
+ * Bounded map from email to the result of looking it up, where an empty {@link Optional}
+ * records that the user does not exist.
+ */
+public interface UserCache {
+
+    /**
+     * The cached lookup result, or {@code null} when the email is not cached.
+     */
+    Optional<User> getIfPresent(String email);
+
+    void put(String email, Optional<User> user);
+
+    void invalidate(String email);
+
+    void invalidateAll();
+
+    long size();
+
+    long evictionCount();
+}
@@ -0,0 +1,34 @@
+package com.cs.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.cache")
+public class UserCacheProperties {
+
+    /**
+     * Whether {@code findByEmail} is served through the read-through cache. Off by default:
+     * the in-memory backends answer faster than a cache lookup plus bookkeeping.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of cached lookups, found and not found alike.
+     */
+    private long maximumSize = 100_000;
+
+    /**
+     * Which entry is dropped when the cache is full.
+     */
+    private Eviction eviction = Eviction.TINYLFU;
+
+    public enum Eviction {
+        /** Caffeine's W-TinyLFU: admits by frequency, resists scans. */
+        TINYLFU,
+        /** Least recently used. */
+        LRU
+    }
+}
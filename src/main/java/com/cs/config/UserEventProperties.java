@@ -0,0 +1,17 @@
+package com.cs.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.events")
+public class UserEventProperties {
+
+    /**
+     * How many of the latest changes are kept for consumers to resume from. A consumer
+     * further behind than this gets a reset event.
+     */
+    private int capacity = 65_536;
+}
@@ -0,0 +1,23 @@
+package com.cs.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.properties")
+public class UserProperties {
+
+    /**
+     * Minimum age in whole years a user must have reached.
+     */
+    private int minAge = 18;
+
+    /**
+     * How often the validation policy re-reads these properties from the environment.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(10);
+}
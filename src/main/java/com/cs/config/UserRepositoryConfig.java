@@ -0,0 +1,83 @@
+package com.cs.config;
+
+import com.cs.cache.CachingUserRepository;
+import com.cs.cache.CaffeineUserCache;
+import com.cs.cache.LruUserCache;
+import com.cs.cache.UserCache;
+import com.cs.dto.UserRepository;
+import com.cs.events.UserChangeLog;
+import com.cs.metrics.MeteredUserRepository;
+import com.cs.store.UserMutationSource;
+import com.cs.write.BatchingUserRepository;
+import com.cs.write.UserWriteQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Composes the repository the rest of the application injects on top of the backend
+ * selected by {@code user.store.backend}: metrics outermost, so they measure what callers
+ * see, then the read-through cache when {@code user.cache.enabled}, then the write queue
+ * when {@code user.writes.batching}, so the cache is invalidated after a write commits.
+ */
+@Configuration
+@EnableConfigurationProperties({UserCacheProperties.class, UserEventProperties.class, UserShardProperties.class,
+        UserWriteProperties.class})
+public class UserRepositoryConfig {
+
+    @Bean
+    @Primary
+    public UserRepository userRepository(@Qualifier(UserRepository.BACKEND) UserRepository backend,
+                                         ObjectProvider<UserWriteQueue> writeQueue,
+                                         UserCacheProperties cacheProperties,
+                                         MeterRegistry registry) {
+        UserRepository repository = backend;
+        UserWriteQueue writes = writeQueue.getIfAvailable();
+        if (writes != null) {
+            repository = new BatchingUserRepository(repository, writes);
+        }
+        if (cacheProperties.isEnabled()) {
+            CachingUserRepository cached = new CachingUserRepository(repository, cache(cacheProperties));
+            cached.bindTo(registry);
+            repository = cached;
+        }
+
+        return new MeteredUserRepository(repository, registry);
+    }
+
+    /**
+     * Single writer applying the writes of all request threads to the backend in batches.
+     * Closed before the backend, so writes accepted before shutdown are committed.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "user.writes.batching", havingValue = "true")
+    public UserWriteQueue userWriteQueue(@Qualifier(UserRepository.BACKEND) UserRepository backend,
+                                         UserWriteProperties writeProperties) {
+        return new UserWriteQueue(backend, writeProperties.getMaxBatchSize());
+    }
+
+    /**
+     * Change events of the backend, for consumers that follow changes instead of polling.
+     */
+    @Bean(destroyMethod = "close")
+    public UserChangeLog userChangeLog(@Qualifier(UserRepository.BACKEND) UserRepository backend,
+                                       UserEventProperties eventProperties) {
+        UserChangeLog changeLog = new UserChangeLog(eventProperties.getCapacity());
+        if (backend instanceof UserMutationSource source) {
+            source.addMutationListener(changeLog);
+        }
+        return changeLog;
+    }
+
+    private static UserCache cache(UserCacheProperties properties) {
+        return switch (properties.getEviction()) {
+            case TINYLFU -> new CaffeineUserCache(properties.getMaximumSize());
+            case LRU -> new LruUserCache(properties.getMaximumSize());
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.cs.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.shards")
+public class UserShardProperties {
+
+    /**
+     * Base URLs of the shard instances, each running the heap or durable backend with
+     * {@link #member} set. The list
+     * only seeds the ring: shards added later through {@code POST /shards} are not written
+     * back, so add them here too before the next restart.
+     */
+    private List<String> nodes = new ArrayList<>();
+
+    /**
+     * Set on the shard instances themselves, not on the router: enables the internal
+     * endpoint the router moves users onto a shard through, keeping their versions.
+     */
+    private boolean member;
+
+    /**
+     * Points per shard on the hash ring; more points spread users more evenly.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * How long a call to a shard may take before it fails.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,22 @@
+package com.cs.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.writes")
+public class UserWriteProperties {
+
+    /**
+     * Whether writes go through a single writer thread that commits them in batches,
+     * worth it once every commit costs a flush, as with the durable backend.
+     */
+    private boolean batching = false;
+
+    /**
+     * Most writes the writer applies and commits together.
+     */
+    private int maxBatchSize = 256;
+}
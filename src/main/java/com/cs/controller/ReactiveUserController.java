@@ -0,0 +1,175 @@
+package com.cs.controller;
+
+import com.cs.dto.AgeBucket;
+import com.cs.dto.ReactiveUserRepository;
+import com.cs.entity.User;
+import com.cs.exception.user.UserValidationException;
+import com.cs.query.UserQuery;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * WebFlux counterpart of {@link UserController}, active when the application runs as a
+ * reactive web application ({@code spring.main.web-application-type=reactive}). Full
+ * listings and birth-date ranges are written as they are pulled from the store, as a JSON
+ * array or, for {@code application/x-ndjson}, one user per line, so a slow client applies
+ * backpressure instead of the response being buffered.
+ */
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    private final ReactiveUserRepository userRepository;
+
+    @GetMapping("/{email}")
+    public Mono<ResponseEntity<User>> getUserByEmail(@PathVariable("email") String email) {
+        return userRepository.findByEmail(email)
+                .map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).body(user));
+    }
+
+    @RequestMapping(value = "/{email}", method = RequestMethod.HEAD)
+    public Mono<ResponseEntity<Void>> userExists(@PathVariable("email") String email) {
+        return userRepository.findOptionalByEmail(email)
+                .map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).<Void>build())
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<User>>> getAll(@RequestParam(value = "cursor", required = false)
+                                                   String cursor,
+                                                   @RequestParam(value = "limit", required = false)
+                                                   Integer limit,
+                                                   @RequestParam(value = "filter", required = false)
+                                                   String filter,
+                                                   @RequestParam(value = "sort", required = false)
+                                                   String sort) {
+        if (filter != null || sort != null) {
+            if (cursor != null) {
+                throw new UserValidationException("A cursor cannot be combined with filter or sort");
+            }
+            return Mono.just(ResponseEntity.ok(userRepository.query(UserQuery.parse(filter, sort, limit))));
+        }
+        if (cursor == null && limit == null) {
+            return Mono.just(ResponseEntity.ok(userRepository.findAll()));
+        }
+
+        return userRepository.findPage(cursor, UserController.pageSize(limit)).map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(UserController.NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(Flux.fromIterable(page.users()));
+        });
+    }
+
+    @GetMapping("/count")
+    public Mono<Long> count() {
+        return userRepository.count();
+    }
+
+    @GetMapping(value = "/in-birth-date-range",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<User> getUsersInBirthDateRange(@RequestParam("dateFrom")
+                                               LocalDate dateFrom,
+                                               @RequestParam("dateTo")
+                                               LocalDate dateTo,
+                                               @RequestParam(value = "fromInclusive", defaultValue = "false")
+                                               boolean fromInclusive,
+                                               @RequestParam(value = "toInclusive", defaultValue = "false")
+                                               boolean toInclusive) {
+        return userRepository.findUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @GetMapping("/in-birth-date-range/count")
+    public Mono<Long> countUsersInBirthDateRange(@RequestParam("dateFrom")
+                                                 LocalDate dateFrom,
+                                                 @RequestParam("dateTo")
+                                                 LocalDate dateTo,
+                                                 @RequestParam(value = "fromInclusive", defaultValue = "false")
+                                                 boolean fromInclusive,
+                                                 @RequestParam(value = "toInclusive", defaultValue = "false")
+                                                 boolean toInclusive) {
+        return userRepository.countInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @GetMapping("/birthdays")
+    public Flux<User> findByBirthday(@RequestParam("month") int month, @RequestParam("day") int day) {
+        return Flux.defer(() -> userRepository.findByBirthday(UserController.monthDay(month, day)));
+    }
+
+    @GetMapping("/age-histogram")
+    public Mono<List<AgeBucket>> ageHistogram(@RequestParam(value = "date", required = false)
+                                              LocalDate date,
+                                              @RequestParam(value = "width", defaultValue = "10")
+                                              int width,
+                                              @RequestParam(value = "maxAge", defaultValue = "100")
+                                              int maxAge) {
+        return userRepository.ageHistogram(date == null ? LocalDate.now() : date, width, maxAge);
+    }
+
+    @GetMapping(value = "/search", params = "phone")
+    public Flux<User> findByPhone(@RequestParam("phone") String phone) {
+        return userRepository.findByPhone(phone);
+    }
+
+    @GetMapping(value = "/search", params = "lastName")
+    public Flux<User> findByLastName(@RequestParam("lastName") String lastName) {
+        return userRepository.findByLastName(lastName);
+    }
+
+    @GetMapping(value = "/search", params = "namePrefix")
+    public Flux<User> findByNamePrefix(@RequestParam("namePrefix") String namePrefix,
+                                       @RequestParam(value = "limit", required = false) Integer limit) {
+        return userRepository.findByNamePrefix(namePrefix, UserController.pageSize(limit));
+    }
+
+    @PostMapping()
+    public Mono<ResponseEntity<User>> createUser(@RequestBody @Valid User user) {
+        return userRepository.save(user)
+                .map(newUser -> ResponseEntity.status(HttpStatus.CREATED).eTag(UserETags.of(newUser)).body(newUser));
+    }
+
+    @PutMapping("/{email}")
+    public Mono<ResponseEntity<User>> updateEntireUser(@RequestBody @Valid User user,
+                                                       @PathVariable("email") String email,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                       String ifMatch) {
+        return Mono.fromSupplier(() -> UserETags.expectedVersion(ifMatch))
+                .flatMap(version -> userRepository.update(email, user, version))
+                .map(ReactiveUserController::withETag);
+    }
+
+    @PatchMapping("/{email}")
+    public Mono<ResponseEntity<User>> updatePartialUser(@RequestBody User user,
+                                                        @PathVariable("email") String email,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                        String ifMatch) {
+        return Mono.fromSupplier(() -> UserETags.expectedVersion(ifMatch))
+                .flatMap(version -> userRepository.patchUser(email, user, version))
+                .map(ReactiveUserController::withETag);
+    }
+
+    @DeleteMapping("/{email}")
+    public Mono<ResponseEntity<String>> deleteUserByEmail(@PathVariable String email) {
+        return userRepository.deleteByEmail(email)
+                .thenReturn(new ResponseEntity<>("User with email " + email + " was deleted",
+                        HttpStatus.OK));
+    }
+
+    private static ResponseEntity<User> withETag(User user) {
+        return ResponseEntity.ok().eTag(UserETags.of(user)).body(user);
+    }
+}
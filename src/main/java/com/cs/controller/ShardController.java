@@ -0,0 +1,57 @@
+package com.cs.controller;
+
+import com.cs.exception.user.UserErrorResponse;
+import com.cs.shard.ShardedUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shards of the sharded backend, served by both web stacks. Adding a shard answers once
+ * the users it took over were moved to it; the migration runs off the request threads.
+ */
+@RestController
+@RequestMapping("/shards")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.store.backend", havingValue = "sharded")
+public class ShardController {
+
+    private final ShardedUserRepository shardedRepository;
+
+    @GetMapping
+    public List<String> shards() {
+        return shardedRepository.shards();
+    }
+
+    @PostMapping
+    public Mono<Map<String, Object>> addShard(@RequestParam("url") String url) {
+        return Mono.fromCallable(() -> Map.<String, Object>of("shard", url, "moved", shardedRepository.addShard(url)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // a malformed URL or a shard that is already on the ring
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<UserErrorResponse> handleInvalidShard(IllegalArgumentException exc) {
+        return new ResponseEntity<>(new UserErrorResponse(HttpStatus.BAD_REQUEST.value(), exc.getMessage()),
+                HttpStatus.BAD_REQUEST);
+    }
+
+    // another shard is being added
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<UserErrorResponse> handleRebalancing(IllegalStateException exc) {
+        return new ResponseEntity<>(new UserErrorResponse(HttpStatus.CONFLICT.value(), exc.getMessage()),
+                HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,39 @@
+package com.cs.controller;
+
+import com.cs.dto.ReactiveUserRepository;
+import com.cs.entity.User;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Internal endpoint of a shard instance, served by both web stacks, through which the
+ * router of the sharded backend moves a user onto this shard at the version it had on the
+ * previous one. Only shards enable it, with {@code user.shards.member}, and only the router
+ * should be able to reach it: the public {@code POST /users} always creates at version 1,
+ * so clients cannot pick the versions entity tags are derived from.
+ */
+@RestController
+@RequestMapping("/internal/shard/users")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.shards.member", havingValue = "true")
+public class ShardMemberController {
+    static final String VERSION_HEADER = "X-User-Version";
+
+    private final ReactiveUserRepository userRepository;
+
+    @PostMapping
+    public Mono<ResponseEntity<User>> restoreUser(@RequestBody @Valid User user,
+                                                  @RequestHeader(VERSION_HEADER) long version) {
+        return userRepository.restore(user.withVersion(version))
+                .map(restored -> ResponseEntity.status(HttpStatus.CREATED).eTag(UserETags.of(restored)).body(restored));
+    }
+}
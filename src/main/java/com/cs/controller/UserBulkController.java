@@ -0,0 +1,78 @@
+package com.cs.controller;
+
+import com.cs.bulk.UserImportService;
+import com.cs.bulk.UserRow;
+import com.cs.bulk.UserRowReaders;
+import com.cs.dto.UserBatchResult;
+import com.cs.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+@RestController()
+@RequestMapping("/users")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserBulkController {
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final UserImportService importService;
+    private final ObjectMapper mapper;
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserBatchResult>> createUsers(@RequestBody List<User> users) {
+        List<UserBatchResult> results = importService.importUsers(users);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importNdjson(HttpServletRequest request) {
+        return importRows(request, input -> UserRowReaders.ndjson(input, mapper));
+    }
+
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importCsv(HttpServletRequest request) {
+        return importRows(request, UserRowReaders::csv);
+    }
+
+    // parses the request body while results of earlier chunks are already written back
+    private ResponseEntity<StreamingResponseBody> importRows(HttpServletRequest request,
+                                                             Function<BufferedReader, Iterator<UserRow>> parser) {
+        ObjectWriter writer = mapper.writerFor(UserBatchResult.class);
+        StreamingResponseBody body = out -> {
+            try (BufferedReader input = new BufferedReader(
+                    new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+                importService.importRows(parser.apply(input), result -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(result));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -1,63 +1,238 @@
 package com.cs.controller;
 
-import com.cs.dto.UserRepositoryImpl;
+import com.cs.bulk.UserCsv;
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
 import com.cs.entity.User;
 import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.query.UserQuery;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController()
 @RequestMapping("/users")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
-    private final UserRepositoryImpl userRepository;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY = 256;
+
+    private final UserRepository userRepository;
+    private final ObjectMapper mapper;
 
     @GetMapping("/{email}")
     public ResponseEntity<User> getUserByEmail(@PathVariable("email") String email) {
         User user = userRepository.findByEmail(email);
-        return new ResponseEntity<>(user, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(UserETags.of(user)).body(user);
+    }
+
+    /**
+     * Existence check that answers a miss with an empty 404 instead of an error body, so
+     * probing for unknown emails costs about as much as finding known ones.
+     */
+    @RequestMapping(value = "/{email}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> userExists(@PathVariable("email") String email) {
+        return userRepository.findOptionalByEmail(email)
+                .map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).<Void>build())
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * All users, a page of them, or, given a {@code filter} or {@code sort}, the result of
+     * a {@link UserQuery} cut off after {@code limit} users.
+     */
     @GetMapping()
-    public ResponseEntity<List<User>> getAll() {
-        List<User> users = userRepository.findAll();
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    public ResponseEntity<List<User>> getAll(@RequestParam(value = "cursor", required = false)
+                                             String cursor,
+                                             @RequestParam(value = "limit", required = false)
+                                             Integer limit,
+                                             @RequestParam(value = "filter", required = false)
+                                             String filter,
+                                             @RequestParam(value = "sort", required = false)
+                                             String sort) {
+        if (filter != null || sort != null) {
+            if (cursor != null) {
+                throw new UserValidationException("A cursor cannot be combined with filter or sort");
+            }
+            try (Stream<User> users = userRepository.query(UserQuery.parse(filter, sort, limit))) {
+                return ResponseEntity.ok(users.toList());
+            }
+        }
+        if (cursor == null && limit == null) {
+            List<User> users = userRepository.findAll();
+            return new ResponseEntity<>(users, HttpStatus.OK);
+        }
+
+        UserPage page = userRepository.findPage(cursor, pageSize(limit));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.users());
+    }
+
+    @GetMapping("/count")
+    public ResponseEntity<Long> count() {
+        return ResponseEntity.ok(userRepository.count());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll(@RequestParam(value = "limit", required = false)
+                                                           Integer limit,
+                                                           @RequestParam(value = "filter", required = false)
+                                                           String filter,
+                                                           @RequestParam(value = "sort", required = false)
+                                                           String sort) {
+        if (filter == null && sort == null && limit == null) {
+            return ndjson(userRepository::streamAll);
+        }
+        // parsed before the response starts, so a bad filter is still an error status
+        UserQuery query = UserQuery.parse(filter, sort, limit);
+        return ndjson(() -> userRepository.query(query));
+    }
+
+    @GetMapping(produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        StreamingResponseBody body = out -> {
+            try (Stream<User> stream = userRepository.streamAll();
+                 SequenceWriter writer = UserCsv.writer().writeValues(out)) {
+                Iterator<User> iterator = stream.iterator();
+                for (int written = 1; iterator.hasNext(); written++) {
+                    writer.write(iterator.next());
+                    if (written % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
     }
 
     @GetMapping("/in-birth-date-range")
     public ResponseEntity<List<User>> getUsersInBirthDateRange(@RequestParam("dateFrom")
                                                LocalDate dateFrom,
                                                @RequestParam("dateTo")
-                                               LocalDate dateTo) {
-        List<User> users = userRepository.findUsersInBirthDateRange(dateFrom, dateTo);
+                                               LocalDate dateTo,
+                                               @RequestParam(value = "fromInclusive", defaultValue = "false")
+                                               boolean fromInclusive,
+                                               @RequestParam(value = "toInclusive", defaultValue = "false")
+                                               boolean toInclusive) {
+        List<User> users = userRepository.findUsersInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive);
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/in-birth-date-range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersInBirthDateRange(@RequestParam("dateFrom")
+                                               LocalDate dateFrom,
+                                               @RequestParam("dateTo")
+                                               LocalDate dateTo,
+                                               @RequestParam(value = "fromInclusive", defaultValue = "false")
+                                               boolean fromInclusive,
+                                               @RequestParam(value = "toInclusive", defaultValue = "false")
+                                               boolean toInclusive) {
+        return ndjson(() -> userRepository.streamUsersInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive));
+    }
+
+    @GetMapping("/in-birth-date-range/count")
+    public ResponseEntity<Long> countUsersInBirthDateRange(@RequestParam("dateFrom")
+                                               LocalDate dateFrom,
+                                               @RequestParam("dateTo")
+                                               LocalDate dateTo,
+                                               @RequestParam(value = "fromInclusive", defaultValue = "false")
+                                               boolean fromInclusive,
+                                               @RequestParam(value = "toInclusive", defaultValue = "false")
+                                               boolean toInclusive) {
+        return ResponseEntity.ok(userRepository.countInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive));
+    }
+
+    @GetMapping("/birthdays")
+    public ResponseEntity<List<User>> findByBirthday(@RequestParam("month") int month,
+                                                     @RequestParam("day") int day) {
+        return ResponseEntity.ok(userRepository.findByBirthday(monthDay(month, day)));
+    }
+
+    /**
+     * Users per age bracket on {@code date}, today by default, counted without reading
+     * any user.
+     */
+    @GetMapping("/age-histogram")
+    public ResponseEntity<List<AgeBucket>> ageHistogram(@RequestParam(value = "date", required = false)
+                                                        LocalDate date,
+                                                        @RequestParam(value = "width", defaultValue = "10")
+                                                        int width,
+                                                        @RequestParam(value = "maxAge", defaultValue = "100")
+                                                        int maxAge) {
+        return ResponseEntity.ok(userRepository.ageHistogram(date == null ? LocalDate.now() : date,
+                width, maxAge));
+    }
+
+    @GetMapping(value = "/search", params = "phone")
+    public ResponseEntity<List<User>> findByPhone(@RequestParam("phone") String phone) {
+        return ResponseEntity.ok(userRepository.findByPhone(phone));
+    }
+
+    @GetMapping(value = "/search", params = "lastName")
+    public ResponseEntity<List<User>> findByLastName(@RequestParam("lastName") String lastName) {
+        return ResponseEntity.ok(userRepository.findByLastName(lastName));
+    }
+
+    @GetMapping(value = "/search", params = "namePrefix")
+    public ResponseEntity<List<User>> findByNamePrefix(@RequestParam("namePrefix") String namePrefix,
+                                                       @RequestParam(value = "limit", required = false)
+                                                       Integer limit) {
+        return ResponseEntity.ok(userRepository.findByNamePrefix(namePrefix, pageSize(limit)));
+    }
+
     @PostMapping()
     public ResponseEntity<User> createUser(@RequestBody @Valid User user) {
         User newUser = userRepository.save(user);
-        return new ResponseEntity<>(newUser, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(UserETags.of(newUser)).body(newUser);
     }
 
     @PutMapping("/{email}")
     public ResponseEntity<User> updateEntireUser(@RequestBody @Valid User user,
-                                                 @PathVariable("email") String email) {
-        User updatedUser = userRepository.update(email, user);
-        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+                                                 @PathVariable("email") String email,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                 String ifMatch) {
+        User updatedUser = userRepository.update(email, user, UserETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(UserETags.of(updatedUser)).body(updatedUser);
     }
 
     @PatchMapping("/{email}")
     public ResponseEntity<User> updatePartialUser(@RequestBody User user,
-                                                  @PathVariable("email") String email) {
-        User updatedUser = userRepository.patchUser(email, user);
+                                                  @PathVariable("email") String email,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch) {
+        User updatedUser = userRepository.patchUser(email, user, UserETags.expectedVersion(ifMatch));
 
-        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(UserETags.of(updatedUser)).body(updatedUser);
     }
 
     @DeleteMapping("/{email}")
@@ -66,4 +241,38 @@ public class UserController {
         return new ResponseEntity<>("User with email " + email + " was deleted",
                 HttpStatus.OK);
     }
+
+    static MonthDay monthDay(int month, int day) {
+        try {
+            return MonthDay.of(month, day);
+        } catch (DateTimeException e) {
+            throw new UserValidationException(e.getMessage());
+        }
+    }
+
+    static int pageSize(Integer limit) {
+        return limit == null ? MAX_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    }
+
+    // writes one JSON document per line straight from the repository stream, never
+    // holding more than the current user in memory
+    private ResponseEntity<StreamingResponseBody> ndjson(Supplier<Stream<User>> users) {
+        ObjectWriter writer = mapper.writerFor(User.class);
+        StreamingResponseBody body = out -> {
+            try (Stream<User> stream = users.get()) {
+                Iterator<User> iterator = stream.iterator();
+                for (int written = 1; iterator.hasNext(); written++) {
+                    out.write(writer.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                    if (written % FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
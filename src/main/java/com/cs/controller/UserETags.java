@@ -0,0 +1,48 @@
+package com.cs.controller;
+
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+
+/**
+ * Strong entity tags derived from the user's version, shared by both controllers. A GET
+ * whose {@code If-None-Match} carries the current tag is answered with 304 by the
+ * framework before the body is written; an {@code If-Match} on PUT or PATCH becomes the
+ * expected version of the repository's compare-and-set.
+ */
+final class UserETags {
+
+    private UserETags() {
+    }
+
+    static String of(User user) {
+        return "\"" + user.getVersion() + "\"";
+    }
+
+    /**
+     * The version an {@code If-Match} header requires, or {@link UserRepository#ANY_VERSION}
+     * when there is no header or it is {@code *}. Weak tags and tags this service never
+     * issued can never match, so they fail the precondition.
+     */
+    static long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return UserRepository.ANY_VERSION;
+        }
+        String tag = ifMatch.trim();
+        if (tag.indexOf(',') >= 0) {
+            throw new UserValidationException("If-Match with more than one entity tag is not supported");
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                long version = Long.parseLong(tag, 1, tag.length() - 1, 10);
+                if (version > 0) {
+                    return version;
+                }
+            } catch (NumberFormatException ignored) {
+                // not one of ours, falls through to the failed precondition
+            }
+        }
+        throw new UserVersionConflictException("Entity tag " + tag + " does not match any version");
+    }
+}
@@ -0,0 +1,48 @@
+package com.cs.controller;
+
+import com.cs.events.UserChangeEvent;
+import com.cs.events.UserChangeLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.Locale;
+
+/**
+ * Server-Sent Events stream of user changes, served by both web stacks. Each event's id
+ * is its sequence, so a reconnecting {@code EventSource} resumes through
+ * {@code Last-Event-ID}; other clients pass {@code after}. Without either the stream
+ * starts with the next change. A {@code reset} event means changes were missed: reload
+ * the users and reconnect after the reset's id; a sequence the log never had, negative or
+ * ahead of the latest change, gets one too.
+ */
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class UserEventController {
+
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final UserChangeLog changeLog;
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<UserChangeEvent>> events(@RequestParam(value = "after", required = false)
+                                                         Long after,
+                                                         @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false)
+                                                         Long lastEventId) {
+        long sequence = after != null ? after
+                : lastEventId != null ? lastEventId
+                : changeLog.lastSequence();
+
+        return changeLog.events(sequence).map(event -> ServerSentEvent.builder(event)
+                .id(Long.toString(event.sequence()))
+                .event(event.type().name().toLowerCase(Locale.ROOT))
+                .build());
+    }
+}
@@ -0,0 +1,8 @@
+package com.cs.dto;
+
+/**
+ * Users aged at least {@code fromAge} and below {@code toAge} whole years; {@code toAge} is
+ * {@code null} for the last bracket, which has no upper bound.
+ */
+public record AgeBucket(int fromAge, Integer toAge, long count) {
+}
@@ -0,0 +1,44 @@
+package com.cs.dto;
+
+import com.cs.entity.User;
+import com.cs.query.UserQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+
+/**
+ * Non-blocking view of {@link UserRepository}. Multi-user reads are demand-driven
+ * {@link Flux}es that pull from the store only as fast as the subscriber requests.
+ */
+public interface ReactiveUserRepository {
+
+    Mono<User> findByEmail(String email);
+
+    /**
+     * Completes empty instead of with an error when there is no such user.
+     */
+    Mono<User> findOptionalByEmail(String email);
+    Flux<User> findAll();
+    Mono<Long> count();
+    Mono<UserPage> findPage(String cursor, int limit);
+    Flux<User> findByPhone(String phone);
+    Flux<User> findByLastName(String lastName);
+    Flux<User> findByNamePrefix(String prefix, int limit);
+    Mono<User> save(User user);
+    Mono<List<UserBatchResult>> saveAll(List<User> users);
+    Mono<User> restore(User user);
+    Mono<User> update(String email, User user, long expectedVersion);
+    Mono<User> patchUser(String email, User newUser, long expectedVersion);
+    Mono<Void> deleteByEmail(String email);
+    Mono<Void> deleteAll();
+    Flux<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                         LocalDate dateTo, boolean toInclusive);
+    Flux<User> findByBirthday(MonthDay day);
+    Mono<Long> countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                     LocalDate dateTo, boolean toInclusive);
+    Mono<List<AgeBucket>> ageHistogram(LocalDate date, int width, int maxAge);
+    Flux<User> query(UserQuery query);
+}
@@ -0,0 +1,166 @@
+package com.cs.dto;
+
+import com.cs.entity.User;
+import com.cs.query.UserQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Adapts the selected {@link UserRepository} backend. Reads and writes run on the
+ * subscribing thread when the repository says they do not block, and on the
+ * bounded-elastic scheduler when they may: a durable write waits for its log sync, a
+ * queued write for its batch to commit, and a sharded read or write for remote shards.
+ */
+@Component
+public class ReactiveUserRepositoryImpl implements ReactiveUserRepository {
+
+    private final UserRepository repository;
+    private final Scheduler readScheduler;
+    private final Scheduler writeScheduler;
+
+    @Autowired
+    public ReactiveUserRepositoryImpl(UserRepository repository) {
+        this(repository, scheduler(repository.readsBlock()), scheduler(repository.writesBlock()));
+    }
+
+    public ReactiveUserRepositoryImpl(UserRepository repository, Scheduler readScheduler, Scheduler writeScheduler) {
+        this.repository = repository;
+        this.readScheduler = readScheduler;
+        this.writeScheduler = writeScheduler;
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return read(() -> repository.findByEmail(email));
+    }
+
+    @Override
+    public Mono<User> findOptionalByEmail(String email) {
+        return Mono.defer(() -> Mono.justOrEmpty(repository.findOptionalByEmail(email))).subscribeOn(readScheduler);
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return stream(repository::streamAll);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return read(repository::count);
+    }
+
+    @Override
+    public Mono<UserPage> findPage(String cursor, int limit) {
+        return read(() -> repository.findPage(cursor, limit));
+    }
+
+    @Override
+    public Flux<User> findByPhone(String phone) {
+        return readMany(() -> repository.findByPhone(phone));
+    }
+
+    @Override
+    public Flux<User> findByLastName(String lastName) {
+        return readMany(() -> repository.findByLastName(lastName));
+    }
+
+    @Override
+    public Flux<User> findByNamePrefix(String prefix, int limit) {
+        return readMany(() -> repository.findByNamePrefix(prefix, limit));
+    }
+
+    @Override
+    public Mono<User> save(User user) {
+        return write(() -> repository.save(user));
+    }
+
+    @Override
+    public Mono<List<UserBatchResult>> saveAll(List<User> users) {
+        return write(() -> repository.saveAll(users));
+    }
+
+    @Override
+    public Mono<User> restore(User user) {
+        return write(() -> repository.restore(user));
+    }
+
+    @Override
+    public Mono<User> update(String email, User user, long expectedVersion) {
+        return write(() -> repository.update(email, user, expectedVersion));
+    }
+
+    @Override
+    public Mono<User> patchUser(String email, User newUser, long expectedVersion) {
+        return write(() -> repository.patchUser(email, newUser, expectedVersion));
+    }
+
+    @Override
+    public Mono<Void> deleteByEmail(String email) {
+        return Mono.<Void>fromRunnable(() -> repository.deleteByEmail(email)).subscribeOn(writeScheduler);
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.<Void>fromRunnable(repository::deleteAll).subscribeOn(writeScheduler);
+    }
+
+    @Override
+    public Flux<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        return stream(() -> repository.streamUsersInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive));
+    }
+
+    @Override
+    public Flux<User> findByBirthday(MonthDay day) {
+        return readMany(() -> repository.findByBirthday(day));
+    }
+
+    @Override
+    public Mono<Long> countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                            LocalDate dateTo, boolean toInclusive) {
+        return read(() -> repository.countInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive));
+    }
+
+    @Override
+    public Mono<List<AgeBucket>> ageHistogram(LocalDate date, int width, int maxAge) {
+        return read(() -> repository.ageHistogram(date, width, maxAge));
+    }
+
+    @Override
+    public Flux<User> query(UserQuery query) {
+        return stream(() -> repository.query(query));
+    }
+
+    private <T> Mono<T> read(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(readScheduler);
+    }
+
+    private <T> Flux<T> readMany(Supplier<? extends Iterable<T>> call) {
+        return Flux.defer(() -> Flux.fromIterable(call.get())).subscribeOn(readScheduler);
+    }
+
+    private <T> Flux<T> stream(Supplier<Stream<? extends T>> call) {
+        return Flux.fromStream(call).subscribeOn(readScheduler);
+    }
+
+    private <T> Mono<T> write(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(writeScheduler);
+    }
+
+    private static Scheduler scheduler(boolean blocking) {
+        return blocking ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+}
@@ -0,0 +1,30 @@
+package com.cs.dto;
+
+/**
+ * Outcome of one row of a bulk insert. {@code row} is the position of the row in its
+ * input, {@code message} explains why a row was not created.
+ */
+public record UserBatchResult(int row, String email, Outcome outcome, String message) {
+
+    public enum Outcome {
+        CREATED,
+        INVALID,
+        CONFLICT
+    }
+
+    public static UserBatchResult created(int row, String email) {
+        return new UserBatchResult(row, email, Outcome.CREATED, null);
+    }
+
+    public static UserBatchResult invalid(int row, String email, String message) {
+        return new UserBatchResult(row, email, Outcome.INVALID, message);
+    }
+
+    public static UserBatchResult conflict(int row, String email) {
+        return new UserBatchResult(row, email, Outcome.CONFLICT, "User with email " + email + " already exists");
+    }
+
+    public UserBatchResult withRow(int row) {
+        return new UserBatchResult(row, email, outcome, message);
+    }
+}
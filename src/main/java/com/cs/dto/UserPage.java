@@ -0,0 +1,13 @@
+package com.cs.dto;
+
+import com.cs.entity.User;
+
+import java.util.List;
+
+/**
+ * One page of users in the backend's scan order (email order for the heap and durable
+ * stores, row order off-heap). {@code nextCursor} is passed back to fetch the
+ * following page and is {@code null} on the last page.
+ */
+public record UserPage(List<User> users, String nextCursor) {
+}
@@ -1,18 +1,156 @@
 package com.cs.dto;
 
 import com.cs.entity.User;
+import com.cs.exception.user.UserValidationException;
+import com.cs.query.UserQuery;
 
 import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository {
 
+    /**
+     * Bean name of the storage backend selected by {@code user.store.backend}; the
+     * repository everything else injects wraps it.
+     */
+    String BACKEND = "userBackend";
+
+    /**
+     * Expected version that skips the version check of {@link #update(String, User, long)}
+     * and {@link #patchUser(String, User, long)}.
+     */
+    long ANY_VERSION = -1;
+
+    /**
+     * Highest {@code maxAge} of {@link #ageHistogram(LocalDate, int, int)}.
+     */
+    int MAX_HISTOGRAM_AGE = 200;
+
     User findByEmail(String email);
+
+    /**
+     * Like {@link #findByEmail(String)}, but a missing user is an empty result rather than
+     * an exception, for callers that expect misses.
+     */
+    Optional<User> findOptionalByEmail(String email);
     List<User> findAll();
+    long count();
+    UserPage findPage(String cursor, int limit);
+    Stream<User> streamAll();
+    List<User> findByPhone(String phone);
+    List<User> findByLastName(String lastName);
+    List<User> findByNamePrefix(String prefix, int limit);
     User save(User user);
-    User update(String email, User user);
-    User patchUser(String email, User newUser);
+    List<UserBatchResult> saveAll(List<User> users);
+
+    /**
+     * Creates the user at the version it carries rather than at version 1, and fails like
+     * {@link #save} when the email is taken. For moving a stored user from one store to
+     * another without resetting the version its entity tags are derived from.
+     */
+    User restore(User user);
+
+    /**
+     * Replaces the user stored under {@code email} if its version is still
+     * {@code expectedVersion}, and throws
+     * {@link com.cs.exception.user.UserVersionConflictException} otherwise.
+     */
+    User update(String email, User user, long expectedVersion);
+
+    /**
+     * Patches the user stored under {@code email} if its version is still
+     * {@code expectedVersion}, and throws
+     * {@link com.cs.exception.user.UserVersionConflictException} otherwise.
+     */
+    User patchUser(String email, User newUser, long expectedVersion);
+
+    /**
+     * Runs mutations of the calling thread so the backend can commit them together. A
+     * durable backend makes the whole batch durable with one flush after the last of them
+     * rather than one per mutation; each mutation still applies, and fails, on its own.
+     * Backends without such a commit just run them.
+     */
+    default void inBatch(Runnable mutations) {
+        mutations.run();
+    }
+
+    /**
+     * Whether reads may block the calling thread on I/O, such as a call to another node.
+     * Callers on an event loop run blocking reads elsewhere.
+     */
+    default boolean readsBlock() {
+        return false;
+    }
+
+    /**
+     * Whether writes may block the calling thread, on I/O such as a log sync or a call to
+     * another node, or while another thread commits them. Callers on an event loop run
+     * blocking writes elsewhere.
+     */
+    default boolean writesBlock() {
+        return false;
+    }
+
     void deleteByEmail(String email);
     void deleteAll();
-    List<User> findUsersInBirthDateRange(LocalDate dateFrom, LocalDate dateTo);
+    List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                         LocalDate dateTo, boolean toInclusive);
+
+    Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                             LocalDate dateTo, boolean toInclusive);
+
+    /**
+     * Users whose birthday is {@code day}, in any year, ordered by email.
+     */
+    List<User> findByBirthday(MonthDay day);
+
+    /**
+     * How many users were born in the range, without reading them.
+     */
+    long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                               LocalDate dateTo, boolean toInclusive);
+
+    /**
+     * Users per age on {@code date} in brackets of {@code width} years from 0 up to
+     * {@code maxAge}, then one bracket for {@code maxAge} and older. Each bracket is a
+     * birth-date range, counted by {@link #countInBirthDateRange}.
+     */
+    default List<AgeBucket> ageHistogram(LocalDate date, int width, int maxAge) {
+        if (width < 1 || maxAge < 0 || maxAge > MAX_HISTOGRAM_AGE) {
+            throw new UserValidationException("Age brackets need a positive width and a maximum age from 0 to " +
+                                              MAX_HISTOGRAM_AGE);
+        }
+        List<AgeBucket> buckets = new ArrayList<>();
+        for (int fromAge = 0; fromAge < maxAge; fromAge += width) {
+            int toAge = Math.min(fromAge + width, maxAge);
+            // aged fromAge on date: born after date - (fromAge + 1) years, up to date - fromAge years
+            long count = countInBirthDateRange(date.minusYears(toAge), false, date.minusYears(fromAge), true);
+            buckets.add(new AgeBucket(fromAge, toAge, count));
+        }
+        buckets.add(new AgeBucket(maxAge, null,
+                countInBirthDateRange(LocalDate.MIN, true, date.minusYears(maxAge), true)));
+        return buckets;
+    }
+
+    /**
+     * Users matching the query, read through an index where one applies and otherwise by
+     * a scan; nothing is read until the stream is consumed.
+     */
+    Stream<User> query(UserQuery query);
+
+    default User update(String email, User user) {
+        return update(email, user, ANY_VERSION);
+    }
+
+    default User patchUser(String email, User newUser) {
+        return patchUser(email, newUser, ANY_VERSION);
+    }
+
+    default List<User> findUsersInBirthDateRange(LocalDate dateFrom, LocalDate dateTo) {
+        return findUsersInBirthDateRange(dateFrom, false, dateTo, false);
+    }
 }
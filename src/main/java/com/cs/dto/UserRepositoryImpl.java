@@ -4,120 +4,429 @@ import com.cs.entity.User;
 import com.cs.exception.user.UserAlreadyExistsException;
 import com.cs.exception.user.UserNotFoundException;
 import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
 import com.cs.patcher.UserPatcher;
-import jakarta.validation.Valid;
+import com.cs.query.IndexScan;
+import com.cs.query.UserAccessPaths;
+import com.cs.query.UserField;
+import com.cs.query.UserPredicate;
+import com.cs.query.UserQuery;
+import com.cs.query.UserQueryPlanner;
+import com.cs.query.UserSort;
+import com.cs.store.BirthDateCounter;
+import com.cs.store.BirthDateIndex;
+import com.cs.store.BirthdayIndex;
+import com.cs.store.EmailIndex;
+import com.cs.store.EmailKeys;
+import com.cs.store.HashUserIndex;
+import com.cs.store.NamePrefixIndex;
+import com.cs.store.StripedUserStore;
+import com.cs.store.UserMutationListener;
+import com.cs.store.UserMutationSource;
+import com.cs.store.UserScanPool;
+import com.cs.validation.UserValidationPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
+import java.time.MonthDay;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-@Repository
-public class UserRepositoryImpl implements UserRepository{
+@Repository(UserRepository.BACKEND)
+@ConditionalOnProperty(name = "user.store.backend", havingValue = "heap", matchIfMissing = true)
+public class UserRepositoryImpl implements UserRepository, UserMutationSource{
 
-    private final Environment env;
-    private Map<String, User> users;
+    private static final List<UserSort> EMAIL_ORDER = UserSort.complete(List.of());
+    private static final List<UserSort> BIRTH_DATE_ORDER =
+            UserSort.complete(List.of(UserSort.ascending(UserField.BIRTH_DATE)));
+
+    private final UserValidationPolicy validationPolicy;
+    private final StripedUserStore users;
+    private final BirthDateIndex birthDates;
+    private final BirthDateCounter birthDateCounts;
+    private final BirthdayIndex birthdays;
+    private final EmailIndex emails;
+    private final HashUserIndex phones;
+    private final HashUserIndex lastNames;
+    private final NamePrefixIndex names;
+    private final UserAccessPaths accessPaths = new HeapAccessPaths();
+
+    private final UserScanPool scanPool;
 
     private UserPatcher patcher;
 
+    public UserRepositoryImpl(UserValidationPolicy validationPolicy, UserPatcher patcher){
+        this(validationPolicy, patcher, new UserScanPool());
+    }
+
     @Autowired
-    public UserRepositoryImpl(Environment env, UserPatcher patcher){
-         users = new HashMap<>();
-         this.env = env;
+    public UserRepositoryImpl(UserValidationPolicy validationPolicy, UserPatcher patcher,
+                              @Value("${user.scan.parallelism:0}") int scanParallelism,
+                              @Value("${user.scan.parallel-threshold:" + UserScanPool.DEFAULT_THRESHOLD + "}")
+                              int parallelThreshold){
+        this(validationPolicy, patcher, new UserScanPool(scanParallelism, parallelThreshold));
+    }
+
+    public UserRepositoryImpl(UserValidationPolicy validationPolicy, UserPatcher patcher, UserScanPool scanPool){
+         birthDates = new BirthDateIndex();
+         birthDateCounts = new BirthDateCounter();
+         birthdays = new BirthdayIndex();
+         emails = new EmailIndex();
+         phones = new HashUserIndex(User::getPhone);
+         lastNames = new HashUserIndex(User::getLastName);
+         names = new NamePrefixIndex();
+         users = new StripedUserStore(birthDates, birthDateCounts, birthdays, emails, phones, lastNames,
+                 names);
+         this.validationPolicy = validationPolicy;
          this.patcher = patcher;
+         this.scanPool = scanPool;
     }
 
     @Override
     public User findByEmail(String email) {
-        if(!isUserExists(email)){
+        User user = users.get(email);
+        if(user == null){
             throw new UserNotFoundException("User with email " +
                     email +
                     " was not found");
         }
 
-        return users.get(email);
+        return user;
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        return Optional.ofNullable(users.get(email));
     }
 
     @Override
     public List<User> findAll() {
-        return users.values().stream().toList();
+        return users.values(scanPool);
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        List<User> page = emails.streamAfter(cursor)
+                .limit(limit + 1L)
+                .toList();
+        if(page.size() <= limit){
+            return new UserPage(page, null);
+        }
+
+        List<User> users = page.subList(0, limit);
+        return new UserPage(users, users.get(limit - 1).getEmail());
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return emails.streamAfter(null);
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return phones.find(phone);
     }
 
     @Override
-    public User save(User user){
+    public List<User> findByLastName(String lastName) {
+        return lastNames.find(lastName);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return names.findByPrefix(prefix, limit);
+    }
+
+    @Override
+    public User save(User newUser){
+        return create(newUser, 1);
+    }
+
+    @Override
+    public User restore(User user){
+        if(user.getVersion() < 1){
+            throw new UserValidationException("A restored user needs a version of at least 1");
+        }
+        return create(user, user.getVersion());
+    }
+
+    private User create(User newUser, long version){
+        User user = EmailKeys.canonical(newUser);
         if(isUserExists(user.getEmail())){
-            throw new UserAlreadyExistsException("User with email " +
-                                                user.getEmail() +
-                                                " already exists");
+            throw alreadyExists(user.getEmail());
         }
         validateUser(user);
-        users.put(user.getEmail(), user);
 
-        return user;
+        return users.withLock(user.getEmail(), () -> {
+            if(isUserExists(user.getEmail())){
+                throw alreadyExists(user.getEmail());
+            }
+            User stored = user.withVersion(version);
+            users.put(stored);
+
+            return stored;
+        });
+    }
+
+    /**
+     * Validates all users in parallel outside of any lock, then inserts the valid ones
+     * taking each segment lock once for all users that fall into it. Results are in
+     * input order; a later duplicate of an email in the same batch is a conflict.
+     */
+    @Override
+    public List<UserBatchResult> saveAll(List<User> newUsers) {
+        List<User> batch = newUsers.stream().map(EmailKeys::canonical).toList();
+        UserBatchResult[] results = new UserBatchResult[batch.size()];
+        IntStream.range(0, batch.size()).parallel().forEach(row -> {
+            String error = validationError(batch.get(row));
+            if(error != null){
+                results[row] = UserBatchResult.invalid(row, batch.get(row).getEmail(), error);
+            }
+        });
+
+        List<List<Integer>> rowsBySegment = new ArrayList<>(users.segmentCount());
+        for(int segment = 0; segment < users.segmentCount(); segment++){
+            rowsBySegment.add(new ArrayList<>());
+        }
+        for(int row = 0; row < batch.size(); row++){
+            if(results[row] == null){
+                rowsBySegment.get(users.segmentOf(batch.get(row).getEmail())).add(row);
+            }
+        }
+
+        for(int segment = 0; segment < rowsBySegment.size(); segment++){
+            List<Integer> rows = rowsBySegment.get(segment);
+            if(rows.isEmpty()){
+                continue;
+            }
+            users.withSegmentLock(segment, () -> {
+                for(int row : rows){
+                    User user = batch.get(row);
+                    if(isUserExists(user.getEmail())){
+                        results[row] = UserBatchResult.conflict(row, user.getEmail());
+                    }else{
+                        users.put(user.withVersion(1));
+                        results[row] = UserBatchResult.created(row, user.getEmail());
+                    }
+                }
+                return null;
+            });
+        }
+
+        return List.of(results);
     }
 
     @Override
-    public User update(String email, User user) {
+    public User update(String currentEmail, User newUser, long expectedVersion) {
+        String email = EmailKeys.canonical(currentEmail);
+        User user = EmailKeys.canonical(newUser);
         validateUser(user);
-        users.remove(email);
-        users.put(user.getEmail(), user);
 
-        return user;
+        return users.withLocks(email, user.getEmail(), () -> {
+            checkVersion(email, users.get(email), expectedVersion);
+
+            if(!user.getEmail().equals(email) && isUserExists(user.getEmail())){
+                throw alreadyExists(user.getEmail());
+            }
+            return replace(email, user);
+        });
     }
 
     @Override
-    public User patchUser(String email, User newUser) {
-        User existingUser = findByEmail(email);
-        try{
-            newUser = patcher.patch(existingUser, newUser);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e.getMessage());
-        }
+    public User patchUser(String currentEmail, User newUser, long expectedVersion) {
+        String email = EmailKeys.canonical(currentEmail);
+        String targetEmail = newUser.getEmail() != null ? EmailKeys.canonical(newUser.getEmail()) : email;
+
+        return users.withLocks(email, targetEmail, () -> {
+            User existingUser = findByEmail(email);
+            checkVersion(email, existingUser, expectedVersion);
+            User patchedUser = EmailKeys.canonical(patcher.patch(existingUser, newUser));
 
-        users.remove(email);
+            if(!targetEmail.equals(email) && isUserExists(targetEmail)){
+                throw alreadyExists(targetEmail);
+            }
+            validateUser(patchedUser);
 
-        return save(newUser);
+            return replace(email, patchedUser);
+        });
+    }
+
+    @Override
+    public void inBatch(Runnable mutations) {
+        users.inBatch(mutations);
     }
 
     @Override
     public void deleteByEmail(String email) {
-        if(!isUserExists(email)){
-            throw new UserNotFoundException("User with email " +
-                                            email +
-                                            " was not found");
-        }
-        users.remove(email);
+        users.withLock(email, () -> {
+            if(users.remove(email) == null){
+                throw new UserNotFoundException("User with email " +
+                                                email +
+                                                " was not found");
+            }
+            return null;
+        });
     }
 
     @Override
     public void deleteAll() {
-        users.clear();
+        users.withAllLocks(users::clear);
     }
 
 
     @Override
-    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, LocalDate dateTo) {
-        return users.values().stream()
-                .filter(user -> user.getBirthDate().isAfter(dateFrom)
-                        && user.getBirthDate().isBefore(dateTo))
-                .toList();
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        if(scanPool.parallel(countInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive))){
+            return birthDates.findInRange(dateFrom, fromInclusive, dateTo, toInclusive, scanPool);
+        }
+        return birthDates.findInRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return birthDates.streamRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        return birthdays.find(day);
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return birthDateCounts.count(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public Stream<User> query(UserQuery query) {
+        return plan(query).execute();
+    }
+
+    public UserQueryPlanner.QueryPlan plan(UserQuery query){
+        return UserQueryPlanner.plan(query, accessPaths);
     }
 
     private void validateUser(User user){
-        int minAge = Integer.parseInt(env.getProperty("user.properties.min-age"));
+        String error = validationError(user);
+        if(error != null){
+            throw new UserValidationException(error);
+        }
+    }
+
+    private String validationError(User user){
+        return validationPolicy.validationError(user);
+    }
+
+    // publishes the next version of the user stored under email; the new user is stored
+    // before the old email is dropped, so neither lock-free readers nor mutation listeners
+    // ever observe the user missing
+    private User replace(String email, User user){
+        User previous = users.get(email);
+        User stored = user.withVersion(previous == null ? 1 : previous.getVersion() + 1);
+        users.put(stored);
+        if(!email.equals(user.getEmail())){
+            users.remove(email);
+        }
+
+        return stored;
+    }
 
-        if(user.getBirthDate().isAfter(LocalDate.now().minusDays(1))){
-            throw new UserValidationException("Invalid birth date");
-        }else if(ChronoUnit.YEARS.between(user.getBirthDate(), LocalDate.now()) < minAge){
-            throw new UserValidationException("User must be 18 years old");
+    private static void checkVersion(String email, User current, long expectedVersion){
+        if(expectedVersion != ANY_VERSION && (current == null || current.getVersion() != expectedVersion)){
+            throw new UserVersionConflictException("User with email " +
+                                                   email +
+                                                   " is not at version " +
+                                                   expectedVersion);
         }
     }
 
+    private static UserAlreadyExistsException alreadyExists(String email){
+        return new UserAlreadyExistsException("User with email " +
+                                            email +
+                                            " already exists");
+    }
+
+    // the ordered indexes answer email and birth-date intervals and name prefixes, the hash
+    // indexes equality on phone and last name; a first name is found by its prefix
+    private final class HeapAccessPaths implements UserAccessPaths{
+
+        @Override
+        public long size() {
+            return users.size();
+        }
+
+        @Override
+        public Stream<User> scan() {
+            return users.parallelStream();
+        }
+
+        @Override
+        public IndexScan index(UserPredicate.Condition condition, long budget) {
+            if(condition instanceof UserPredicate.Equal equal){
+                return switch(equal.field()){
+                    case EMAIL -> IndexScan.unordered("email",
+                            Stream.ofNullable(users.get((String) equal.value())).toList());
+                    case PHONE -> IndexScan.unordered("phone", phones.find((String) equal.value()));
+                    case LAST_NAME -> IndexScan.unordered("lastName", lastNames.find((String) equal.value()));
+                    case FIRST_NAME -> IndexScan.counted("namePrefix", List.of(),
+                            () -> names.streamByPrefix((String) equal.value()), budget);
+                    case BIRTH_DATE -> birthDateRange((LocalDate) equal.value(), true, (LocalDate) equal.value(), true);
+                    default -> null;
+                };
+            }
+            if(condition instanceof UserPredicate.Prefix prefix){
+                return switch(prefix.field()){
+                    case EMAIL -> IndexScan.counted("email", EMAIL_ORDER,
+                            () -> emails.streamPrefix(prefix.prefix()), budget);
+                    case FIRST_NAME, LAST_NAME -> IndexScan.counted("namePrefix", List.of(),
+                            () -> names.streamByPrefix(prefix.prefix()), budget);
+                    default -> null;
+                };
+            }
+            UserPredicate.Range range = (UserPredicate.Range) condition;
+            return switch(range.field()){
+                case EMAIL -> IndexScan.counted("email", EMAIL_ORDER, () -> emails.streamRange((String) range.from(),
+                        range.fromInclusive(), (String) range.to(), range.toInclusive()), budget);
+                case BIRTH_DATE -> birthDateRange(
+                        range.from() == null ? LocalDate.MIN : (LocalDate) range.from(),
+                        range.from() == null || range.fromInclusive(),
+                        range.to() == null ? LocalDate.MAX : (LocalDate) range.to(),
+                        range.to() == null || range.toInclusive());
+                default -> null;
+            };
+        }
+
+        // counted exactly without reading a user
+        private IndexScan birthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive){
+            return new IndexScan("birthDate", birthDateCounts.count(from, fromInclusive, to, toInclusive),
+                    BIRTH_DATE_ORDER, () -> birthDates.streamRange(from, fromInclusive, to, toInclusive));
+        }
+    }
+
+    @Override
+    public void addMutationListener(UserMutationListener listener){
+        users.addListener(listener);
+    }
+
+    protected StripedUserStore store(){
+        return users;
+    }
+
     public boolean isUserExists(String email){
-        return users.containsKey(email);
+        return users.contains(email);
     }
 }
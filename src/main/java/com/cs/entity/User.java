@@ -1,34 +1,54 @@
 package com.cs.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
-import org.springframework.context.annotation.Primary;
+import lombok.extern.jackson.Jacksonized;
 
 import java.time.LocalDate;
 
+/**
+ * Immutable user. The store never changes a stored instance: every write publishes a new
+ * one with a higher {@link #getVersion() version}, so a reference handed out is a
+ * consistent snapshot that can be read without locks. Patches are users whose null fields
+ * mean "unchanged".
+ */
 @AllArgsConstructor
-@NoArgsConstructor
+@Builder(toBuilder = true)
+@Jacksonized
 @Getter
-@Setter
+@EqualsAndHashCode(exclude = "version")
 @ToString
 public class User {
 
     @Email
     @NotNull
-    private String email;
+    private final String email;
 
     @NotNull
-    private String firstName;
+    private final String firstName;
 
     @NotNull
-    private String lastName;
+    private final String lastName;
 
     @NotNull
-    private LocalDate birthDate;
+    private final LocalDate birthDate;
 
-    private String address;
+    private final String address;
 
-    private String phone;
+    private final String phone;
 
+    /**
+     * Assigned by the store: 1 on creation, incremented on every change, 0 for a user that
+     * was never stored.
+     */
+    @With
+    @JsonIgnore
+    private final long version;
+
+    public User(String email, String firstName, String lastName, LocalDate birthDate,
+                String address, String phone) {
+        this(email, firstName, lastName, birthDate, address, phone, 0);
+    }
 }
@@ -0,0 +1,25 @@
+package com.cs.events;
+
+import com.cs.entity.User;
+
+/**
+ * One change to the store, numbered in the order changes were applied. {@code user} is the
+ * stored user for {@link Type#CREATED} and {@link Type#UPDATED}, the removed one for
+ * {@link Type#DELETED}, and {@code null} otherwise.
+ */
+public record UserChangeEvent(long sequence, Type type, String email, User user) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /** Every user was removed. */
+        CLEARED,
+        /**
+         * Sent instead of further changes when the consumer fell so far behind, or asked
+         * to resume from so unknown a sequence, that changes in between are lost. The
+         * consumer should reconnect after {@code sequence} and reload the users.
+         */
+        RESET
+    }
+}
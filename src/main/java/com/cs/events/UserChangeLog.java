@@ -0,0 +1,190 @@
+package com.cs.events;
+
+import com.cs.entity.User;
+import com.cs.store.UserMutationListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Numbers every change of the store it listens to and keeps the latest ones in a ring of
+ * fixed capacity, so memory stays bounded however many changes happen. Consumers subscribe
+ * from any sequence still in the ring and then follow new changes as they are applied.
+ * <p>
+ * Writers take no lock: each claims the next sequence from a counter and writes its own
+ * slot, and a reader stops at the first slot whose change is not written yet. Delivery
+ * runs on one dispatcher thread and never
+ * pushes more than a subscriber requested, so a slow consumer holds back nobody else. It
+ * just falls behind, and once the changes it still needs were overwritten it gets a
+ * {@link UserChangeEvent.Type#RESET} and its stream completes.
+ */
+public class UserChangeLog implements UserMutationListener, Closeable {
+
+    private static final int DRAIN_BATCH = 256;
+
+    private final AtomicReferenceArray<UserChangeEvent> ring;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param capacity changes kept for resuming, rounded up to a power of two
+     */
+    public UserChangeLog(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        ring = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    @Override
+    public void onPut(User previous, User user) {
+        append(previous == null ? UserChangeEvent.Type.CREATED : UserChangeEvent.Type.UPDATED,
+                user.getEmail(), user);
+    }
+
+    @Override
+    public void onRemove(User removed) {
+        append(UserChangeEvent.Type.DELETED, removed.getEmail(), removed);
+    }
+
+    @Override
+    public void onClear() {
+        append(UserChangeEvent.Type.CLEARED, null, null);
+    }
+
+    // runs once the writer released its locks, so delivery never waits on a segment
+    @Override
+    public void afterUnlock() {
+        if (!subscribers.isEmpty() && dispatchPending.compareAndSet(false, true)) {
+            dispatch(this::drainAll);
+        }
+    }
+
+    /**
+     * Sequence of the latest change, 0 before the first one.
+     */
+    public long lastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * Changes after {@code sequence}, followed by every later change as it happens. The
+     * stream never completes on its own unless it ends with a reset.
+     */
+    public Flux<UserChangeEvent> events(long sequence) {
+        return Flux.create(sink -> {
+            Subscriber subscriber = new Subscriber(sink, sequence);
+            subscribers.add(subscriber);
+            sink.onDispose(() -> subscribers.remove(subscriber));
+            sink.onRequest(requested -> dispatch(() -> drain(subscriber)));
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.sink.complete());
+    }
+
+    // called under the writer's segment lock, so the changes of one user are numbered in
+    // the order they are applied
+    private void append(UserChangeEvent.Type type, String email, User user) {
+        long sequence = lastSequence.incrementAndGet();
+        ring.set((int) (sequence & mask), new UserChangeEvent(sequence, type, email, user));
+    }
+
+    /**
+     * Up to {@code max} changes after {@code sequence}, stopping before the first one
+     * whose writer has not filled its slot yet, or {@code null} if the ring no longer
+     * holds them all or never had them.
+     */
+    private List<UserChangeEvent> read(long sequence, int max) {
+        long last = lastSequence.get();
+        if (sequence < 0 || sequence > last || sequence < last - ring.length()) {
+            return null;
+        }
+        int count = (int) Math.min(max, last - sequence);
+        List<UserChangeEvent> events = new ArrayList<>(count);
+        for (long next = sequence + 1; next <= sequence + count; next++) {
+            UserChangeEvent event = ring.get((int) (next & mask));
+            if (event == null || event.sequence() < next) {
+                break;
+            }
+            if (event.sequence() > next) {
+                // lapped while reading
+                return null;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void drainAll() {
+        dispatchPending.set(false);
+        for (Subscriber subscriber : subscribers) {
+            drain(subscriber);
+        }
+    }
+
+    // only ever runs on the dispatcher thread, so a subscriber's cursor needs no guarding
+    private void drain(Subscriber subscriber) {
+        FluxSink<UserChangeEvent> sink = subscriber.sink;
+        while (!sink.isCancelled() && !subscriber.done && sink.requestedFromDownstream() > 0) {
+            List<UserChangeEvent> events = read(subscriber.cursor,
+                    (int) Math.min(sink.requestedFromDownstream(), DRAIN_BATCH));
+            if (events == null) {
+                subscriber.done = true;
+                sink.next(new UserChangeEvent(lastSequence(), UserChangeEvent.Type.RESET, null, null));
+                sink.complete();
+                return;
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            for (UserChangeEvent event : events) {
+                sink.next(event);
+                subscriber.cursor = event.sequence();
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            // closed, subscribers were completed
+        }
+    }
+
+    private static final class Subscriber {
+        private final FluxSink<UserChangeEvent> sink;
+        private long cursor;
+        private boolean done;
+
+        private Subscriber(FluxSink<UserChangeEvent> sink, long cursor) {
+            this.sink = sink;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.cs.exception;
+
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserErrorResponse;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.shard.ShardUnavailableException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+
+/**
+ * Same error responses as {@link RestExceptionHandler}, for the WebFlux stack.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRestExceptionHandler extends ResponseEntityExceptionHandler {
+
+    @ExceptionHandler(UserValidationException.class)
+    public ResponseEntity<UserErrorResponse> handleValidationException(Exception exc){
+        return error(HttpStatus.FORBIDDEN, exc);
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<UserErrorResponse> handleNotFoundException(Exception exc){
+        return error(HttpStatus.NOT_FOUND, exc);
+    }
+
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<UserErrorResponse> handleAlreadyExistsException(Exception exc){
+        return error(HttpStatus.CONFLICT, exc);
+    }
+
+    @ExceptionHandler(UserVersionConflictException.class)
+    public ResponseEntity<UserErrorResponse> handleVersionConflictException(Exception exc){
+        return error(HttpStatus.PRECONDITION_FAILED, exc);
+    }
+
+    @ExceptionHandler(ShardUnavailableException.class)
+    public ResponseEntity<UserErrorResponse> handleShardUnavailableException(Exception exc){
+        return error(HttpStatus.SERVICE_UNAVAILABLE, exc);
+    }
+
+    private static ResponseEntity<UserErrorResponse> error(HttpStatus status, Exception exc){
+        UserErrorResponse error = new UserErrorResponse(
+                status.value(),
+                exc.getMessage()
+        );
+
+        return new ResponseEntity<>(error, status);
+    }
+}
@@ -4,15 +4,17 @@ import com.cs.exception.user.UserAlreadyExistsException;
 import com.cs.exception.user.UserErrorResponse;
 import com.cs.exception.user.UserNotFoundException;
 import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.shard.ShardUnavailableException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import java.time.LocalDateTime;
-
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class RestExceptionHandler extends ResponseEntityExceptionHandler{
 
     @ExceptionHandler(UserValidationException.class)
@@ -20,8 +22,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler{
 
         UserErrorResponse error = new UserErrorResponse(
                 HttpStatus.FORBIDDEN.value(),
-                exc.getMessage(),
-                LocalDateTime.now().toString()
+                exc.getMessage()
         );
 
         return new ResponseEntity<>(error, HttpStatus.FORBIDDEN);
@@ -32,8 +33,7 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler{
 
         UserErrorResponse error = new UserErrorResponse(
                 HttpStatus.NOT_FOUND.value(),
-                exc.getMessage(),
-                LocalDateTime.now().toString()
+                exc.getMessage()
         );
 
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
@@ -44,11 +44,32 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler{
 
         UserErrorResponse error = new UserErrorResponse(
                 HttpStatus.CONFLICT.value(),
-                exc.getMessage(),
-                LocalDateTime.now().toString()
+                exc.getMessage()
         );
 
         return new ResponseEntity<>(error, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(UserVersionConflictException.class)
+    public ResponseEntity<UserErrorResponse> handleVersionConflictException(Exception exc){
+
+        UserErrorResponse error = new UserErrorResponse(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                exc.getMessage()
+        );
+
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(ShardUnavailableException.class)
+    public ResponseEntity<UserErrorResponse> handleShardUnavailableException(Exception exc){
+
+        UserErrorResponse error = new UserErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                exc.getMessage()
+        );
+
+        return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
 }
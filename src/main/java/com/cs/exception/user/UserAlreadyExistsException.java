@@ -1,6 +1,6 @@
 package com.cs.exception.user;
 
-public class UserAlreadyExistsException extends RuntimeException{
+public class UserAlreadyExistsException extends UserException{
     public UserAlreadyExistsException(String message) {
         super(message);
     }
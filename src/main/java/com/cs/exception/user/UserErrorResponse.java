@@ -5,14 +5,41 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 public class UserErrorResponse {
+    private static volatile Timestamp lastTimestamp = new Timestamp(Long.MIN_VALUE, null);
+
     private int status;
     private String message;
     private String timeStamp;
+
+    /**
+     * An error stamped with the current local time at millisecond precision. The formatted
+     * time is shared by all errors of the same millisecond, so a burst of errors formats it
+     * once.
+     */
+    public UserErrorResponse(int status, String message) {
+        this(status, message, now());
+    }
+
+    private static String now() {
+        long millis = System.currentTimeMillis();
+        Timestamp timestamp = lastTimestamp;
+        if (timestamp.millis() != millis) {
+            timestamp = new Timestamp(millis,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).toString());
+            lastTimestamp = timestamp;
+        }
+        return timestamp.text();
+    }
+
+    private record Timestamp(long millis, String text) {
+    }
 }
@@ -0,0 +1,12 @@
+package com.cs.exception.user;
+
+/**
+ * Base of the domain exceptions, which report expected outcomes such as a missing or
+ * duplicate user rather than bugs. They carry no stack trace and no suppressed exceptions,
+ * so throwing one costs about as much as allocating it.
+ */
+public abstract class UserException extends RuntimeException{
+    protected UserException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,6 +1,6 @@
 package com.cs.exception.user;
 
-public class UserValidationException extends RuntimeException{
+public class UserValidationException extends UserException{
     public UserValidationException(String message) {
         super(message);
     }
@@ -0,0 +1,7 @@
+package com.cs.exception.user;
+
+public class UserVersionConflictException extends UserException{
+    public UserVersionConflictException(String message) {
+        super(message);
+    }
+}
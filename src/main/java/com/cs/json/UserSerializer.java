@@ -0,0 +1,89 @@
+package com.cs.json;
+
+import com.cs.entity.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes users without bean introspection: field names are encoded once, and birth dates
+ * between 1900 and 2099 are formatted once per day and then reused, already quoted. The
+ * output is what the default bean serializer produces for {@link User}, nulls included,
+ * and birth dates follow {@link SerializationFeature#WRITE_DATES_AS_TIMESTAMPS} like
+ * {@code JavaTimeModule} does. Registered with the application's mapper by Spring Boot;
+ * CSV export keeps its own mapper.
+ */
+@JsonComponent
+public class UserSerializer extends StdSerializer<User> {
+
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+    private static final SerializedString BIRTH_DATE = new SerializedString("birthDate");
+    private static final SerializedString ADDRESS = new SerializedString("address");
+    private static final SerializedString PHONE = new SerializedString("phone");
+
+    private static final long FIRST_CACHED_DAY = LocalDate.of(1900, 1, 1).toEpochDay();
+    // filled lazily; racing writers store equal immutable values, so no synchronization
+    private static final SerializedString[] DATES =
+            new SerializedString[Math.toIntExact(LocalDate.of(2100, 1, 1).toEpochDay() - FIRST_CACHED_DAY)];
+
+    public UserSerializer() {
+        super(User.class);
+    }
+
+    @Override
+    public void serialize(User user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(user);
+        writeString(gen, EMAIL, user.getEmail());
+        writeString(gen, FIRST_NAME, user.getFirstName());
+        writeString(gen, LAST_NAME, user.getLastName());
+        gen.writeFieldName(BIRTH_DATE);
+        writeDate(gen, provider, user.getBirthDate());
+        writeString(gen, ADDRESS, user.getAddress());
+        writeString(gen, PHONE, user.getPhone());
+        gen.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator gen, SerializedString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value);
+        }
+    }
+
+    private static void writeDate(JsonGenerator gen, SerializerProvider provider, LocalDate date) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            gen.writeStartArray();
+            gen.writeNumber(date.getYear());
+            gen.writeNumber(date.getMonthValue());
+            gen.writeNumber(date.getDayOfMonth());
+            gen.writeEndArray();
+        } else {
+            gen.writeString(formatted(date));
+        }
+    }
+
+    private static SerializedString formatted(LocalDate date) {
+        long index = date.toEpochDay() - FIRST_CACHED_DAY;
+        if (index < 0 || index >= DATES.length) {
+            return new SerializedString(date.toString());
+        }
+        SerializedString formatted = DATES[(int) index];
+        if (formatted == null) {
+            formatted = new SerializedString(date.toString());
+            DATES[(int) index] = formatted;
+        }
+        return formatted;
+    }
+}
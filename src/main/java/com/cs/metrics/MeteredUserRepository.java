@@ -0,0 +1,259 @@
+package com.cs.metrics;
+
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.query.UserQuery;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Times every repository call into a {@code user.repository} timer tagged by method (its
+ * count doubles as the throughput counter), counts failures in {@code user.repository.errors}
+ * tagged by method and exception, and exposes the store size as {@code user.repository.size}.
+ * Timers are resolved once up front so the hot path is two {@code nanoTime} calls and a
+ * lock-free timer update, and error counters are registered on the first failure of each
+ * method and exception and cached after that; latency histograms are switched on per
+ * meter name through the usual {@code management.metrics.distribution} properties.
+ * Streaming methods are timed until the stream is returned.
+ */
+public class MeteredUserRepository implements UserRepository {
+
+    static final String TIMER = "user.repository";
+    static final String ERRORS = "user.repository.errors";
+    static final String SIZE = "user.repository.size";
+
+    private final UserRepository repository;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<ErrorKey, Counter> errors = new ConcurrentHashMap<>();
+
+    private final Timer findByEmail;
+    private final Timer findOptionalByEmail;
+    private final Timer findAll;
+    private final Timer findPage;
+    private final Timer streamAll;
+    private final Timer findByPhone;
+    private final Timer findByLastName;
+    private final Timer findByNamePrefix;
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer restore;
+    private final Timer update;
+    private final Timer patchUser;
+    private final Timer deleteByEmail;
+    private final Timer deleteAll;
+    private final Timer findUsersInBirthDateRange;
+    private final Timer streamUsersInBirthDateRange;
+    private final Timer findByBirthday;
+    private final Timer countInBirthDateRange;
+    private final Timer ageHistogram;
+    private final Timer query;
+
+    public MeteredUserRepository(UserRepository repository, MeterRegistry registry) {
+        this.repository = repository;
+        this.registry = registry;
+        findByEmail = timer("findByEmail");
+        findOptionalByEmail = timer("findOptionalByEmail");
+        findAll = timer("findAll");
+        findPage = timer("findPage");
+        streamAll = timer("streamAll");
+        findByPhone = timer("findByPhone");
+        findByLastName = timer("findByLastName");
+        findByNamePrefix = timer("findByNamePrefix");
+        save = timer("save");
+        saveAll = timer("saveAll");
+        restore = timer("restore");
+        update = timer("update");
+        patchUser = timer("patchUser");
+        deleteByEmail = timer("deleteByEmail");
+        deleteAll = timer("deleteAll");
+        findUsersInBirthDateRange = timer("findUsersInBirthDateRange");
+        streamUsersInBirthDateRange = timer("streamUsersInBirthDateRange");
+        findByBirthday = timer("findByBirthday");
+        countInBirthDateRange = timer("countInBirthDateRange");
+        ageHistogram = timer("ageHistogram");
+        query = timer("query");
+        Gauge.builder(SIZE, repository, UserRepository::count)
+                .description("Users currently stored")
+                .register(registry);
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return record(findByEmail, () -> repository.findByEmail(email));
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        return record(findOptionalByEmail, () -> repository.findOptionalByEmail(email));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return record(findAll, repository::findAll);
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        return record(findPage, () -> repository.findPage(cursor, limit));
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return record(streamAll, repository::streamAll);
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return record(findByPhone, () -> repository.findByPhone(phone));
+    }
+
+    @Override
+    public List<User> findByLastName(String lastName) {
+        return record(findByLastName, () -> repository.findByLastName(lastName));
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return record(findByNamePrefix, () -> repository.findByNamePrefix(prefix, limit));
+    }
+
+    @Override
+    public User save(User user) {
+        return record(save, () -> repository.save(user));
+    }
+
+    @Override
+    public List<UserBatchResult> saveAll(List<User> users) {
+        return record(saveAll, () -> repository.saveAll(users));
+    }
+
+    @Override
+    public User restore(User user) {
+        return record(restore, () -> repository.restore(user));
+    }
+
+    @Override
+    public User update(String email, User user, long expectedVersion) {
+        return record(update, () -> repository.update(email, user, expectedVersion));
+    }
+
+    @Override
+    public User patchUser(String email, User newUser, long expectedVersion) {
+        return record(patchUser, () -> repository.patchUser(email, newUser, expectedVersion));
+    }
+
+    @Override
+    public void inBatch(Runnable mutations) {
+        repository.inBatch(mutations);
+    }
+
+    @Override
+    public boolean readsBlock() {
+        return repository.readsBlock();
+    }
+
+    @Override
+    public boolean writesBlock() {
+        return repository.writesBlock();
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        record(deleteByEmail, () -> {
+            repository.deleteByEmail(email);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll() {
+        record(deleteAll, () -> {
+            repository.deleteAll();
+            return null;
+        });
+    }
+
+    @Override
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        return record(findUsersInBirthDateRange,
+                () -> repository.findUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive));
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return record(streamUsersInBirthDateRange,
+                () -> repository.streamUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive));
+    }
+
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        return record(findByBirthday, () -> repository.findByBirthday(day));
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return record(countInBirthDateRange,
+                () -> repository.countInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive));
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(LocalDate date, int width, int maxAge) {
+        return record(ageHistogram, () -> repository.ageHistogram(date, width, maxAge));
+    }
+
+    @Override
+    public Stream<User> query(UserQuery query) {
+        return record(this.query, () -> repository.query(query));
+    }
+
+    private <T> T record(Timer timer, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            errors.computeIfAbsent(new ErrorKey(timer, e.getClass()), this::errorCounter).increment();
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Counter errorCounter(ErrorKey key) {
+        return Counter.builder(ERRORS)
+                .tag("method", key.timer().getId().getTag("method"))
+                .tag("exception", key.exception().getSimpleName())
+                .register(registry);
+    }
+
+    private Timer timer(String method) {
+        return Timer.builder(TIMER)
+                .tag("method", method)
+                .register(registry);
+    }
+
+    private record ErrorKey(Timer timer, Class<? extends RuntimeException> exception) {
+    }
+}
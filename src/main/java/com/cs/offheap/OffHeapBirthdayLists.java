@@ -0,0 +1,64 @@
+package com.cs.offheap;
+
+import com.cs.store.BirthdayIndex;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Doubly-linked lists of the slots born on each day of the year, threaded through two
+ * columns of the rows, so finding a day's birthdays visits only those rows and the heap
+ * holds nothing but one head per day. Not thread-safe; callers synchronize.
+ */
+final class OffHeapBirthdayLists {
+
+    private static final int NONE = -1;
+
+    private final OffHeapUserTable table;
+    private final int[] heads = new int[366];
+
+    OffHeapBirthdayLists(OffHeapUserTable table) {
+        this.table = table;
+        clear();
+    }
+
+    void link(int slot, int epochDay) {
+        int day = ordinal(epochDay);
+        int head = heads[day];
+        table.nextBirthday(slot, head);
+        table.previousBirthday(slot, NONE);
+        if (head != NONE) {
+            table.previousBirthday(head, slot);
+        }
+        heads[day] = slot;
+    }
+
+    void unlink(int slot, int epochDay) {
+        int next = table.nextBirthday(slot);
+        int previous = table.previousBirthday(slot);
+        if (previous == NONE) {
+            heads[ordinal(epochDay)] = next;
+        } else {
+            table.nextBirthday(previous, next);
+        }
+        if (next != NONE) {
+            table.previousBirthday(next, previous);
+        }
+    }
+
+    void forEach(MonthDay day, IntConsumer action) {
+        for (int slot = heads[BirthdayIndex.ordinal(day)]; slot != NONE; slot = table.nextBirthday(slot)) {
+            action.accept(slot);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(heads, NONE);
+    }
+
+    private static int ordinal(int epochDay) {
+        return BirthdayIndex.ordinal(MonthDay.from(LocalDate.ofEpochDay(epochDay)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.cs.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * UTF-8 string storage in direct memory. A string is addressed by a {@code long}
+ * reference, {@code chunk << 32 | offset}, pointing at an int length followed by the
+ * bytes; {@link #NULL} stands for a null string.
+ * <p>
+ * Each string occupies a block rounded up to a size class, four classes per power of two,
+ * so a block wastes at most a quarter of its size. Freed blocks go on a free list per
+ * class and are handed out again before chunks are carved further, so a user rewritten
+ * with strings of similar length reuses the blocks its previous version just freed and
+ * updates do not grow the arena. Not thread-safe; callers synchronize.
+ */
+final class OffHeapStringArena {
+
+    static final long NULL = -1;
+
+    private static final int CHUNK_BYTES = 16 * 1024 * 1024;
+    private static final int MIN_BLOCK = 16;
+    private static final int SIZE_CLASSES = 112;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private long allocatedBytes;
+    private long[][] freeBlocks = new long[SIZE_CLASSES][];
+    private int[] freeCounts = new int[SIZE_CLASSES];
+
+    long append(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        return append(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    long append(byte[] bytes) {
+        int block = blockSize(bytes.length);
+        long reference = reuse(sizeClass(block));
+        if (reference == NULL) {
+            reference = carve(block);
+        }
+
+        ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        chunk.putInt(offset, bytes.length);
+        chunk.put(offset + Integer.BYTES, bytes);
+        return reference;
+    }
+
+    /**
+     * Returns the string's block to its free list; the reference must not be read again.
+     */
+    void free(long reference) {
+        if (reference == NULL) {
+            return;
+        }
+        int length = chunks.get((int) (reference >>> 32)).getInt((int) reference);
+        int sizeClass = sizeClass(blockSize(length));
+        long[] free = freeBlocks[sizeClass];
+        if (free == null) {
+            free = freeBlocks[sizeClass] = new long[16];
+        } else if (freeCounts[sizeClass] == free.length) {
+            free = freeBlocks[sizeClass] = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCounts[sizeClass]++] = reference;
+    }
+
+    String read(long reference) {
+        if (reference == NULL) {
+            return null;
+        }
+        ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    boolean contentEquals(long reference, byte[] bytes) {
+        if (reference == NULL) {
+            return false;
+        }
+        ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        int length = chunk.getInt(offset);
+        if (length != bytes.length) {
+            return false;
+        }
+        return chunk.slice(offset + Integer.BYTES, length).equals(ByteBuffer.wrap(bytes));
+    }
+
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    void clear() {
+        chunks.clear();
+        current = null;
+        allocatedBytes = 0;
+        freeBlocks = new long[SIZE_CLASSES][];
+        freeCounts = new int[SIZE_CLASSES];
+    }
+
+    private long reuse(int sizeClass) {
+        return freeCounts[sizeClass] == 0 ? NULL : freeBlocks[sizeClass][--freeCounts[sizeClass]];
+    }
+
+    private long carve(int block) {
+        if (current == null || current.remaining() < block) {
+            current = ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, block));
+            chunks.add(current);
+            allocatedBytes += current.capacity();
+        }
+        int offset = current.position();
+        current.position(offset + block);
+        return (long) (chunks.size() - 1) << 32 | offset;
+    }
+
+    // the length prefix and bytes rounded up to a quarter of the power of two below them
+    private static int blockSize(int length) {
+        int needed = Integer.BYTES + length;
+        if (needed <= MIN_BLOCK) {
+            return MIN_BLOCK;
+        }
+        int step = Integer.highestOneBit(needed - 1) >> 2;
+        return (needed + step - 1) & -step;
+    }
+
+    private static int sizeClass(int block) {
+        if (block == MIN_BLOCK) {
+            return 0;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(block - 1);
+        return (exponent - 4) * 4 + (((block - 1) >> (exponent - 2)) & 3) + 1;
+    }
+}
@@ -0,0 +1,627 @@
+package com.cs.offheap;
+
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.patcher.UserPatcher;
+import com.cs.query.IndexScan;
+import com.cs.query.UserAccessPaths;
+import com.cs.query.UserField;
+import com.cs.query.UserPredicate;
+import com.cs.query.UserQuery;
+import com.cs.query.UserQueryPlanner;
+import com.cs.query.UserSort;
+import com.cs.store.BirthDateCounter;
+import com.cs.store.EmailKeys;
+import com.cs.store.NamePrefixIndex;
+import com.cs.store.UserMutationListener;
+import com.cs.store.UserMutationSource;
+import com.cs.validation.UserValidationPolicy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Keeps users in direct memory instead of as object graphs on the heap: fixed-width rows
+ * with the birth date as an epoch day, strings in a UTF-8 arena and an
+ * {@code int[]} hash index from email to row. {@link User} objects exist only for the
+ * duration of a call, so a store of tens of millions of users leaves the collector with
+ * a handful of arrays to trace. Reads share a read lock, writes are serialized.
+ * <p>
+ * Pages and full scans run in row order, not email order, and the cursor is a row number.
+ * Birth-date ranges and name prefixes scan the row columns; phone and last name lookups
+ * go through their own hash indexes, birthdays through per-day lists linked in the rows,
+ * and range counts through a Fenwick tree. Queries use the hash indexes and the birth-date
+ * column, and otherwise materialize batches of rows in parallel. The strings of replaced
+ * and deleted users are freed and their blocks reused by later writes, so updating users
+ * in place does not grow the arena. Mutation listeners are called under the write lock,
+ * in the order changes are applied.
+ */
+@Repository(UserRepository.BACKEND)
+@ConditionalOnProperty(name = "user.store.backend", havingValue = "offheap")
+public class OffHeapUserRepository implements UserRepository, UserMutationSource {
+
+    private static final int SCAN_BATCH = 1024;
+
+    private static final Comparator<User> BIRTH_DATE_ORDER = Comparator.comparing(User::getBirthDate)
+            .thenComparing(User::getEmail);
+    private static final List<UserSort> BIRTH_DATE_SORT =
+            UserSort.complete(List.of(UserSort.ascending(UserField.BIRTH_DATE)));
+
+    private final UserValidationPolicy validationPolicy;
+    private final UserPatcher patcher;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OffHeapUserTable table = new OffHeapUserTable();
+    private final OffHeapStringArena strings = new OffHeapStringArena();
+    private final SlotHashIndex emails = new SlotHashIndex();
+    private final SlotHashIndex phones = new SlotHashIndex();
+    private final SlotHashIndex lastNames = new SlotHashIndex();
+    private final OffHeapBirthdayLists birthdays = new OffHeapBirthdayLists(table);
+    private final BirthDateCounter birthDateCounts = new BirthDateCounter();
+    private final List<UserMutationListener> listeners = new CopyOnWriteArrayList<>();
+    private final UserAccessPaths accessPaths = new OffHeapAccessPaths();
+
+    public OffHeapUserRepository(UserValidationPolicy validationPolicy, UserPatcher patcher) {
+        this.validationPolicy = validationPolicy;
+        this.patcher = patcher;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return read(() -> materialize(existingSlot(email)));
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        String key = EmailKeys.canonical(email);
+        return read(() -> {
+            int slot = key == null ? -1 : slotOf(key, utf8(key));
+            return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+        });
+    }
+
+    @Override
+    public List<User> findAll() {
+        return read(() -> {
+            List<User> users = new ArrayList<>(table.size());
+            for (int slot = 0; slot < table.highWater(); slot++) {
+                if (table.isLive(slot)) {
+                    users.add(materialize(slot));
+                }
+            }
+            return users;
+        });
+    }
+
+    @Override
+    public long count() {
+        return read(table::size);
+    }
+
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        return read(() -> {
+            int from = cursor == null ? 0 : parseCursor(cursor) + 1;
+            List<User> users = new ArrayList<>(Math.min(limit, table.size()));
+            int slot = from;
+            for (; slot < table.highWater() && users.size() < limit; slot++) {
+                if (table.isLive(slot)) {
+                    users.add(materialize(slot));
+                }
+            }
+            boolean more = false;
+            for (int next = slot; next < table.highWater() && !more; next++) {
+                more = table.isLive(next);
+            }
+            return new UserPage(users, more ? Integer.toString(slot - 1) : null);
+        });
+    }
+
+    /**
+     * Materializes rows a batch at a time, taking the read lock per batch so a slow
+     * consumer does not hold off writers.
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return IntStream.iterate(0, from -> from < read(table::highWater), from -> from + SCAN_BATCH)
+                .mapToObj(this::batch)
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public User save(User newUser) {
+        return create(newUser, 1);
+    }
+
+    @Override
+    public User restore(User user) {
+        if (user.getVersion() < 1) {
+            throw new UserValidationException("A restored user needs a version of at least 1");
+        }
+        return create(user, user.getVersion());
+    }
+
+    private User create(User newUser, long version) {
+        User user = EmailKeys.canonical(newUser);
+        validateUser(user);
+        byte[] email = utf8(user.getEmail());
+
+        return write(() -> {
+            if (slotOf(user.getEmail(), email) >= 0) {
+                throw alreadyExists(user.getEmail());
+            }
+            User stored = insert(user, email, version);
+            listeners.forEach(listener -> listener.onPut(null, stored));
+            return stored;
+        });
+    }
+
+    @Override
+    public List<UserBatchResult> saveAll(List<User> users) {
+        List<User> batch = users.stream().map(EmailKeys::canonical).toList();
+        UserBatchResult[] results = new UserBatchResult[batch.size()];
+        IntStream.range(0, batch.size()).parallel().forEach(row -> {
+            String error = validationPolicy.validationError(batch.get(row));
+            if (error != null) {
+                results[row] = UserBatchResult.invalid(row, batch.get(row).getEmail(), error);
+            }
+        });
+
+        write(() -> {
+            for (int row = 0; row < batch.size(); row++) {
+                if (results[row] != null) {
+                    continue;
+                }
+                User user = batch.get(row);
+                byte[] email = utf8(user.getEmail());
+                if (slotOf(user.getEmail(), email) >= 0) {
+                    results[row] = UserBatchResult.conflict(row, user.getEmail());
+                } else {
+                    User stored = insert(user, email, 1);
+                    listeners.forEach(listener -> listener.onPut(null, stored));
+                    results[row] = UserBatchResult.created(row, user.getEmail());
+                }
+            }
+            return null;
+        });
+
+        return List.of(results);
+    }
+
+    @Override
+    public User update(String currentEmail, User newUser, long expectedVersion) {
+        String email = EmailKeys.canonical(currentEmail);
+        User user = EmailKeys.canonical(newUser);
+        validateUser(user);
+
+        return write(() -> {
+            int existing = slotOf(email, utf8(email));
+            checkVersion(email, existing, expectedVersion);
+            if (existing >= 0) {
+                return replace(email, user);
+            }
+
+            // like the heap backend, an unconditional update of a missing user creates it
+            byte[] newEmail = utf8(user.getEmail());
+            if (slotOf(user.getEmail(), newEmail) >= 0) {
+                throw alreadyExists(user.getEmail());
+            }
+            User stored = insert(user, newEmail, 1);
+            listeners.forEach(listener -> listener.onPut(null, stored));
+            return stored;
+        });
+    }
+
+    @Override
+    public User patchUser(String currentEmail, User newUser, long expectedVersion) {
+        String email = EmailKeys.canonical(currentEmail);
+        String targetEmail = newUser.getEmail() != null ? EmailKeys.canonical(newUser.getEmail()) : email;
+
+        return write(() -> {
+            int existing = existingSlot(email);
+            checkVersion(email, existing, expectedVersion);
+            User patchedUser = EmailKeys.canonical(patcher.patch(materialize(existing), newUser));
+
+            if (!targetEmail.equals(email) && slotOf(targetEmail, utf8(targetEmail)) >= 0) {
+                throw alreadyExists(targetEmail);
+            }
+            validateUser(patchedUser);
+
+            return replace(email, patchedUser);
+        });
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        write(() -> {
+            int slot = existingSlot(email);
+            User removed = listeners.isEmpty() ? null : materialize(slot);
+            delete(slot);
+            listeners.forEach(listener -> listener.onRemove(removed));
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll() {
+        write(() -> {
+            table.clear();
+            strings.clear();
+            emails.clear();
+            phones.clear();
+            lastNames.clear();
+            birthdays.clear();
+            birthDateCounts.clear();
+            listeners.forEach(UserMutationListener::onClear);
+            return null;
+        });
+    }
+
+    @Override
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        long fromDay = fromInclusive ? dateFrom.toEpochDay() : dateFrom.toEpochDay() + 1;
+        long toDay = toInclusive ? dateTo.toEpochDay() + 1 : dateTo.toEpochDay();
+        if (fromDay >= toDay) {
+            return List.of();
+        }
+
+        List<User> users = read(() -> {
+            List<User> found = new ArrayList<>();
+            for (int slot = 0; slot < table.highWater(); slot++) {
+                if (table.isLive(slot)) {
+                    int day = table.birthDay(slot);
+                    if (day != OffHeapUserTable.NO_DATE && day >= fromDay && day < toDay) {
+                        found.add(materialize(slot));
+                    }
+                }
+            }
+            return found;
+        });
+        users.sort(BIRTH_DATE_ORDER);
+
+        return users;
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return findBy(phones, OffHeapUserTable.PHONE, phone);
+    }
+
+    @Override
+    public List<User> findByLastName(String lastName) {
+        return findBy(lastNames, OffHeapUserTable.LAST_NAME, lastName);
+    }
+
+    /**
+     * Scans the name columns; there is no off-heap ordered index, so this is O(N).
+     */
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<User> users = read(() -> {
+            List<User> found = new ArrayList<>();
+            for (int slot = 0; slot < table.highWater(); slot++) {
+                if (table.isLive(slot) && (startsWith(slot, OffHeapUserTable.FIRST_NAME, key)
+                        || startsWith(slot, OffHeapUserTable.LAST_NAME, key))) {
+                    found.add(materialize(slot));
+                }
+            }
+            return found;
+        });
+        users.sort(NamePrefixIndex.prefixOrder(prefix));
+
+        return users.subList(0, Math.min(limit, users.size()));
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return findUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive).stream();
+    }
+
+    /**
+     * Walks the day's list of rows; the result is sorted by email like the heap store's.
+     */
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        List<User> users = read(() -> {
+            List<User> found = new ArrayList<>();
+            birthdays.forEach(day, slot -> found.add(materialize(slot)));
+            return found;
+        });
+        users.sort(Comparator.comparing(User::getEmail));
+        return users;
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return read(() -> birthDateCounts.count(dateFrom, fromInclusive, dateTo, toInclusive));
+    }
+
+    @Override
+    public Stream<User> query(UserQuery query) {
+        return plan(query).execute();
+    }
+
+    public UserQueryPlanner.QueryPlan plan(UserQuery query) {
+        return UserQueryPlanner.plan(query, accessPaths);
+    }
+
+    @Override
+    public void addMutationListener(UserMutationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Direct memory held by rows and strings, plus the heap taken by the hash indexes.
+     */
+    public long allocatedBytes() {
+        return read(() -> table.allocatedBytes() + strings.allocatedBytes()
+                + emails.allocatedBytes() + phones.allocatedBytes() + lastNames.allocatedBytes());
+    }
+
+    // the old row is freed and the next version written under one write lock, so readers
+    // never see the user missing
+    private User replace(String email, User user) {
+        int existing = existingSlot(email);
+        byte[] newEmail = utf8(user.getEmail());
+        if (!email.equals(user.getEmail()) && slotOf(user.getEmail(), newEmail) >= 0) {
+            throw alreadyExists(user.getEmail());
+        }
+        long version = table.version(existing) + 1;
+        User previous = listeners.isEmpty() ? null : materialize(existing);
+        delete(existing);
+        User stored = insert(user, newEmail, version);
+        if (previous != null) {
+            if (previous.getEmail().equals(stored.getEmail())) {
+                listeners.forEach(listener -> listener.onPut(previous, stored));
+            } else {
+                listeners.forEach(listener -> listener.onPut(null, stored));
+                listeners.forEach(listener -> listener.onRemove(previous));
+            }
+        }
+        return stored;
+    }
+
+    private User insert(User user, byte[] email, long version) {
+        int slot = table.allocate();
+        table.version(slot, version);
+        int hash = user.getEmail().hashCode();
+        table.hash(slot, OffHeapUserTable.EMAIL, hash);
+        if (user.getBirthDate() == null) {
+            table.birthDay(slot, OffHeapUserTable.NO_DATE);
+        } else {
+            int day = Math.toIntExact(user.getBirthDate().toEpochDay());
+            table.birthDay(slot, day);
+            birthdays.link(slot, day);
+            birthDateCounts.add(day, 1);
+        }
+        table.string(slot, OffHeapUserTable.EMAIL, strings.append(email));
+        table.string(slot, OffHeapUserTable.FIRST_NAME, strings.append(user.getFirstName()));
+        table.string(slot, OffHeapUserTable.LAST_NAME, strings.append(user.getLastName()));
+        table.string(slot, OffHeapUserTable.ADDRESS, strings.append(user.getAddress()));
+        table.string(slot, OffHeapUserTable.PHONE, strings.append(user.getPhone()));
+        emails.insert(hash, slot);
+        if (user.getPhone() != null) {
+            int phoneHash = attributeHash(user.getPhone());
+            table.hash(slot, OffHeapUserTable.PHONE, phoneHash);
+            phones.insert(phoneHash, slot);
+        }
+        if (user.getLastName() != null) {
+            int lastNameHash = attributeHash(user.getLastName());
+            table.hash(slot, OffHeapUserTable.LAST_NAME, lastNameHash);
+            lastNames.insert(lastNameHash, slot);
+        }
+        return user.withVersion(version);
+    }
+
+    private void delete(int slot) {
+        emails.remove(table.hash(slot, OffHeapUserTable.EMAIL), slot);
+        int day = table.birthDay(slot);
+        if (day != OffHeapUserTable.NO_DATE) {
+            birthdays.unlink(slot, day);
+            birthDateCounts.add(day, -1);
+        }
+        if (table.string(slot, OffHeapUserTable.PHONE) != OffHeapStringArena.NULL) {
+            phones.remove(table.hash(slot, OffHeapUserTable.PHONE), slot);
+        }
+        if (table.string(slot, OffHeapUserTable.LAST_NAME) != OffHeapStringArena.NULL) {
+            lastNames.remove(table.hash(slot, OffHeapUserTable.LAST_NAME), slot);
+        }
+        for (int field = OffHeapUserTable.EMAIL; field <= OffHeapUserTable.PHONE; field++) {
+            strings.free(table.string(slot, field));
+        }
+        table.free(slot);
+    }
+
+    private List<User> findBy(SlotHashIndex index, int field, String value) {
+        String key = normalize(value);
+        return read(() -> {
+            List<User> users = new ArrayList<>();
+            index.forEach(key.hashCode(),
+                    slot -> key.equals(normalize(strings.read(table.string(slot, field)))),
+                    slot -> users.add(materialize(slot)));
+            return users;
+        });
+    }
+
+    // the live users of the SCAN_BATCH rows from row from, read under one read lock
+    private List<User> batch(int from) {
+        return read(() -> {
+            List<User> batch = new ArrayList<>(SCAN_BATCH);
+            for (int slot = from; slot < Math.min(from + SCAN_BATCH, table.highWater()); slot++) {
+                if (table.isLive(slot)) {
+                    batch.add(materialize(slot));
+                }
+            }
+            return batch;
+        });
+    }
+
+    private static int attributeHash(String value) {
+        return normalize(value).hashCode();
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private User materialize(int slot) {
+        int day = table.birthDay(slot);
+        return new User(strings.read(table.string(slot, OffHeapUserTable.EMAIL)),
+                strings.read(table.string(slot, OffHeapUserTable.FIRST_NAME)),
+                strings.read(table.string(slot, OffHeapUserTable.LAST_NAME)),
+                day == OffHeapUserTable.NO_DATE ? null : LocalDate.ofEpochDay(day),
+                strings.read(table.string(slot, OffHeapUserTable.ADDRESS)),
+                strings.read(table.string(slot, OffHeapUserTable.PHONE)),
+                table.version(slot));
+    }
+
+    // slot is -1 for a missing user, which is at no version
+    private void checkVersion(String email, int slot, long expectedVersion) {
+        if (expectedVersion != ANY_VERSION && (slot < 0 || table.version(slot) != expectedVersion)) {
+            throw new UserVersionConflictException("User with email " +
+                                                   email +
+                                                   " is not at version " +
+                                                   expectedVersion);
+        }
+    }
+
+    private int existingSlot(String email) {
+        String key = EmailKeys.canonical(email);
+        int slot = key == null ? -1 : slotOf(key, utf8(key));
+        if (slot < 0) {
+            throw new UserNotFoundException("User with email " +
+                                            email +
+                                            " was not found");
+        }
+        return slot;
+    }
+
+    private int slotOf(String email, byte[] bytes) {
+        return emails.find(email.hashCode(),
+                slot -> strings.contentEquals(table.string(slot, OffHeapUserTable.EMAIL), bytes));
+    }
+
+    private boolean startsWith(int slot, int field, String prefix) {
+        String value = strings.read(table.string(slot, field));
+        return value != null && normalize(value).startsWith(prefix);
+    }
+
+    private void validateUser(User user) {
+        String error = validationPolicy.validationError(user);
+        if (error != null) {
+            throw new UserValidationException(error);
+        }
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+            listeners.forEach(UserMutationListener::afterUnlock);
+        }
+    }
+
+    // a cursor is the slot of the last user of the previous page; caller holds the read lock
+    private int parseCursor(String cursor) {
+        int slot;
+        try {
+            slot = Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new UserValidationException("Invalid cursor " + cursor);
+        }
+        if (slot < 0 || slot >= table.highWater()) {
+            throw new UserValidationException("Invalid cursor " + cursor);
+        }
+        return slot;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static UserAlreadyExistsException alreadyExists(String email) {
+        return new UserAlreadyExistsException("User with email " +
+                                              email +
+                                              " already exists");
+    }
+
+    // equality on email, phone and last name goes through the hash indexes, birth dates
+    // through the date column with the exact count of the Fenwick tree
+    private final class OffHeapAccessPaths implements UserAccessPaths {
+
+        @Override
+        public long size() {
+            return count();
+        }
+
+        @Override
+        public Stream<User> scan() {
+            int batches = (read(table::highWater) + SCAN_BATCH - 1) / SCAN_BATCH;
+            return IntStream.range(0, batches)
+                    .parallel()
+                    .mapToObj(batch -> batch(batch * SCAN_BATCH))
+                    .flatMap(List::stream);
+        }
+
+        @Override
+        public IndexScan index(UserPredicate.Condition condition, long budget) {
+            if (condition instanceof UserPredicate.Equal equal) {
+                return switch (equal.field()) {
+                    case EMAIL -> IndexScan.unordered("email",
+                            findOptionalByEmail((String) equal.value()).stream().toList());
+                    case PHONE -> IndexScan.unordered("phone", findByPhone((String) equal.value()));
+                    case LAST_NAME -> IndexScan.unordered("lastName", findByLastName((String) equal.value()));
+                    case BIRTH_DATE -> birthDateRange((LocalDate) equal.value(), true, (LocalDate) equal.value(), true);
+                    default -> null;
+                };
+            }
+            if (condition instanceof UserPredicate.Range range && range.field() == UserField.BIRTH_DATE) {
+                return birthDateRange(range.from() == null ? LocalDate.MIN : (LocalDate) range.from(),
+                        range.from() == null || range.fromInclusive(),
+                        range.to() == null ? LocalDate.MAX : (LocalDate) range.to(),
+                        range.to() == null || range.toInclusive());
+            }
+            return null;
+        }
+
+        private IndexScan birthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+            return new IndexScan("birthDate", countInBirthDateRange(from, fromInclusive, to, toInclusive),
+                    BIRTH_DATE_SORT, () -> streamUsersInBirthDateRange(from, fromInclusive, to, toInclusive));
+        }
+    }
+}
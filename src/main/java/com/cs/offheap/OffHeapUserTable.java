@@ -0,0 +1,148 @@
+package com.cs.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-width user rows in direct memory, allocated in chunks so growing never copies.
+ * Each row holds a live flag, the birth date as an epoch day, a hash and an arena
+ * reference for each of the five string fields, the user's version, and the links of the
+ * list of users sharing its birthday. Freed slots are reused before new ones are handed
+ * out. Not thread-safe; callers synchronize.
+ */
+final class OffHeapUserTable {
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    static final int EMAIL = 0;
+    static final int FIRST_NAME = 1;
+    static final int LAST_NAME = 2;
+    static final int ADDRESS = 3;
+    static final int PHONE = 4;
+
+    private static final int LIVE = 0;
+    private static final int BIRTH_DAY = 4;
+    private static final int HASHES = 8;
+    private static final int STRINGS = 32;
+    private static final int VERSION = STRINGS + 5 * Long.BYTES;
+    private static final int NEXT_BIRTHDAY = VERSION + Long.BYTES;
+    private static final int PREVIOUS_BIRTHDAY = NEXT_BIRTHDAY + Integer.BYTES;
+    private static final int ROW_BYTES = PREVIOUS_BIRTHDAY + Integer.BYTES;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int highWater;
+    private int size;
+
+    int allocate() {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = highWater++;
+            if (slot >> CHUNK_SHIFT == chunks.size()) {
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_ROWS * ROW_BYTES));
+            }
+        }
+        chunk(slot).putInt(offset(slot) + LIVE, 1);
+        size++;
+        return slot;
+    }
+
+    void free(int slot) {
+        chunk(slot).putInt(offset(slot) + LIVE, 0);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    boolean isLive(int slot) {
+        return slot < highWater && chunk(slot).getInt(offset(slot) + LIVE) != 0;
+    }
+
+    int birthDay(int slot) {
+        return chunk(slot).getInt(offset(slot) + BIRTH_DAY);
+    }
+
+    void birthDay(int slot, int epochDay) {
+        chunk(slot).putInt(offset(slot) + BIRTH_DAY, epochDay);
+    }
+
+    int hash(int slot, int field) {
+        return chunk(slot).getInt(offset(slot) + HASHES + field * Integer.BYTES);
+    }
+
+    void hash(int slot, int field, int hash) {
+        chunk(slot).putInt(offset(slot) + HASHES + field * Integer.BYTES, hash);
+    }
+
+    long string(int slot, int field) {
+        return chunk(slot).getLong(offset(slot) + STRINGS + field * Long.BYTES);
+    }
+
+    void string(int slot, int field, long reference) {
+        chunk(slot).putLong(offset(slot) + STRINGS + field * Long.BYTES, reference);
+    }
+
+    long version(int slot) {
+        return chunk(slot).getLong(offset(slot) + VERSION);
+    }
+
+    void version(int slot, long version) {
+        chunk(slot).putLong(offset(slot) + VERSION, version);
+    }
+
+    int nextBirthday(int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT_BIRTHDAY);
+    }
+
+    void nextBirthday(int slot, int next) {
+        chunk(slot).putInt(offset(slot) + NEXT_BIRTHDAY, next);
+    }
+
+    int previousBirthday(int slot) {
+        return chunk(slot).getInt(offset(slot) + PREVIOUS_BIRTHDAY);
+    }
+
+    void previousBirthday(int slot, int previous) {
+        chunk(slot).putInt(offset(slot) + PREVIOUS_BIRTHDAY, previous);
+    }
+
+    /** One past the highest slot ever allocated; live slots are all below it. */
+    int highWater() {
+        return highWater;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long allocatedBytes() {
+        return (long) chunks.size() * CHUNK_ROWS * ROW_BYTES;
+    }
+
+    void clear() {
+        chunks.clear();
+        freeSlots = new int[64];
+        freeCount = 0;
+        highWater = 0;
+        size = 0;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks.get(slot >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & CHUNK_MASK) * ROW_BYTES;
+    }
+}
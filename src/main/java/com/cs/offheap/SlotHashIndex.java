@@ -0,0 +1,111 @@
+package com.cs.offheap;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing hash table from an attribute hash to table slots, kept in plain
+ * {@code int[]}s so it costs the collector nothing to trace. Keys are not stored here: a
+ * lookup is handed a predicate that compares a candidate slot's attribute against the
+ * probe. Several slots may share a key. Not thread-safe; callers synchronize.
+ */
+final class SlotHashIndex {
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private int[] entries = new int[1024];
+    private int[] hashes = new int[1024];
+    private int used;
+
+    int find(int hash, IntPredicate matches) {
+        int mask = entries.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int entry = entries[i];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED && hashes[i] == hash && matches.test(entry - 1)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    void forEach(int hash, IntPredicate matches, IntConsumer action) {
+        int mask = entries.length - 1;
+        for (int i = spread(hash) & mask; entries[i] != EMPTY; i = (i + 1) & mask) {
+            int entry = entries[i];
+            if (entry != DELETED && hashes[i] == hash && matches.test(entry - 1)) {
+                action.accept(entry - 1);
+            }
+        }
+    }
+
+    void insert(int hash, int slot) {
+        if ((used + 1) * 2 > entries.length) {
+            rehash();
+        }
+        if (place(entries, hashes, hash, slot + 1)) {
+            used++;
+        }
+    }
+
+    void remove(int hash, int slot) {
+        int mask = entries.length - 1;
+        for (int i = spread(hash) & mask; entries[i] != EMPTY; i = (i + 1) & mask) {
+            if (entries[i] == slot + 1) {
+                entries[i] = DELETED;
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        entries = new int[1024];
+        hashes = new int[1024];
+        used = 0;
+    }
+
+    long allocatedBytes() {
+        return 2L * entries.length * Integer.BYTES;
+    }
+
+    // grows only when live entries would otherwise exceed a quarter of the table, so a
+    // table full of tombstones is rebuilt at the same size
+    private void rehash() {
+        int live = 0;
+        for (int entry : entries) {
+            if (entry > 0) {
+                live++;
+            }
+        }
+        int capacity = live * 4 > entries.length ? entries.length * 2 : entries.length;
+        int[] newEntries = new int[capacity];
+        int[] newHashes = new int[capacity];
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] > 0) {
+                place(newEntries, newHashes, hashes[i], entries[i]);
+            }
+        }
+        entries = newEntries;
+        hashes = newHashes;
+        used = live;
+    }
+
+    // returns whether a previously empty bucket was taken
+    private static boolean place(int[] entries, int[] hashes, int hash, int entry) {
+        int mask = entries.length - 1;
+        int i = spread(hash) & mask;
+        while (entries[i] > 0) {
+            i = (i + 1) & mask;
+        }
+        boolean fresh = entries[i] == EMPTY;
+        entries[i] = entry;
+        hashes[i] = hash;
+        return fresh;
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+}
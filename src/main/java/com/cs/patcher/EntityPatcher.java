@@ -0,0 +1,138 @@
+package com.cs.patcher;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copy-on-write patcher for immutable records and for immutable classes with Lombok's
+ * {@code @Builder(toBuilder = true)}. Accessors and the means of construction are
+ * resolved once into method handles and matched by name, never by the order reflection
+ * happens to list fields in: a record through its components, which are specified to be
+ * in canonical constructor order, and a class through its builder, seeded with the
+ * existing instance and given each non-null reference field of the patch by its setter.
+ * Primitive fields cannot express "unchanged" and always keep the existing value.
+ * Neither argument is modified.
+ */
+public final class EntityPatcher<T> {
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(Object.class, Object.class, Object.class);
+
+    private final MethodHandle[] getters;
+    private final boolean[] patchable;
+    // records: the canonical constructor, spread over Object[]
+    private final MethodHandle constructor;
+    // builder classes: toBuilder, a setter per getter (null for primitives) and build
+    private final MethodHandle toBuilder;
+    private final MethodHandle[] setters;
+    private final MethodHandle build;
+
+    private EntityPatcher(MethodHandle[] getters, boolean[] patchable, MethodHandle constructor,
+                          MethodHandle toBuilder, MethodHandle[] setters, MethodHandle build) {
+        this.getters = getters;
+        this.patchable = patchable;
+        this.constructor = constructor;
+        this.toBuilder = toBuilder;
+        this.setters = setters;
+        this.build = build;
+    }
+
+    public static <T> EntityPatcher<T> of(Class<T> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            return type.isRecord() ? ofRecord(type, lookup) : ofBuilder(type, lookup);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot build a patcher for " + type.getName(), e);
+        }
+    }
+
+    private static <T> EntityPatcher<T> ofRecord(Class<T> type, MethodHandles.Lookup lookup)
+            throws ReflectiveOperationException {
+        RecordComponent[] components = type.getRecordComponents();
+        MethodHandle[] getters = new MethodHandle[components.length];
+        boolean[] patchable = new boolean[components.length];
+        Class<?>[] parameters = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            getters[i] = lookup.unreflect(components[i].getAccessor()).asType(GETTER);
+            patchable[i] = !components[i].getType().isPrimitive();
+            parameters[i] = components[i].getType();
+        }
+
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameters))
+                .asSpreader(Object[].class, parameters.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+
+        return new EntityPatcher<>(getters, patchable, constructor, null, null, null);
+    }
+
+    private static <T> EntityPatcher<T> ofBuilder(Class<T> type, MethodHandles.Lookup lookup)
+            throws ReflectiveOperationException {
+        Class<?> builderType = type.getDeclaredMethod("toBuilder").getReturnType();
+
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                fields.add(field);
+            }
+        }
+
+        MethodHandle[] getters = new MethodHandle[fields.size()];
+        boolean[] patchable = new boolean[fields.size()];
+        MethodHandle[] setters = new MethodHandle[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            getters[i] = lookup.unreflectGetter(field).asType(GETTER);
+            patchable[i] = !field.getType().isPrimitive();
+            if (patchable[i]) {
+                setters[i] = lookup.findVirtual(builderType, field.getName(),
+                        MethodType.methodType(builderType, field.getType())).asType(SETTER);
+            }
+        }
+
+        MethodHandle toBuilder = lookup.findVirtual(type, "toBuilder", MethodType.methodType(builderType))
+                .asType(GETTER);
+        MethodHandle build = lookup.findVirtual(builderType, "build", MethodType.methodType(type))
+                .asType(GETTER);
+
+        return new EntityPatcher<>(getters, patchable, null, toBuilder, setters, build);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T patch(T existing, T patch) {
+        try {
+            return (T) (constructor != null ? construct(existing, patch) : rebuild(existing, patch));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object construct(Object existing, Object patch) throws Throwable {
+        Object[] values = new Object[getters.length];
+        for (int i = 0; i < getters.length; i++) {
+            Object value = patchable[i] ? getters[i].invokeExact(patch) : null;
+            values[i] = value != null ? value : getters[i].invokeExact(existing);
+        }
+        return constructor.invokeExact(values);
+    }
+
+    private Object rebuild(Object existing, Object patch) throws Throwable {
+        Object builder = toBuilder.invokeExact(existing);
+        for (int i = 0; i < getters.length; i++) {
+            if (patchable[i]) {
+                Object value = getters[i].invokeExact(patch);
+                if (value != null) {
+                    builder = setters[i].invokeExact(builder, value);
+                }
+            }
+        }
+        return build.invokeExact(builder);
+    }
+}
@@ -3,24 +3,16 @@ package com.cs.patcher;
 import com.cs.entity.User;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Field;
-
 @Component
 public class UserPatcher {
-    public User patch(User existingUser, User newUser) throws IllegalAccessException {
-        Class<?> userClass = User.class;
-        Field[] userFields = userClass.getDeclaredFields();
-
-        for(Field field : userFields){
-            field.setAccessible(true); // open the access in case they are private
-
-            Object value = field.get(newUser);
-            if(value!=null){
-                field.set(existingUser, value);
-            }
-            field.setAccessible(false); // close the access
-        }
+    private final EntityPatcher<User> patcher = EntityPatcher.of(User.class);
 
-        return existingUser;
+    /**
+     * Returns a new user holding the fields of {@code existingUser} overridden by every
+     * non-null field of {@code newUser}, with the version of {@code existingUser}. Neither
+     * argument is modified.
+     */
+    public User patch(User existingUser, User newUser) {
+        return patcher.patch(existingUser, newUser);
     }
 }
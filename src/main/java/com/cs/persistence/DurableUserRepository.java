@@ -0,0 +1,170 @@
+package com.cs.persistence;
+
+import com.cs.dto.UserRepository;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.patcher.UserPatcher;
+import com.cs.store.EmailKeys;
+import com.cs.store.StripedUserStore;
+import com.cs.store.UserScanPool;
+import com.cs.validation.UserValidationPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory user repository that survives restarts. Every change is appended to a
+ * {@link UserWriteAheadLog} before the mutating call returns, and the store is periodically
+ * compacted into a {@link UserSnapshot}. On startup the snapshot is loaded and the log
+ * segments written after it are replayed.
+ * <p>
+ * Snapshots are taken without stopping writers: the log is first rolled to a new segment,
+ * then the store is copied while it keeps changing. Log records carry whole users, so
+ * replaying the newer segments over such a copy converges to the exact final state.
+ */
+@Slf4j
+@Repository(UserRepository.BACKEND)
+@ConditionalOnProperty(name = "user.store.backend", havingValue = "durable")
+public class DurableUserRepository extends UserRepositoryImpl implements Closeable {
+
+    private final Path directory;
+    private final UserWriteAheadLog writeAheadLog;
+    private final ReentrantLock compaction = new ReentrantLock();
+    private final ScheduledExecutorService compactor;
+
+    public DurableUserRepository(UserValidationPolicy validationPolicy, UserPatcher patcher,
+                                 Path directory, boolean fsync, Duration snapshotInterval) throws IOException {
+        this(validationPolicy, patcher, directory, fsync, snapshotInterval, new UserScanPool());
+    }
+
+    @Autowired
+    public DurableUserRepository(UserValidationPolicy validationPolicy, UserPatcher patcher,
+                                 @Value("${user.persistence.directory:data}") Path directory,
+                                 @Value("${user.persistence.fsync:true}") boolean fsync,
+                                 @Value("${user.persistence.snapshot-interval:10m}") Duration snapshotInterval,
+                                 @Value("${user.scan.parallelism:0}") int scanParallelism,
+                                 @Value("${user.scan.parallel-threshold:" + UserScanPool.DEFAULT_THRESHOLD + "}")
+                                 int parallelThreshold)
+            throws IOException {
+        this(validationPolicy, patcher, directory, fsync, snapshotInterval,
+                new UserScanPool(scanParallelism, parallelThreshold));
+    }
+
+    private DurableUserRepository(UserValidationPolicy validationPolicy, UserPatcher patcher, Path directory,
+                                  boolean fsync, Duration snapshotInterval, UserScanPool scanPool)
+            throws IOException {
+        super(validationPolicy, patcher, scanPool);
+        this.directory = directory;
+
+        Files.createDirectories(directory);
+        long nextSegment = recover();
+        writeAheadLog = new UserWriteAheadLog(directory, nextSegment, fsync);
+        store().addListener(writeAheadLog);
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = snapshotInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a new snapshot and drops the log segments it covers.
+     */
+    public void compact() throws IOException {
+        compaction.lock();
+        try {
+            long firstSegment = writeAheadLog.roll();
+            UserSnapshot.write(directory, firstSegment, store().iterator());
+            UserWriteAheadLog.deleteSegmentsBefore(directory, firstSegment);
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    // a write waits until its log record is synced
+    @Override
+    public boolean writesBlock() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        try {
+            compact();
+        } finally {
+            writeAheadLog.close();
+        }
+    }
+
+    private long recover() throws IOException {
+        StripedUserStore users = store();
+        long started = System.nanoTime();
+
+        long firstSegment = 0;
+        Path snapshot = directory.resolve(UserSnapshot.FILE_NAME);
+        if (Files.exists(snapshot)) {
+            firstSegment = UserSnapshot.read(snapshot, user -> put(users, user));
+        }
+
+        UserWriteAheadLog.Replay replay = new UserWriteAheadLog.Replay() {
+            @Override
+            public void put(User user) {
+                DurableUserRepository.put(users, user);
+            }
+
+            @Override
+            public void remove(String email) {
+                users.withLock(email, () -> users.remove(email));
+            }
+
+            @Override
+            public void clear() {
+                users.withAllLocks(users::clear);
+            }
+        };
+
+        long first = firstSegment;
+        List<Long> segments = UserWriteAheadLog.segmentIds(directory).stream()
+                .filter(id -> id >= first)
+                .toList();
+        for (int i = 0; i < segments.size(); i++) {
+            UserWriteAheadLog.replay(UserWriteAheadLog.segmentPath(directory, segments.get(i)),
+                    replay, i == segments.size() - 1);
+        }
+
+        log.info("Recovered {} users from {} in {} ms", users.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return segments.isEmpty() ? firstSegment : segments.get(segments.size() - 1) + 1;
+    }
+
+    // data written before emails were canonicalized may still hold other spellings
+    private static void put(StripedUserStore users, User user) {
+        User stored = EmailKeys.canonical(user);
+        users.withLock(stored.getEmail(), () -> users.put(stored));
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.warn("User snapshot failed, the write-ahead log keeps growing until the next attempt", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.cs.persistence;
+
+import com.cs.entity.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of users shared by the write-ahead log and snapshots. Strings are
+ * length-prefixed UTF-8 with -1 for null, birth dates are epoch days, and the user's
+ * version follows the fields. Logs and snapshots written before versions existed are read
+ * with every user at version 0.
+ */
+final class UserRecordCodec {
+
+    static final byte UNVERSIONED_PUT = 1;
+    static final byte REMOVE = 2;
+    static final byte CLEAR = 3;
+    static final byte PUT = 4;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private UserRecordCodec() {
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        writeString(out, user.getEmail());
+        writeString(out, user.getFirstName());
+        writeString(out, user.getLastName());
+        out.writeLong(user.getBirthDate() == null ? NO_DATE : user.getBirthDate().toEpochDay());
+        writeString(out, user.getAddress());
+        writeString(out, user.getPhone());
+        out.writeLong(user.getVersion());
+    }
+
+    static User readUser(ByteBuffer in, boolean versioned) {
+        String email = readString(in);
+        String firstName = readString(in);
+        String lastName = readString(in);
+        long birthDay = in.getLong();
+        String address = readString(in);
+        String phone = readString(in);
+        long version = versioned ? in.getLong() : 0;
+
+        return new User(email, firstName, lastName,
+                birthDay == NO_DATE ? null : LocalDate.ofEpochDay(birthDay), address, phone, version);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    static int checksum(ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A reusable output buffer whose backing array can be read without copying.
+     */
+    static final class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
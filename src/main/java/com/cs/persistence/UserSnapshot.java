@@ -0,0 +1,135 @@
+package com.cs.persistence;
+
+import com.cs.entity.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Point-in-time copy of the user store. The file starts with a header naming the first
+ * log segment that has to be replayed on top of it, followed by checksummed blocks of user
+ * records and an empty terminating block. Blocks are memory-mapped one at a time on load,
+ * so snapshots larger than 2 GiB load the same way.
+ */
+final class UserSnapshot {
+
+    static final String FILE_NAME = "users.snapshot";
+
+    private static final int MAGIC = 0x55534e50;
+    private static final int UNVERSIONED_FORMAT = 1;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int BLOCK_HEADER_BYTES = 8;
+    private static final int BLOCK_BYTES = 8 * 1024 * 1024;
+
+    private UserSnapshot() {
+    }
+
+    /**
+     * Writes the users to a temporary file and atomically moves it over the current
+     * snapshot once it is on disk. The directory is synced after the move, so the rename is
+     * durable before the caller deletes the log segments the old snapshot still needs.
+     */
+    static void write(Path directory, long baseSegment, Iterator<User> users) throws IOException {
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        UserRecordCodec.RecordBuffer block = new UserRecordCodec.RecordBuffer(BLOCK_BYTES + 1024);
+        DataOutputStream blockOut = new DataOutputStream(block);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary), 1024 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(baseSegment);
+
+            while (users.hasNext()) {
+                UserRecordCodec.writeUser(blockOut, users.next());
+                if (block.size() >= BLOCK_BYTES) {
+                    writeBlock(out, block);
+                }
+            }
+            if (block.size() > 0) {
+                writeBlock(out, block);
+            }
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(FILE_NAME),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(directory);
+    }
+
+    /**
+     * Makes the creations, renames and deletions of files in the directory durable. Some
+     * platforms, Windows among them, cannot open a directory for syncing; there the file
+     * system gives no such guarantee to ask for and the call does nothing.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Passes every user of the snapshot to the consumer and returns the id of the first
+     * log segment written after it.
+     */
+    static long read(Path file, Consumer<User> users) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            int magic = header.getInt();
+            int format = header.getInt();
+            if (magic != MAGIC || (format != FORMAT_VERSION && format != UNVERSIONED_FORMAT)) {
+                throw new IOException("Unsupported snapshot format in " + file);
+            }
+            boolean versioned = format == FORMAT_VERSION;
+            long baseSegment = header.getLong();
+
+            long position = HEADER_BYTES;
+            while (true) {
+                ByteBuffer blockHeader = channel.map(FileChannel.MapMode.READ_ONLY, position, BLOCK_HEADER_BYTES);
+                int length = blockHeader.getInt();
+                int checksum = blockHeader.getInt();
+                if (length == 0) {
+                    return baseSegment;
+                }
+
+                position += BLOCK_HEADER_BYTES;
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (UserRecordCodec.checksum(block) != checksum) {
+                    throw new IOException("Corrupt snapshot block at offset " + position + " of " + file);
+                }
+                while (block.hasRemaining()) {
+                    users.accept(UserRecordCodec.readUser(block, versioned));
+                }
+                position += length;
+            }
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, UserRecordCodec.RecordBuffer block) throws IOException {
+        out.writeInt(block.size());
+        out.writeInt(UserRecordCodec.checksum(block.array(), 0, block.size()));
+        out.write(block.array(), 0, block.size());
+        block.reset();
+    }
+}
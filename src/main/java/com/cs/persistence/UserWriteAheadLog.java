@@ -0,0 +1,386 @@
+package com.cs.persistence;
+
+import com.cs.entity.User;
+import com.cs.store.UserMutationListener;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of user mutations, split into numbered segment files.
+ * <p>
+ * Records are appended to an in-memory batch while the store holds the segment lock, so
+ * the log order matches the order of changes per user. After the store releases its locks
+ * the mutating thread waits in {@link #afterUnlock()} until its record is durable. The
+ * first waiter writes and fsyncs everything appended so far, and threads that arrive in the
+ * meantime wait for the next batch, so one fsync commits many concurrent writes.
+ * <p>
+ * A failed write or fsync fails the log for good: the records of that batch are not
+ * durable and may be torn on disk, so every thread still waiting for them gets the failure
+ * instead of returning as if its record were durable. Their changes stay applied in memory.
+ * Every later write is refused in {@link #beforeChange()}, before the store applies it.
+ * <p>
+ * Each record is framed as {@code [int length][int crc32c][payload]}; replay stops at the
+ * first torn or corrupt record of the last segment.
+ */
+public class UserWriteAheadLog implements UserMutationListener, Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final SegmentOpener opener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final UserRecordCodec.RecordBuffer record = new UserRecordCodec.RecordBuffer(256);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final ThreadLocal<Long> unsynced = new ThreadLocal<>();
+
+    private UserRecordCodec.RecordBuffer batch = new UserRecordCodec.RecordBuffer(64 * 1024);
+    private UserRecordCodec.RecordBuffer spare = new UserRecordCodec.RecordBuffer(64 * 1024);
+    private long segmentId;
+    private FileChannel channel;
+    private OutputStream channelOut;
+    private long appendedPosition;
+    private long durablePosition;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    public UserWriteAheadLog(Path directory, long segmentId, boolean fsync) throws IOException {
+        this(directory, segmentId, fsync, segment -> FileChannel.open(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    public UserWriteAheadLog(Path directory, long segmentId, boolean fsync, SegmentOpener opener) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.opener = opener;
+        openSegment(segmentId);
+    }
+
+    public long segmentId() {
+        lock.lock();
+        try {
+            return segmentId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refuses every change once the log is closed or has failed, before the store applies it.
+     */
+    @Override
+    public void beforeChange() {
+        lock.lock();
+        try {
+            checkOpen();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onPut(User previous, User user) {
+        append(UserRecordCodec.PUT, user, null);
+    }
+
+    @Override
+    public void onRemove(User removed) {
+        append(UserRecordCodec.REMOVE, null, removed.getEmail());
+    }
+
+    @Override
+    public void onClear() {
+        append(UserRecordCodec.CLEAR, null, null);
+    }
+
+    @Override
+    public void afterUnlock() {
+        Long position = unsynced.get();
+        if (position != null) {
+            unsynced.remove();
+            sync(position);
+        }
+    }
+
+    /**
+     * Flushes what is buffered into the current segment and continues in a new one.
+     * Every record appended before this call is in an older segment, every later one in
+     * the returned segment.
+     */
+    public long roll() throws IOException {
+        lock.lock();
+        try {
+            awaitFlushIdle();
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed earlier", failure);
+            }
+            writeBatch();
+            channel.close();
+            openSegment(segmentId + 1);
+            return segmentId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            awaitFlushIdle();
+            closed = true;
+            try {
+                // after a failure the buffered records follow lost ones and must not be written
+                if (failure == null) {
+                    writeBatch();
+                }
+            } finally {
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(byte type, User user, String email) {
+        lock.lock();
+        try {
+            checkOpen();
+
+            record.reset();
+            recordOut.writeByte(type);
+            if (user != null) {
+                UserRecordCodec.writeUser(recordOut, user);
+            } else if (email != null) {
+                UserRecordCodec.writeString(recordOut, email);
+            }
+
+            DataOutputStream batchOut = new DataOutputStream(batch);
+            batchOut.writeInt(record.size());
+            batchOut.writeInt(UserRecordCodec.checksum(record.array(), 0, record.size()));
+            batchOut.write(record.array(), 0, record.size());
+
+            appendedPosition += HEADER_BYTES + record.size();
+            unsynced.set(appendedPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sync(long position) {
+        lock.lock();
+        try {
+            while (durablePosition < position) {
+                checkNotFailed();
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+
+                // this thread leads the next group commit
+                flushing = true;
+                UserRecordCodec.RecordBuffer toWrite = batch;
+                batch = spare;
+                long target = appendedPosition;
+                FileChannel flushChannel = channel;
+                OutputStream out = channelOut;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    toWrite.writeTo(out);
+                    if (fsync) {
+                        flushChannel.force(false);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e);
+                } finally {
+                    lock.lock();
+                    flushing = false;
+                    if (error == null) {
+                        toWrite.reset();
+                        spare = toWrite;
+                        durablePosition = target;
+                    } else {
+                        failure = error;
+                    }
+                    flushed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds the lock
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        checkNotFailed();
+    }
+
+    // caller holds the lock
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed, the write may not be durable", failure);
+        }
+    }
+
+    private void awaitFlushIdle() {
+        while (flushing) {
+            flushed.awaitUninterruptibly();
+        }
+    }
+
+    // caller holds the lock and no flush is running
+    private void writeBatch() throws IOException {
+        try {
+            batch.writeTo(channelOut);
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        batch.reset();
+        durablePosition = appendedPosition;
+    }
+
+    private void openSegment(long id) throws IOException {
+        channel = opener.open(segmentPath(directory, id));
+        channelOut = Channels.newOutputStream(channel);
+        segmentId = id;
+        // records fsynced into a new segment are lost with it unless its directory entry is durable
+        UserSnapshot.syncDirectory(directory);
+    }
+
+    static Path segmentPath(Path directory, long id) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Ids of the segments present in the directory, in ascending order.
+     */
+    static List<Long> segmentIds(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static void deleteSegmentsBefore(Path directory, long id) throws IOException {
+        for (long segment : segmentIds(directory)) {
+            if (segment < id) {
+                Files.deleteIfExists(segmentPath(directory, segment));
+            }
+        }
+    }
+
+    /**
+     * Applies every intact record of the segment to the replay target. When
+     * {@code truncateTornTail} is set, a torn or corrupt tail, left by a crash during a
+     * write, is cut off; otherwise it is reported as an error.
+     */
+    static void replay(Path segment, Replay target, boolean truncateTornTail) throws IOException {
+        long validLength;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment " + segment + " is larger than 2 GiB");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            validLength = replay(buffer, target);
+            if (validLength == size) {
+                return;
+            }
+        }
+
+        if (!truncateTornTail) {
+            throw new IOException("Corrupt record at offset " + validLength + " of " + segment);
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+    }
+
+    private static long replay(ByteBuffer buffer, Replay target) {
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            if (UserRecordCodec.checksum(payload) != checksum) {
+                return start;
+            }
+            buffer.position(buffer.position() + length);
+
+            switch (payload.get()) {
+                case UserRecordCodec.PUT -> target.put(UserRecordCodec.readUser(payload, true));
+                case UserRecordCodec.UNVERSIONED_PUT -> target.put(UserRecordCodec.readUser(payload, false));
+                case UserRecordCodec.REMOVE -> target.remove(UserRecordCodec.readString(payload));
+                case UserRecordCodec.CLEAR -> target.clear();
+                default -> {
+                    return start;
+                }
+            }
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Opens a segment file for appending.
+     */
+    @FunctionalInterface
+    public interface SegmentOpener {
+
+        FileChannel open(Path segment) throws IOException;
+    }
+
+    interface Replay {
+
+        void put(User user);
+
+        void remove(String email);
+
+        void clear();
+    }
+}
@@ -0,0 +1,35 @@
+package com.cs.query;
+
+import com.cs.entity.User;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Candidates read through an index: how many there are (exactly, or as counted up to the
+ * planner's budget), the {@link UserSort#complete completed} order they come in, empty when
+ * unordered, and a lazy stream of them.
+ */
+public record IndexScan(String name, long estimate, List<UserSort> order, Supplier<Stream<User>> users) {
+
+    public IndexScan {
+        order = List.copyOf(order);
+    }
+
+    public static IndexScan unordered(String name, List<User> users) {
+        return new IndexScan(name, users.size(), List.of(), users::stream);
+    }
+
+    /**
+     * An index read whose size is unknown up front, estimated by walking it until more
+     * than {@code budget} candidates are seen.
+     */
+    public static IndexScan counted(String name, List<UserSort> order, Supplier<Stream<User>> users, long budget) {
+        long estimate;
+        try (Stream<User> candidates = users.get()) {
+            estimate = candidates.limit(Math.max(budget + 1, 0)).count();
+        }
+        return new IndexScan(name, estimate, order, users);
+    }
+}
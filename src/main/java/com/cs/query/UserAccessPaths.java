@@ -0,0 +1,27 @@
+package com.cs.query;
+
+import com.cs.entity.User;
+
+import java.util.stream.Stream;
+
+/**
+ * The ways a store can read users for {@link UserQueryPlanner}: a full scan, and whatever
+ * indexes it keeps for single conditions.
+ */
+public interface UserAccessPaths {
+
+    long size();
+
+    /**
+     * Every user, as a parallel stream split over the store's segments, in no particular
+     * order.
+     */
+    Stream<User> scan();
+
+    /**
+     * An index read returning at least the users matching {@code condition}, or
+     * {@code null} when no index serves it or it would return more than {@code budget}
+     * users. Stores may stop counting candidates at the budget.
+     */
+    IndexScan index(UserPredicate.Condition condition, long budget);
+}
@@ -0,0 +1,100 @@
+package com.cs.query;
+
+import com.cs.entity.User;
+import com.cs.exception.user.UserValidationException;
+import com.cs.store.EmailKeys;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * The {@link User} fields a query can filter and sort on, named as in the JSON form of a
+ * user. Names compare case-insensitively, like the name searches of the store; emails are
+ * compared in the canonical form the store keeps them in, so filter values are
+ * canonicalized too; every other field compares exactly.
+ */
+public enum UserField {
+
+    EMAIL("email", User::getEmail, false),
+    FIRST_NAME("firstName", User::getFirstName, true),
+    LAST_NAME("lastName", User::getLastName, true),
+    BIRTH_DATE("birthDate", User::getBirthDate, false),
+    ADDRESS("address", User::getAddress, false),
+    PHONE("phone", User::getPhone, false);
+
+    private final String property;
+    private final Function<User, ?> accessor;
+    private final boolean ignoresCase;
+
+    UserField(String property, Function<User, ?> accessor, boolean ignoresCase) {
+        this.property = property;
+        this.accessor = accessor;
+        this.ignoresCase = ignoresCase;
+    }
+
+    public static UserField of(String property) {
+        for (UserField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new UserValidationException("Users have no field " + property);
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public boolean ignoresCase() {
+        return ignoresCase;
+    }
+
+    /**
+     * The field of the user, or {@code null} when it is not set.
+     */
+    public Object value(User user) {
+        return accessor.apply(user);
+    }
+
+    /**
+     * Turns the text form of a value, as written in a filter, into a value of this field.
+     */
+    public Object parse(String text) {
+        if (this == EMAIL) {
+            return EmailKeys.canonical(text);
+        }
+        if (this != BIRTH_DATE) {
+            return text;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new UserValidationException(property + " must be a date like 2000-01-31, not " + text);
+        }
+    }
+
+    /**
+     * Compares two non-null values of this field.
+     */
+    public int compare(Object a, Object b) {
+        if (this == BIRTH_DATE) {
+            return ((LocalDate) a).compareTo((LocalDate) b);
+        }
+        return ignoresCase ? normalize((String) a).compareTo(normalize((String) b))
+                : ((String) a).compareTo((String) b);
+    }
+
+    /**
+     * Orders users by this field, users without it last.
+     */
+    public Comparator<User> order() {
+        return Comparator.comparing(this::value, Comparator.nullsLast(this::compare));
+    }
+
+    String normalize(String value) {
+        return ignoresCase ? value.toLowerCase(Locale.ROOT) : value;
+    }
+}
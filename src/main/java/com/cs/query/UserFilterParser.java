@@ -0,0 +1,151 @@
+package com.cs.query;
+
+import com.cs.exception.user.UserValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive-descent parser of the filter syntax described on {@link UserQuery}.
+ */
+final class UserFilterParser {
+
+    private static final String OPERATOR_CHARS = "=<>^";
+
+    private final String text;
+    private int position;
+
+    UserFilterParser(String text) {
+        this.text = text;
+    }
+
+    UserPredicate parse() {
+        UserPredicate predicate = or();
+        skipSpaces();
+        if (position < text.length()) {
+            throw error("unexpected " + text.substring(position));
+        }
+        return predicate;
+    }
+
+    private UserPredicate or() {
+        List<UserPredicate> predicates = new ArrayList<>();
+        predicates.add(and());
+        while (keyword("or")) {
+            predicates.add(and());
+        }
+        return UserPredicate.Or.of(predicates);
+    }
+
+    private UserPredicate and() {
+        List<UserPredicate> predicates = new ArrayList<>();
+        predicates.add(term());
+        while (keyword("and")) {
+            predicates.add(term());
+        }
+        return UserPredicate.And.of(predicates);
+    }
+
+    private UserPredicate term() {
+        skipSpaces();
+        if (position < text.length() && text.charAt(position) == '(') {
+            position++;
+            UserPredicate predicate = or();
+            skipSpaces();
+            if (position == text.length() || text.charAt(position) != ')') {
+                throw error("missing )");
+            }
+            position++;
+            return predicate;
+        }
+
+        String property = word();
+        if (property.isEmpty()) {
+            throw error("a field is expected at " + position);
+        }
+        UserField field = UserField.of(property);
+        String operator = operator();
+        String value = value();
+        return switch (operator) {
+            case "=" -> new UserPredicate.Equal(field, field.parse(value));
+            // emails are canonical, so are prefixes of them
+            case "^=" -> new UserPredicate.Prefix(field, field == UserField.EMAIL ? (String) field.parse(value) : value);
+            case "<" -> new UserPredicate.Range(field, null, false, field.parse(value), false);
+            case "<=" -> new UserPredicate.Range(field, null, false, field.parse(value), true);
+            case ">" -> new UserPredicate.Range(field, field.parse(value), false, null, false);
+            case ">=" -> new UserPredicate.Range(field, field.parse(value), true, null, false);
+            default -> throw error("unknown operator " + operator + " after " + property);
+        };
+    }
+
+    private String operator() {
+        skipSpaces();
+        int start = position;
+        while (position < text.length() && OPERATOR_CHARS.indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        return text.substring(start, position);
+    }
+
+    private String value() {
+        skipSpaces();
+        if (position == text.length() || text.charAt(position) != '\'') {
+            String word = word();
+            if (word.isEmpty()) {
+                throw error("a value is expected at " + position);
+            }
+            return word;
+        }
+
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (true) {
+            int quote = text.indexOf('\'', position);
+            if (quote < 0) {
+                throw error("unterminated quote");
+            }
+            value.append(text, position, quote);
+            position = quote + 1;
+            if (position < text.length() && text.charAt(position) == '\'') {
+                value.append('\'');
+                position++;
+            } else {
+                return value.toString();
+            }
+        }
+    }
+
+    private String word() {
+        skipSpaces();
+        int start = position;
+        while (position < text.length() && isWordChar(text.charAt(position))) {
+            position++;
+        }
+        return text.substring(start, position);
+    }
+
+    private boolean keyword(String keyword) {
+        skipSpaces();
+        int end = position + keyword.length();
+        if (end <= text.length() && text.regionMatches(true, position, keyword, 0, keyword.length())
+                && (end == text.length() || !isWordChar(text.charAt(end)))) {
+            position = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return !Character.isWhitespace(c) && c != '(' && c != ')' && c != '\'' && OPERATOR_CHARS.indexOf(c) < 0;
+    }
+
+    private UserValidationException error(String problem) {
+        return new UserValidationException("Invalid filter, " + problem + ": " + text);
+    }
+}
@@ -0,0 +1,199 @@
+package com.cs.query;
+
+import com.cs.entity.User;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A condition on users: a comparison of one field, or an AND / OR of conditions. Users
+ * lacking the compared field match no comparison. {@link #toString()} gives the filter
+ * syntax of {@link UserQuery}, which parses back to an equal predicate.
+ */
+public sealed interface UserPredicate {
+
+    boolean test(User user);
+
+    /**
+     * A comparison of one field, the part of a predicate an index can answer.
+     */
+    sealed interface Condition extends UserPredicate {
+        UserField field();
+    }
+
+    record Equal(UserField field, Object value) implements Condition {
+        @Override
+        public boolean test(User user) {
+            Object actual = field.value(user);
+            return actual != null && field.compare(actual, value) == 0;
+        }
+
+        @Override
+        public String toString() {
+            return field.property() + " = " + quote(value);
+        }
+    }
+
+    record Prefix(UserField field, String prefix) implements Condition {
+        @Override
+        public boolean test(User user) {
+            Object actual = field.value(user);
+            return actual != null && field.normalize(actual.toString()).startsWith(field.normalize(prefix));
+        }
+
+        @Override
+        public String toString() {
+            return field.property() + " ^= " + quote(prefix);
+        }
+    }
+
+    /**
+     * Values between two bounds; a {@code null} bound leaves that side open.
+     */
+    record Range(UserField field, Object from, boolean fromInclusive, Object to, boolean toInclusive)
+            implements Condition {
+        public Range {
+            if (from == null && to == null) {
+                throw new IllegalArgumentException("A range needs at least one bound");
+            }
+        }
+
+        @Override
+        public boolean test(User user) {
+            Object actual = field.value(user);
+            if (actual == null) {
+                return false;
+            }
+            if (from != null) {
+                int compared = field.compare(actual, from);
+                if (compared < 0 || compared == 0 && !fromInclusive) {
+                    return false;
+                }
+            }
+            if (to != null) {
+                int compared = field.compare(actual, to);
+                return compared < 0 || compared == 0 && toInclusive;
+            }
+            return true;
+        }
+
+        // the range of both bounds; the tighter bound wins, and of equal bounds the exclusive one
+        Range intersect(Range other) {
+            Object lower = from;
+            boolean lowerInclusive = fromInclusive;
+            if (lower == null || other.from != null && field.compare(other.from, lower) > 0) {
+                lower = other.from;
+                lowerInclusive = other.fromInclusive;
+            } else if (other.from != null && field.compare(other.from, lower) == 0) {
+                lowerInclusive &= other.fromInclusive;
+            }
+            Object upper = to;
+            boolean upperInclusive = toInclusive;
+            if (upper == null || other.to != null && field.compare(other.to, upper) < 0) {
+                upper = other.to;
+                upperInclusive = other.toInclusive;
+            } else if (other.to != null && field.compare(other.to, upper) == 0) {
+                upperInclusive &= other.toInclusive;
+            }
+            return new Range(field, lower, lowerInclusive, upper, upperInclusive);
+        }
+
+        @Override
+        public String toString() {
+            String lower = from == null ? null : field.property() + (fromInclusive ? " >= " : " > ") + quote(from);
+            String upper = to == null ? null : field.property() + (toInclusive ? " <= " : " < ") + quote(to);
+            if (lower == null || upper == null) {
+                return lower != null ? lower : upper;
+            }
+            return lower + " and " + upper;
+        }
+    }
+
+    record And(List<UserPredicate> predicates) implements UserPredicate {
+        public And {
+            predicates = List.copyOf(predicates);
+        }
+
+        /**
+         * The conjunction of the predicates, with nested conjunctions flattened and the
+         * ranges on one field intersected into a single range, so an index can read it as
+         * one interval.
+         */
+        public static UserPredicate of(List<UserPredicate> predicates) {
+            List<UserPredicate> flat = new ArrayList<>();
+            Map<UserField, Range> ranges = new LinkedHashMap<>();
+            for (UserPredicate predicate : predicates) {
+                List<UserPredicate> parts = predicate instanceof And and ? and.predicates : List.of(predicate);
+                for (UserPredicate part : parts) {
+                    if (part instanceof Range range) {
+                        ranges.merge(range.field(), range, Range::intersect);
+                    } else {
+                        flat.add(part);
+                    }
+                }
+            }
+            flat.addAll(ranges.values());
+            return flat.size() == 1 ? flat.get(0) : new And(flat);
+        }
+
+        @Override
+        public boolean test(User user) {
+            for (UserPredicate predicate : predicates) {
+                if (!predicate.test(user)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return predicates.stream()
+                    .map(predicate -> predicate instanceof Or ? "(" + predicate + ")" : predicate.toString())
+                    .collect(Collectors.joining(" and "));
+        }
+    }
+
+    record Or(List<UserPredicate> predicates) implements UserPredicate {
+        public Or {
+            predicates = List.copyOf(predicates);
+        }
+
+        /**
+         * The disjunction of the predicates, with nested disjunctions flattened.
+         */
+        public static UserPredicate of(List<UserPredicate> predicates) {
+            List<UserPredicate> flat = new ArrayList<>();
+            for (UserPredicate predicate : predicates) {
+                if (predicate instanceof Or or) {
+                    flat.addAll(or.predicates);
+                } else {
+                    flat.add(predicate);
+                }
+            }
+            return flat.size() == 1 ? flat.get(0) : new Or(flat);
+        }
+
+        @Override
+        public boolean test(User user) {
+            for (UserPredicate predicate : predicates) {
+                if (predicate.test(user)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return predicates.stream().map(UserPredicate::toString).collect(Collectors.joining(" or "));
+        }
+    }
+
+    private static String quote(Object value) {
+        return "'" + value.toString().replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,61 @@
+package com.cs.query;
+
+import com.cs.exception.user.UserValidationException;
+
+import java.util.List;
+
+/**
+ * Users matching {@code where} (every user when it is {@code null}), ordered by
+ * {@code sort} and cut off after {@code limit}. Without sort keys the order is whatever is
+ * cheapest to produce and may change between calls.
+ * <p>
+ * Filters are written as comparisons of user fields combined with {@code and}, which binds
+ * tighter, {@code or} and parentheses:
+ * <pre>
+ * lastName = 'Smith' and (birthDate &gt;= 1990-01-01 or firstName ^= an)
+ * </pre>
+ * The operators are {@code = < <= > >=} and {@code ^=} for "starts with". Values are single
+ * words or quoted with {@code '}, doubling a quote inside one; birth dates are ISO dates.
+ */
+public record UserQuery(UserPredicate where, List<UserSort> sort, int limit) {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    public UserQuery {
+        sort = List.copyOf(sort);
+        if (limit < 1) {
+            throw new UserValidationException("A query limit must be positive");
+        }
+    }
+
+    public static UserQuery where(UserPredicate where) {
+        return new UserQuery(where, List.of(), NO_LIMIT);
+    }
+
+    /**
+     * Parses the request parameters of a query; each may be {@code null}.
+     */
+    public static UserQuery parse(String filter, String sort, Integer limit) {
+        UserPredicate where = filter == null || filter.isBlank() ? null : new UserFilterParser(filter).parse();
+        return new UserQuery(where, UserSort.parseAll(sort), limit == null ? NO_LIMIT : limit);
+    }
+
+    public UserQuery sortedBy(UserSort... keys) {
+        return new UserQuery(where, List.of(keys), limit);
+    }
+
+    public UserQuery limit(int limit) {
+        return new UserQuery(where, sort, limit);
+    }
+
+    public boolean limited() {
+        return limit != NO_LIMIT;
+    }
+
+    /**
+     * The filter in the syntax {@link #parse} reads, or {@code null} without one.
+     */
+    public String filter() {
+        return where == null ? null : where.toString();
+    }
+}
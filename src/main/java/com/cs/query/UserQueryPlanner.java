@@ -0,0 +1,112 @@
+package com.cs.query;
+
+import com.cs.entity.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Chooses how to answer a {@link UserQuery} from the access paths of a store.
+ * <p>
+ * A condition is read through an index when the store has one for it; of the conditions
+ * of an AND the one with the fewest candidates is read; an OR is read as the union of its
+ * parts when every part has an index. An index is only used while its candidates stay
+ * under {@link #scanFraction()} of the store; above that, and for queries no index serves,
+ * the store is scanned in parallel over its segments. Either way the whole filter is then
+ * applied to the candidates, the result is sorted unless the index already returns the
+ * requested order, and the limit is applied last. Nothing is read until the stream of the
+ * plan is consumed.
+ */
+public final class UserQueryPlanner {
+
+    /**
+     * Cost of scanning the whole store on one thread, in reads of one candidate through
+     * an ordered index, as measured by {@code QueryPlannerBenchmark}: a million-user scan
+     * takes about as long as reading 1.7 million index entries.
+     */
+    static final double SCAN_COST = 1.7;
+
+    private UserQueryPlanner() {
+    }
+
+    /**
+     * Share of the store above which a parallel scan beats reading candidates through an
+     * index: the single-threaded crossover divided by the threads the scan runs on.
+     */
+    public static double scanFraction() {
+        return Math.min(1, SCAN_COST / ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public static QueryPlan plan(UserQuery query, UserAccessPaths paths) {
+        return plan(query, paths, scanFraction());
+    }
+
+    public static QueryPlan plan(UserQuery query, UserAccessPaths paths, double scanFraction) {
+        long budget = (long) (paths.size() * scanFraction);
+        IndexScan index = query.where() == null ? null : access(query.where(), paths, budget);
+        List<UserSort> order = UserSort.complete(query.sort());
+        boolean sorted = !query.sort().isEmpty() && (index == null || !index.order().equals(order));
+
+        Supplier<Stream<User>> users = () -> {
+            Stream<User> stream = index == null ? paths.scan() : index.users().get();
+            if (query.where() != null) {
+                stream = stream.filter(query.where()::test);
+            }
+            if (sorted) {
+                stream = stream.sorted(UserSort.comparator(query.sort()));
+            } else if (query.sort().isEmpty()) {
+                // any matching users will do, so a parallel scan may stop at the limit early
+                stream = stream.unordered();
+            }
+            return query.limited() ? stream.limit(query.limit()) : stream;
+        };
+        String access = index == null ? "parallel scan" : index.name();
+        return new QueryPlan(sorted ? access + ", sorted" : access, users);
+    }
+
+    // the cheapest index read covering every user matching the predicate, or null
+    private static IndexScan access(UserPredicate predicate, UserAccessPaths paths, long budget) {
+        if (predicate instanceof UserPredicate.Condition condition) {
+            IndexScan index = paths.index(condition, budget);
+            return index == null || index.estimate() > budget ? null : index;
+        }
+        if (predicate instanceof UserPredicate.And and) {
+            IndexScan best = null;
+            for (UserPredicate part : and.predicates()) {
+                IndexScan index = access(part, paths, best == null ? budget : best.estimate() - 1);
+                if (index != null && (best == null || index.estimate() < best.estimate())) {
+                    best = index;
+                }
+            }
+            return best;
+        }
+
+        List<IndexScan> parts = new ArrayList<>();
+        long estimate = 0;
+        for (UserPredicate part : ((UserPredicate.Or) predicate).predicates()) {
+            IndexScan index = access(part, paths, budget - estimate);
+            if (index == null) {
+                return null;
+            }
+            parts.add(index);
+            estimate += index.estimate();
+        }
+        String name = parts.stream().map(IndexScan::name).collect(Collectors.joining(" + ", "union(", ")"));
+        return new IndexScan(name, estimate, List.of(),
+                () -> parts.stream().flatMap(part -> part.users().get()).distinct());
+    }
+
+    /**
+     * How a query will run, described by {@link #access()}, and the lazy stream running it.
+     */
+    public record QueryPlan(String access, Supplier<Stream<User>> users) {
+
+        public Stream<User> execute() {
+            return users.get();
+        }
+    }
+}
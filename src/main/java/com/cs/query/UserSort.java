@@ -0,0 +1,77 @@
+package com.cs.query;
+
+import com.cs.entity.User;
+import com.cs.exception.user.UserValidationException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One sort key of a query. Written as the field name, with a leading {@code -} for
+ * descending order.
+ */
+public record UserSort(UserField field, boolean descending) {
+
+    public static UserSort ascending(UserField field) {
+        return new UserSort(field, false);
+    }
+
+    /**
+     * Parses a comma-separated list of sort keys such as {@code lastName,-birthDate}.
+     */
+    public static List<UserSort> parseAll(String text) {
+        List<UserSort> sort = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return sort;
+        }
+        for (String key : text.split(",")) {
+            String trimmed = key.trim();
+            if (trimmed.isEmpty()) {
+                throw new UserValidationException("Empty sort key in " + text);
+            }
+            boolean descending = trimmed.startsWith("-");
+            sort.add(new UserSort(UserField.of(descending ? trimmed.substring(1) : trimmed), descending));
+        }
+        return sort;
+    }
+
+    public static String toString(List<UserSort> sort) {
+        return sort.stream().map(UserSort::toString).collect(Collectors.joining(","));
+    }
+
+    /**
+     * The keys up to the first email key, with ascending email appended when there is
+     * none: email is unique, so this is a total order equivalent to {@code sort}, and two
+     * orders are the same exactly when their completions are equal.
+     */
+    public static List<UserSort> complete(List<UserSort> sort) {
+        List<UserSort> complete = new ArrayList<>();
+        for (UserSort key : sort) {
+            complete.add(key);
+            if (key.field == UserField.EMAIL) {
+                return complete;
+            }
+        }
+        complete.add(ascending(UserField.EMAIL));
+        return complete;
+    }
+
+    /**
+     * The total order of {@link #complete(List)}.
+     */
+    public static Comparator<User> comparator(List<UserSort> sort) {
+        Comparator<User> order = null;
+        for (UserSort key : complete(sort)) {
+            Comparator<User> next = key.descending ? key.field.order().reversed() : key.field.order();
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return (descending ? "-" : "") + field.property();
+    }
+}
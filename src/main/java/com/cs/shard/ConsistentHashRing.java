@@ -0,0 +1,104 @@
+package com.cs.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable consistent-hash ring: every node is placed at {@code virtualNodes} points of a
+ * 64-bit circle and a key belongs to the first point at or after its own hash. Adding a
+ * node only takes over the keys that now hash next to one of its points, about 1/(N+1) of
+ * them, and leaves every other key where it was.
+ * <p>
+ * The hash is computed from the UTF-8 bytes, not {@link String#hashCode()}, so every
+ * process that builds a ring from the same node names agrees on the owners.
+ */
+public final class ConsistentHashRing<T> {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, T> nodes;
+    private final int virtualNodes;
+    private final long[] points;
+    private final String[] owners;
+
+    private ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive, was " + virtualNodes);
+        }
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+        this.virtualNodes = virtualNodes;
+
+        record Point(long hash, String owner) {
+        }
+        Point[] placed = nodes.keySet().stream()
+                .flatMap(name -> IntStream.range(0, virtualNodes)
+                        .mapToObj(replica -> new Point(hash(name + "#" + replica), name)))
+                // ties between names are broken by name, so the order never depends on insertion
+                .sorted((a, b) -> a.hash() != b.hash() ? Long.compare(a.hash(), b.hash()) : a.owner().compareTo(b.owner()))
+                .toArray(Point[]::new);
+        points = new long[placed.length];
+        owners = new String[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i].hash();
+            owners[i] = placed[i].owner();
+        }
+    }
+
+    public static <T> ConsistentHashRing<T> of(Map<String, T> nodes, int virtualNodes) {
+        return new ConsistentHashRing<>(nodes, virtualNodes);
+    }
+
+    /**
+     * A ring with one more node; this one is left unchanged.
+     */
+    public ConsistentHashRing<T> with(String name, T node) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Node " + name + " is already on the ring");
+        }
+        Map<String, T> grown = new LinkedHashMap<>(nodes);
+        grown.put(name, node);
+        return new ConsistentHashRing<>(grown, virtualNodes);
+    }
+
+    public T nodeFor(String key) {
+        return nodes.get(nameFor(key));
+    }
+
+    public String nameFor(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Nodes by name, in the order they joined.
+     */
+    public Map<String, T> nodes() {
+        return nodes;
+    }
+
+    // FNV-1a spreads short keys poorly in the high bits; the MurmurHash3 finalizer fixes that
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
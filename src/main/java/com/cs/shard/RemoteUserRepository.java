@@ -0,0 +1,384 @@
+package com.cs.shard;
+
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.query.UserQuery;
+import com.cs.query.UserSort;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link UserRepository} backed by another instance of this service, called through its
+ * {@code /users} API; {@link #restore} goes to the internal endpoint that instances
+ * started with {@code user.shards.member} serve. Error statuses are turned back into the domain exceptions the remote
+ * repository threw, and single-user responses carry the stored version in their entity
+ * tag, so versions and conditional writes work as they do locally. Users in lists have no
+ * version. Full scans, queries and birth-date ranges are streamed as NDJSON and parsed
+ * one line at a time.
+ */
+public class RemoteUserRepository implements UserRepository {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String JSON = "application/json";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String RESTORE_PATH = "/internal/shard/users";
+    private static final String VERSION_HEADER = "X-User-Version";
+    private static final TypeReference<List<User>> USERS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<UserBatchResult>> BATCH_RESULTS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<AgeBucket>> AGE_BUCKETS = new TypeReference<>() {
+    };
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final Duration timeout;
+
+    public RemoteUserRepository(URI baseUri, HttpClient client, ObjectMapper mapper, Duration timeout) {
+        String base = baseUri.toString();
+        this.baseUri = URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) : base);
+        this.client = client;
+        this.mapper = mapper;
+        this.timeout = timeout;
+    }
+
+    public URI baseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public boolean readsBlock() {
+        return true;
+    }
+
+    @Override
+    public boolean writesBlock() {
+        return true;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return findOptionalByEmail(email).orElseThrow(() -> new UserNotFoundException("User with email " +
+                                                                                      email +
+                                                                                      " was not found"));
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        try {
+            return Optional.of(versioned(send(request(user(email)).GET())));
+        } catch (UserNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        return read(send(request("/users").GET()), USERS);
+    }
+
+    @Override
+    public long count() {
+        return read(send(request("/users/count").GET()), Long.class);
+    }
+
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        HttpResponse<byte[]> response = send(request("/users" + query("cursor", cursor, "limit", limit)).GET());
+        return new UserPage(read(response, USERS), response.headers().firstValue(NEXT_CURSOR_HEADER).orElse(null));
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return lines("/users");
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return read(send(request("/users/search" + query("phone", phone)).GET()), USERS);
+    }
+
+    @Override
+    public List<User> findByLastName(String lastName) {
+        return read(send(request("/users/search" + query("lastName", lastName)).GET()), USERS);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return read(send(request("/users/search" + query("namePrefix", prefix, "limit", limit)).GET()), USERS);
+    }
+
+    @Override
+    public User save(User user) {
+        return versioned(send(request("/users").POST(json(user))));
+    }
+
+    @Override
+    public List<UserBatchResult> saveAll(List<User> users) {
+        return read(send(request("/users/batch").POST(json(users))), BATCH_RESULTS);
+    }
+
+    @Override
+    public User restore(User user) {
+        return versioned(send(request(RESTORE_PATH).header(VERSION_HEADER, Long.toString(user.getVersion()))
+                .POST(json(user))));
+    }
+
+    @Override
+    public User update(String email, User user, long expectedVersion) {
+        return versioned(send(ifMatch(request(user(email)), expectedVersion).PUT(json(user))));
+    }
+
+    @Override
+    public User patchUser(String email, User newUser, long expectedVersion) {
+        return versioned(send(ifMatch(request(user(email)), expectedVersion).method("PATCH", json(newUser))));
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        send(request(user(email)).DELETE());
+    }
+
+    /**
+     * Deletes user by user; the API has no bulk delete, so this is for tests and small
+     * stores.
+     */
+    @Override
+    public void deleteAll() {
+        List<String> emails;
+        try (Stream<User> users = streamAll()) {
+            emails = users.map(User::getEmail).toList();
+        }
+        for (String email : emails) {
+            try {
+                deleteByEmail(email);
+            } catch (UserNotFoundException e) {
+                // deleted meanwhile
+            }
+        }
+    }
+
+    @Override
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        return read(send(request(range(dateFrom, fromInclusive, dateTo, toInclusive)).GET()), USERS);
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return lines(range(dateFrom, fromInclusive, dateTo, toInclusive));
+    }
+
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        return read(send(request("/users/birthdays" + query("month", day.getMonthValue(),
+                "day", day.getDayOfMonth())).GET()), USERS);
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return read(send(request(range("/users/in-birth-date-range/count", dateFrom, fromInclusive,
+                dateTo, toInclusive)).GET()), Long.class);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(LocalDate date, int width, int maxAge) {
+        return read(send(request("/users/age-histogram" + query("date", date, "width", width,
+                "maxAge", maxAge)).GET()), AGE_BUCKETS);
+    }
+
+    @Override
+    public Stream<User> query(UserQuery query) {
+        return lines("/users" + query("filter", query.filter(),
+                "sort", query.sort().isEmpty() ? null : UserSort.toString(query.sort()),
+                "limit", query.limited() ? query.limit() : null));
+    }
+
+    @Override
+    public String toString() {
+        return baseUri.toString();
+    }
+
+    private Stream<User> lines(String path) {
+        HttpRequest request = request(path).setHeader("Accept", NDJSON).GET().build();
+        HttpResponse<Stream<String>> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        } catch (IOException e) {
+            throw unavailable(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable(e);
+        }
+        if (response.statusCode() != 200) {
+            String body;
+            try (Stream<String> lines = response.body()) {
+                body = lines.collect(Collectors.joining("\n"));
+            }
+            throw failure(response.statusCode(), body.getBytes(StandardCharsets.UTF_8));
+        }
+        return response.body()
+                .filter(line -> !line.isEmpty())
+                .map(line -> read(line.getBytes(StandardCharsets.UTF_8), User.class));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(timeout)
+                .header("Accept", JSON);
+    }
+
+    private static HttpRequest.Builder ifMatch(HttpRequest.Builder request, long expectedVersion) {
+        return expectedVersion == ANY_VERSION ? request : request.header("If-Match", "\"" + expectedVersion + "\"");
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) {
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.header("Content-Type", JSON).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw unavailable(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable(e);
+        }
+        if (response.statusCode() >= 300) {
+            throw failure(response.statusCode(), response.body());
+        }
+        return response;
+    }
+
+    private User versioned(HttpResponse<byte[]> response) {
+        User user = read(response.body(), User.class);
+        return response.headers().firstValue("ETag")
+                .map(RemoteUserRepository::version)
+                .map(user::withVersion)
+                .orElse(user);
+    }
+
+    private static long version(String etag) {
+        String tag = etag.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag, 1, tag.length() - 1, 10);
+            } catch (NumberFormatException ignored) {
+                // not a version tag, the user keeps version 0
+            }
+        }
+        return 0;
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, TypeReference<T> type) {
+        try {
+            return mapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new ShardUnavailableException("Shard " + baseUri + " sent an unreadable response", e);
+        }
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, Class<T> type) {
+        return read(response.body(), type);
+    }
+
+    private <T> T read(byte[] body, Class<T> type) {
+        try {
+            return mapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new ShardUnavailableException("Shard " + baseUri + " sent an unreadable response", e);
+        }
+    }
+
+    private RuntimeException failure(int status, byte[] body) {
+        String message = message(body);
+        return switch (status) {
+            case 400, 403 -> new UserValidationException(message);
+            case 404 -> new UserNotFoundException(message);
+            case 409 -> new UserAlreadyExistsException(message);
+            case 412 -> new UserVersionConflictException(message);
+            default -> new ShardUnavailableException("Shard " + baseUri + " answered " + status + ": " + message);
+        };
+    }
+
+    // the message of an error body (UserErrorResponse or a problem detail), else the raw body
+    private String message(byte[] body) {
+        try {
+            JsonNode error = mapper.readTree(body);
+            if (error != null && error.hasNonNull("message")) {
+                return error.get("message").asText();
+            }
+            if (error != null && error.hasNonNull("detail")) {
+                return error.get("detail").asText();
+            }
+        } catch (IOException ignored) {
+            // not JSON
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private ShardUnavailableException unavailable(Exception cause) {
+        return new ShardUnavailableException("Shard " + baseUri + " is unavailable", cause);
+    }
+
+    private static String user(String email) {
+        return "/users/" + URLEncoder.encode(email, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String range(LocalDate dateFrom, boolean fromInclusive, LocalDate dateTo, boolean toInclusive) {
+        return range("/users/in-birth-date-range", dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    private static String range(String path, LocalDate dateFrom, boolean fromInclusive,
+                                LocalDate dateTo, boolean toInclusive) {
+        return path + query("dateFrom", dateFrom, "dateTo", dateTo,
+                "fromInclusive", fromInclusive, "toInclusive", toInclusive);
+    }
+
+    // name/value pairs; null values are left out
+    private static String query(Object... pairs) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i + 1] != null) {
+                query.add(pairs[i] + "=" + URLEncoder.encode(pairs[i + 1].toString(), StandardCharsets.UTF_8));
+            }
+        }
+        return query.toString();
+    }
+}
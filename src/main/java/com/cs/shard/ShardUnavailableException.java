@@ -0,0 +1,16 @@
+package com.cs.shard;
+
+/**
+ * A shard could not be reached or answered with something other than a user outcome.
+ * Unlike the domain exceptions this is a failure of the deployment, so it keeps its stack
+ * trace and cause.
+ */
+public class ShardUnavailableException extends RuntimeException {
+    public ShardUnavailableException(String message) {
+        super(message);
+    }
+
+    public ShardUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,626 @@
+package com.cs.shard;
+
+import com.cs.config.UserShardProperties;
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.patcher.UserPatcher;
+import com.cs.query.UserQuery;
+import com.cs.query.UserSort;
+import com.cs.store.EmailKeys;
+import com.cs.store.NamePrefixIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Partitions users over shards by a consistent hash of their email. Lookups and writes of
+ * one user go to the shard that owns its email; listings, counts, searches and birth-date
+ * ranges are sent to every shard in parallel and merged, in email order or in
+ * (birth date, email) order like a single store returns them. Shards are expected to scan
+ * in email order, which the heap and durable backends do.
+ * <p>
+ * An update or patch that changes the email to one owned by another shard moves the user:
+ * the new user is created on the target shard at the next version, through
+ * {@link UserRepository#restore}, and then deleted from the source, under the locks of
+ * both emails. When the delete fails, the copy is deleted again and the write fails, so
+ * the user stays on the source alone.
+ * <p>
+ * {@link #addShard(String, UserRepository)} rebalances online. The ring switches at once,
+ * remembering the previous one; until the moved users are migrated, reads of an email that
+ * changed owner look at the previous owner first, and a write first moves the user it
+ * touches. Migrated users keep their versions, so entity tags handed out before stay
+ * valid. Every write therefore has to go through this router, which is the only
+ * coordinator: clients writing to shards directly would bypass the locks and the
+ * migration. Counts may include a user twice while it is being moved.
+ */
+@Repository(UserRepository.BACKEND)
+@ConditionalOnProperty(name = "user.store.backend", havingValue = "sharded")
+public class ShardedUserRepository implements UserRepository, Closeable {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private static final Comparator<User> EMAIL_ORDER = Comparator.comparing(User::getEmail);
+    private static final Comparator<User> BIRTH_DATE_ORDER = Comparator.comparing(User::getBirthDate)
+            .thenComparing(User::getEmail);
+
+    private final UserPatcher patcher;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    // writes hold the read side, switching rings takes the write side
+    private final ReentrantReadWriteLock topologyLock = new ReentrantReadWriteLock();
+    private final ExecutorService scatter = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "user-shard-scatter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Function<String, UserRepository> shardFactory;
+    private volatile Topology topology;
+    // guarded by the write side of topologyLock
+    private boolean rebalancing;
+
+    @Autowired
+    public ShardedUserRepository(UserShardProperties properties, UserPatcher patcher, ObjectMapper mapper) {
+        this(remotes(properties, mapper), properties.getVirtualNodes(), patcher, remoteFactory(properties, mapper));
+    }
+
+    /**
+     * @param shards       initial shards by name
+     * @param shardFactory creates the shard for a name given to {@link #addShard(String)}
+     */
+    public ShardedUserRepository(Map<String, UserRepository> shards, int virtualNodes, UserPatcher patcher,
+                                 Function<String, UserRepository> shardFactory) {
+        this.patcher = patcher;
+        this.shardFactory = shardFactory;
+        this.topology = new Topology(ConsistentHashRing.of(shards, virtualNodes), null);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return findOptionalByEmail(email).orElseThrow(() -> notFound(email));
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        Topology current = topology;
+        UserRepository previousOwner = current.previousOwner(email);
+        if (previousOwner != null) {
+            Optional<User> user = previousOwner.findOptionalByEmail(email);
+            if (user.isPresent()) {
+                return user;
+            }
+        }
+        return current.owner(email).findOptionalByEmail(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        try (Stream<User> users = streamAll()) {
+            return users.toList();
+        }
+    }
+
+    @Override
+    public long count() {
+        return scatter(UserRepository::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Asks every shard for a page after the cursor and keeps the first {@code limit} emails
+     * of their union; the cursor is the last email returned.
+     */
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        List<UserPage> pages = scatter(shard -> shard.findPage(cursor, limit));
+        List<User> users = SortedMerge.merge(pages.stream().map(UserPage::users).toList(), EMAIL_ORDER, limit);
+        if (users.isEmpty()) {
+            return new UserPage(users, null);
+        }
+        String last = users.get(users.size() - 1).getEmail();
+        boolean more = pages.stream().anyMatch(page -> page.nextCursor() != null
+                || page.users().stream().anyMatch(user -> user.getEmail().compareTo(last) > 0));
+        return new UserPage(users, more ? last : null);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return SortedMerge.merge(scatter(UserRepository::streamAll), EMAIL_ORDER);
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return SortedMerge.merge(scatter(shard -> byEmail(shard.findByPhone(phone))), EMAIL_ORDER,
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> findByLastName(String lastName) {
+        return SortedMerge.merge(scatter(shard -> byEmail(shard.findByLastName(lastName))), EMAIL_ORDER,
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return SortedMerge.merge(scatter(shard -> shard.findByNamePrefix(prefix, limit)),
+                NamePrefixIndex.prefixOrder(prefix), limit);
+    }
+
+    // shards may be remote, and a remote shard can be added at any time
+    @Override
+    public boolean readsBlock() {
+        return true;
+    }
+
+    @Override
+    public boolean writesBlock() {
+        return true;
+    }
+
+    @Override
+    public User save(User user) {
+        return write(user.getEmail(), user.getEmail(), current -> current.owner(user.getEmail()).save(user));
+    }
+
+    @Override
+    public User restore(User user) {
+        return write(user.getEmail(), user.getEmail(), current -> current.owner(user.getEmail()).restore(user));
+    }
+
+    /**
+     * Sends each shard its rows as one batch, in parallel, and numbers the results by
+     * their rows in {@code users}. While shards are being rebalanced, rows are saved one
+     * by one so that each is settled first.
+     */
+    @Override
+    public List<UserBatchResult> saveAll(List<User> users) {
+        topologyLock.readLock().lock();
+        try {
+            Topology current = topology;
+            if (current.previous != null) {
+                return saveOneByOne(users);
+            }
+
+            Map<UserRepository, List<Integer>> rowsByShard = new IdentityHashMap<>();
+            for (int row = 0; row < users.size(); row++) {
+                rowsByShard.computeIfAbsent(current.owner(users.get(row).getEmail()), shard -> new ArrayList<>())
+                        .add(row);
+            }
+            List<CompletableFuture<Void>> batches = new ArrayList<>();
+            UserBatchResult[] results = new UserBatchResult[users.size()];
+            rowsByShard.forEach((shard, rows) -> batches.add(CompletableFuture.runAsync(() -> {
+                List<UserBatchResult> shardResults = shard.saveAll(rows.stream().map(users::get).toList());
+                for (int i = 0; i < rows.size(); i++) {
+                    results[rows.get(i)] = shardResults.get(i).withRow(rows.get(i));
+                }
+            }, scatter)));
+            batches.forEach(ShardedUserRepository::join);
+            return List.of(results);
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User update(String email, User user, long expectedVersion) {
+        return write(email, user.getEmail(), current -> {
+            UserRepository source = current.owner(email);
+            UserRepository target = current.owner(user.getEmail());
+            if (source == target) {
+                return source.update(email, user, expectedVersion);
+            }
+            User existing = source.findByEmail(email);
+            checkVersion(email, existing, expectedVersion);
+            return move(email, source, target, user.withVersion(existing.getVersion() + 1));
+        });
+    }
+
+    @Override
+    public User patchUser(String email, User newUser, long expectedVersion) {
+        String newEmail = newUser.getEmail() == null ? email : newUser.getEmail();
+        return write(email, newEmail, current -> {
+            UserRepository source = current.owner(email);
+            UserRepository target = current.owner(newEmail);
+            if (source == target) {
+                return source.patchUser(email, newUser, expectedVersion);
+            }
+            User existing = source.findByEmail(email);
+            checkVersion(email, existing, expectedVersion);
+            return move(email, source, target, patcher.patch(existing, newUser).withVersion(existing.getVersion() + 1));
+        });
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        write(email, email, current -> {
+            current.owner(email).deleteByEmail(email);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll() {
+        topologyLock.readLock().lock();
+        try {
+            scatter(shard -> {
+                shard.deleteAll();
+                return null;
+            });
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        return SortedMerge.merge(scatter(shard -> shard.findUsersInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive)), BIRTH_DATE_ORDER, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return SortedMerge.merge(scatter(shard -> shard.streamUsersInBirthDateRange(dateFrom, fromInclusive,
+                dateTo, toInclusive)), BIRTH_DATE_ORDER);
+    }
+
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        return SortedMerge.merge(scatter(shard -> shard.findByBirthday(day)), EMAIL_ORDER, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return scatter(shard -> shard.countInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * One histogram per shard, added up bracket by bracket, so each shard is asked once
+     * rather than once per bracket.
+     */
+    @Override
+    public List<AgeBucket> ageHistogram(LocalDate date, int width, int maxAge) {
+        List<List<AgeBucket>> histograms = scatter(shard -> shard.ageHistogram(date, width, maxAge));
+        List<AgeBucket> total = new ArrayList<>(histograms.get(0));
+        for (List<AgeBucket> histogram : histograms.subList(1, histograms.size())) {
+            for (int i = 0; i < total.size(); i++) {
+                AgeBucket bucket = total.get(i);
+                total.set(i, new AgeBucket(bucket.fromAge(), bucket.toAge(), bucket.count() + histogram.get(i).count()));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Runs the whole query, limit included, on every shard. Sorted results are merged in
+     * the query's order, unsorted ones taken shard after shard, and the limit applied
+     * again to the union.
+     */
+    @Override
+    public Stream<User> query(UserQuery query) {
+        List<Stream<User>> results = scatter(shard -> shard.query(query));
+        Stream<User> users = query.sort().isEmpty()
+                ? results.stream().flatMap(result -> result).onClose(() -> results.forEach(Stream::close))
+                : SortedMerge.merge(results, UserSort.comparator(query.sort()));
+        return query.limited() ? users.limit(query.limit()) : users;
+    }
+
+    /**
+     * Names of the shards on the ring, in the order they joined.
+     */
+    public List<String> shards() {
+        return List.copyOf(topology.ring.nodes().keySet());
+    }
+
+    /**
+     * Adds the shard the factory creates for {@code name}.
+     */
+    public int addShard(String name) {
+        return addShard(name, shardFactory.apply(name));
+    }
+
+    /**
+     * Puts a new shard on the ring and moves over the users it now owns, while the store
+     * keeps serving reads and writes. Returns once every moved user is on its new shard.
+     * Rebalancing runs one at a time: adding a shard while another one is being added
+     * fails at once rather than waiting for it. A migration that failed halfway is
+     * finished by the next call before its shard joins.
+     *
+     * @return how many users were moved
+     * @throws IllegalStateException when a shard is being added already
+     */
+    public int addShard(String name, UserRepository shard) {
+        // only switching rings and claiming the rebalancing happen under the lock, the
+        // calls to the shards run outside of it
+        Topology unfinished;
+        topologyLock.writeLock().lock();
+        try {
+            if (rebalancing) {
+                throw new IllegalStateException("A shard is being added already");
+            }
+            rebalancing = true;
+            unfinished = topology;
+        } finally {
+            topologyLock.writeLock().unlock();
+        }
+
+        try {
+            int moved = 0;
+            if (unfinished.previous != null) {
+                moved += migrate(unfinished);
+            }
+            Topology next;
+            topologyLock.writeLock().lock();
+            try {
+                next = new Topology(topology.ring.with(name, shard), topology.ring);
+                topology = next;
+            } finally {
+                topologyLock.writeLock().unlock();
+            }
+            return moved + migrate(next);
+        } finally {
+            topologyLock.writeLock().lock();
+            try {
+                rebalancing = false;
+            } finally {
+                topologyLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scatter.shutdownNow();
+    }
+
+    // moves every user of the previous ring to its owner on the current one, then forgets
+    // the previous ring
+    private int migrate(Topology rebalanced) {
+        int moved = 0;
+        for (UserRepository source : rebalanced.previous.nodes().values()) {
+            List<String> leaving;
+            try (Stream<User> users = source.streamAll()) {
+                leaving = users.map(User::getEmail)
+                        .filter(email -> rebalanced.owner(email) != source)
+                        .toList();
+            }
+            for (String email : leaving) {
+                if (locked(email, email, current -> settle(current, email))) {
+                    moved++;
+                }
+            }
+        }
+
+        topologyLock.writeLock().lock();
+        try {
+            topology = new Topology(rebalanced.ring, null);
+        } finally {
+            topologyLock.writeLock().unlock();
+        }
+        return moved;
+    }
+
+    /**
+     * Runs a write of one or two emails under their locks, after moving both to their
+     * current owner.
+     */
+    private <T> T write(String email, String otherEmail, Function<Topology, T> write) {
+        return locked(email, otherEmail, current -> {
+            settle(current, email);
+            if (otherEmail != null && !otherEmail.equals(email)) {
+                settle(current, otherEmail);
+            }
+            return write.apply(current);
+        });
+    }
+
+    private <T> T locked(String email, String otherEmail, Function<Topology, T> action) {
+        topologyLock.readLock().lock();
+        try {
+            List<ReentrantLock> held = lockStripes(email, otherEmail);
+            try {
+                return action.apply(topology);
+            } finally {
+                for (int i = held.size() - 1; i >= 0; i--) {
+                    held.get(i).unlock();
+                }
+            }
+        } finally {
+            topologyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a user whose email changed owner with the last ring change from its previous
+     * owner to the current one. Callers hold the email's lock.
+     */
+    private boolean settle(Topology current, String email) {
+        UserRepository previousOwner = current.previousOwner(email);
+        if (previousOwner == null) {
+            return false;
+        }
+        Optional<User> user = previousOwner.findOptionalByEmail(email);
+        if (user.isEmpty()) {
+            return false;
+        }
+        copy(email, previousOwner, current.owner(email), user.get());
+        return true;
+    }
+
+    private User move(String email, UserRepository source, UserRepository target, User user) {
+        if (user.getEmail() != null && target.findOptionalByEmail(user.getEmail()).isPresent()) {
+            throw new UserAlreadyExistsException("User with email " +
+                                                 user.getEmail() +
+                                                 " already exists");
+        }
+        return copy(email, source, target, user);
+    }
+
+    /**
+     * Creates the user on the target at its version, then deletes {@code email} from the
+     * source. When the delete fails, the copy is deleted again so the user is not left on
+     * both shards, and the delete's failure is rethrown.
+     */
+    private static User copy(String email, UserRepository source, UserRepository target, User user) {
+        User copied = target.restore(user);
+        try {
+            source.deleteByEmail(email);
+        } catch (RuntimeException e) {
+            try {
+                target.deleteByEmail(copied.getEmail());
+            } catch (RuntimeException undo) {
+                e.addSuppressed(undo);
+            }
+            throw e;
+        }
+        return copied;
+    }
+
+    private List<UserBatchResult> saveOneByOne(List<User> users) {
+        List<UserBatchResult> results = new ArrayList<>(users.size());
+        for (int row = 0; row < users.size(); row++) {
+            User user = users.get(row);
+            try {
+                save(user);
+                results.add(UserBatchResult.created(row, user.getEmail()));
+            } catch (UserValidationException e) {
+                results.add(UserBatchResult.invalid(row, user.getEmail(), e.getMessage()));
+            } catch (UserAlreadyExistsException e) {
+                results.add(UserBatchResult.conflict(row, user.getEmail()));
+            }
+        }
+        return results;
+    }
+
+    private <T> List<T> scatter(Function<UserRepository, T> call) {
+        Collection<UserRepository> shards = topology.ring.nodes().values();
+        List<CompletableFuture<T>> calls = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> call.apply(shard), scatter))
+                .toList();
+        return calls.stream().map(ShardedUserRepository::join).toList();
+    }
+
+    // hash index lookups come back in no particular order
+    private static List<User> byEmail(List<User> users) {
+        return users.stream().sorted(EMAIL_ORDER).toList();
+    }
+
+    private static <T> T join(CompletableFuture<T> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // stripes are locked in index order, so two writes never wait on each other in a cycle
+    private List<ReentrantLock> lockStripes(String email, String otherEmail) {
+        int first = stripe(email);
+        int second = otherEmail == null ? first : stripe(otherEmail);
+        List<ReentrantLock> held = new ArrayList<>(2);
+        held.add(locks[Math.min(first, second)]);
+        if (first != second) {
+            held.add(locks[Math.max(first, second)]);
+        }
+        held.forEach(ReentrantLock::lock);
+        return held;
+    }
+
+    private static int stripe(String email) {
+        int hash = email == null ? 0 : EmailKeys.canonical(email).hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private static void checkVersion(String email, User current, long expectedVersion) {
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            throw new UserVersionConflictException("User with email " +
+                                                   email +
+                                                   " is at version " +
+                                                   current.getVersion() +
+                                                   ", not " +
+                                                   expectedVersion);
+        }
+    }
+
+    private static UserNotFoundException notFound(String email) {
+        return new UserNotFoundException("User with email " +
+                                         email +
+                                         " was not found");
+    }
+
+    private static Map<String, UserRepository> remotes(UserShardProperties properties, ObjectMapper mapper) {
+        if (properties.getNodes().isEmpty()) {
+            throw new IllegalStateException("user.shards.nodes lists no shard for the sharded backend");
+        }
+        Function<String, UserRepository> factory = remoteFactory(properties, mapper);
+        Map<String, UserRepository> shards = new LinkedHashMap<>();
+        for (String node : properties.getNodes()) {
+            shards.put(node, factory.apply(node));
+        }
+        return shards;
+    }
+
+    private static Function<String, UserRepository> remoteFactory(UserShardProperties properties, ObjectMapper mapper) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getTimeout())
+                .build();
+        return node -> new RemoteUserRepository(URI.create(node), client, mapper, properties.getTimeout());
+    }
+
+    /**
+     * The ring writes and lookups use and, while a rebalancing is migrating users, the
+     * ring before it.
+     */
+    private record Topology(ConsistentHashRing<UserRepository> ring, ConsistentHashRing<UserRepository> previous) {
+
+        // users with a null email cannot be routed; any shard rejects them the same way
+        UserRepository owner(String email) {
+            return email == null ? ring.nodes().values().iterator().next() : ring.nodeFor(EmailKeys.canonical(email));
+        }
+
+        UserRepository previousOwner(String email) {
+            if (previous == null || email == null) {
+                return null;
+            }
+            UserRepository owner = previous.nodeFor(EmailKeys.canonical(email));
+            return owner == owner(email) ? null : owner;
+        }
+    }
+}
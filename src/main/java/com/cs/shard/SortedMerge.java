@@ -0,0 +1,105 @@
+package com.cs.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * K-way merge of streams that are each sorted by the same order, pulling one element per
+ * source at a time. Elements that compare equal to the one emitted last are dropped, which
+ * removes the copies a user briefly has on two shards while it is being moved.
+ */
+final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    static <T> Stream<T> merge(List<Stream<T>> sources, Comparator<? super T> order) {
+        List<Iterator<T>> iterators = new ArrayList<>(sources.size());
+        for (Stream<T> source : sources) {
+            iterators.add(source.iterator());
+        }
+        Iterator<T> merged = new MergingIterator<>(iterators, order);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeAll(sources));
+    }
+
+    static <T> List<T> merge(List<List<T>> sources, Comparator<? super T> order, int limit) {
+        List<T> merged = new ArrayList<>();
+        Iterator<T> iterator = new MergingIterator<>(sources.stream().map(List::iterator).toList(), order);
+        while (merged.size() < limit && iterator.hasNext()) {
+            merged.add(iterator.next());
+        }
+        return merged;
+    }
+
+    private static void closeAll(List<? extends Stream<?>> sources) {
+        RuntimeException failure = null;
+        for (Stream<?> source : sources) {
+            try {
+                source.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class MergingIterator<T> implements Iterator<T> {
+        private final PriorityQueue<Head<T>> heads;
+        private final Comparator<? super T> order;
+        private T last;
+
+        private MergingIterator(List<Iterator<T>> sources, Comparator<? super T> order) {
+            this.order = order;
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                    (a, b) -> order.compare(a.value, b.value));
+            for (Iterator<T> source : sources) {
+                advance(source);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!heads.isEmpty() && last != null && order.compare(heads.peek().value, last) == 0) {
+                Head<T> duplicate = heads.poll();
+                advance(duplicate.source);
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head<T> head = heads.poll();
+            advance(head.source);
+            last = head.value;
+            return last;
+        }
+
+        private void advance(Iterator<T> source) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+    }
+
+    private record Head<T>(T value, Iterator<T> source) {
+    }
+}
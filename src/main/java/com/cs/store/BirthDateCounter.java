@@ -0,0 +1,96 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of users born on each day, kept in a Fenwick tree over the epoch days of 1900 to
+ * 2099 so that counting the users born in any date range takes two O(log D) prefix sums
+ * instead of visiting the users. Days outside that span are counted separately and summed
+ * on demand; there should hardly be any.
+ * <p>
+ * The tree nodes are atomic, so writers on different segments update it concurrently
+ * without a lock. A count taken during a write may or may not include it, like the other
+ * indexes' weakly consistent views.
+ */
+public class BirthDateCounter implements UserIndex {
+
+    private static final long FIRST_DAY = LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final int DAYS = Math.toIntExact(LocalDate.of(2100, 1, 1).toEpochDay() - FIRST_DAY);
+
+    // 1-based: node i sums the days (i - lowbit(i), i]
+    private final AtomicLongArray tree = new AtomicLongArray(DAYS + 1);
+    private final ConcurrentSkipListMap<Long, LongAdder> outside = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void add(User user) {
+        if (user.getBirthDate() != null) {
+            add(user.getBirthDate().toEpochDay(), 1);
+        }
+    }
+
+    @Override
+    public void remove(User user) {
+        if (user.getBirthDate() != null) {
+            add(user.getBirthDate().toEpochDay(), -1);
+        }
+    }
+
+    // a count taken in between may include the user twice, but never leaves it out
+    @Override
+    public void replace(User previous, User user) {
+        if (!Objects.equals(previous.getBirthDate(), user.getBirthDate())) {
+            add(user);
+            remove(previous);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int node = 1; node <= DAYS; node++) {
+            tree.set(node, 0);
+        }
+        outside.clear();
+    }
+
+    /**
+     * Changes the number of users born on {@code epochDay} by {@code delta}.
+     */
+    public void add(long epochDay, long delta) {
+        long day = epochDay - FIRST_DAY;
+        if (day < 0 || day >= DAYS) {
+            outside.computeIfAbsent(epochDay, ignored -> new LongAdder()).add(delta);
+            return;
+        }
+        for (int node = (int) day + 1; node <= DAYS; node += node & -node) {
+            tree.addAndGet(node, delta);
+        }
+    }
+
+    public long count(LocalDate dateFrom, boolean fromInclusive, LocalDate dateTo, boolean toInclusive) {
+        long fromDay = fromInclusive ? dateFrom.toEpochDay() : dateFrom.toEpochDay() + 1;
+        long toDay = toInclusive ? dateTo.toEpochDay() + 1 : dateTo.toEpochDay();
+        if (fromDay >= toDay) {
+            return 0;
+        }
+        return countBefore(toDay) - countBefore(fromDay);
+    }
+
+    // users born before epochDay
+    private long countBefore(long epochDay) {
+        long days = Math.min(Math.max(epochDay - FIRST_DAY, 0), DAYS);
+        long count = 0;
+        for (int node = (int) days; node > 0; node -= node & -node) {
+            count += tree.get(node);
+        }
+        for (LongAdder outsideDay : outside.headMap(epochDay).values()) {
+            count += outsideDay.sum();
+        }
+        return count;
+    }
+}
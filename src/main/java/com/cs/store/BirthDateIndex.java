@@ -0,0 +1,96 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Users ordered by birth date (as epoch day) and then by email, answering range queries
+ * in O(log N + k) without touching users outside the range.
+ */
+public class BirthDateIndex implements UserIndex {
+
+    private static final Comparator<Key> ORDER = Comparator.comparingLong(Key::epochDay)
+            .thenComparing(Key::email, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final int SLICES_PER_THREAD = 4;
+
+    private final ConcurrentSkipListMap<Key, User> users = new ConcurrentSkipListMap<>(ORDER);
+
+    @Override
+    public void add(User user) {
+        users.put(keyOf(user), user);
+    }
+
+    @Override
+    public void remove(User user) {
+        users.remove(keyOf(user));
+    }
+
+    @Override
+    public void replace(User previous, User user) {
+        add(user);
+        if (!keyOf(previous).equals(keyOf(user))) {
+            remove(previous);
+        }
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+    }
+
+    public List<User> findInRange(LocalDate dateFrom, boolean fromInclusive,
+                                  LocalDate dateTo, boolean toInclusive) {
+        return streamRange(dateFrom, fromInclusive, dateTo, toInclusive).toList();
+    }
+
+    /**
+     * Users born in the range, like {@link #findInRange(LocalDate, boolean, LocalDate, boolean)},
+     * read as consecutive slices of days on the pool. A skip list only walks forwards, so
+     * each slice finds its own start in O(log N) instead of one thread walking the range.
+     * The slices are returned in order as one read-only list.
+     */
+    public List<User> findInRange(LocalDate dateFrom, boolean fromInclusive,
+                                  LocalDate dateTo, boolean toInclusive, UserScanPool pool) {
+        long fromDay = fromInclusive ? dateFrom.toEpochDay() : dateFrom.toEpochDay() + 1;
+        long toDay = toInclusive ? dateTo.toEpochDay() + 1 : dateTo.toEpochDay();
+        if (fromDay >= toDay) {
+            return List.of();
+        }
+
+        // a few slices per thread so one crowded slice does not hold up the whole read
+        int slices = (int) Math.min(toDay - fromDay, pool.parallelism() * SLICES_PER_THREAD);
+        long days = toDay - fromDay;
+        return pool.collect(slices, slice -> users.subMap(
+                        new Key(fromDay + days * slice / slices, null),
+                        new Key(fromDay + days * (slice + 1) / slices, null))
+                .values().toArray(new User[0]));
+    }
+
+    /**
+     * Lazily streams the users born in the range, ordered by birth date and then email.
+     */
+    public Stream<User> streamRange(LocalDate dateFrom, boolean fromInclusive,
+                                    LocalDate dateTo, boolean toInclusive) {
+        long fromDay = fromInclusive ? dateFrom.toEpochDay() : dateFrom.toEpochDay() + 1;
+        long toDay = toInclusive ? dateTo.toEpochDay() + 1 : dateTo.toEpochDay();
+        if (fromDay >= toDay) {
+            return Stream.empty();
+        }
+
+        return users.subMap(new Key(fromDay, null), new Key(toDay, null)).values().stream();
+    }
+
+    private static Key keyOf(User user) {
+        return new Key(user.getBirthDate().toEpochDay(), user.getEmail());
+    }
+
+    // a null email sorts before every user born on that day and marks a range bound
+    private record Key(long epochDay, String email) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Users bucketed by the month and day of their birth date, one bucket per day of a leap
+ * year, each ordered by email. Finding the birthdays of a day touches only that bucket.
+ * February 29 is a bucket of its own; it is not folded into February 28 or March 1.
+ */
+public class BirthdayIndex implements UserIndex {
+
+    private static final int DAYS = 366;
+
+    private final List<ConcurrentSkipListMap<String, User>> buckets = new ArrayList<>(DAYS);
+
+    public BirthdayIndex() {
+        for (int day = 0; day < DAYS; day++) {
+            buckets.add(new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @Override
+    public void add(User user) {
+        if (user.getBirthDate() != null) {
+            bucket(MonthDay.from(user.getBirthDate())).put(user.getEmail(), user);
+        }
+    }
+
+    @Override
+    public void remove(User user) {
+        if (user.getBirthDate() != null) {
+            bucket(MonthDay.from(user.getBirthDate())).remove(user.getEmail(), user);
+        }
+    }
+
+    @Override
+    public void replace(User previous, User user) {
+        add(user);
+        if (previous.getBirthDate() != null && (user.getBirthDate() == null
+                || !MonthDay.from(previous.getBirthDate()).equals(MonthDay.from(user.getBirthDate())))) {
+            remove(previous);
+        }
+    }
+
+    @Override
+    public void clear() {
+        buckets.forEach(ConcurrentSkipListMap::clear);
+    }
+
+    /**
+     * Users born on {@code day} of any year, ordered by email.
+     */
+    public List<User> find(MonthDay day) {
+        return List.copyOf(bucket(day).values());
+    }
+
+    /**
+     * Position of {@code day} in a leap year, from 0 for January 1 to 365 for December 31.
+     */
+    public static int ordinal(MonthDay day) {
+        return day.atYear(2000).getDayOfYear() - 1;
+    }
+
+    private ConcurrentSkipListMap<String, User> bucket(MonthDay day) {
+        return buckets.get(ordinal(day));
+    }
+}
@@ -0,0 +1,76 @@
+package com.cs.store;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list over a sequence of arrays, so partial results read in parallel are
+ * joined without copying them again. Random access finds the chunk by binary search over
+ * the chunk offsets; iteration walks the chunks directly.
+ */
+final class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final Object[][] chunks;
+    // offsets[i] is the index of the first element of chunks[i]; offsets[chunks.length] is the size
+    private final int[] offsets;
+
+    ChunkedList(Object[][] chunks) {
+        this.chunks = chunks;
+        this.offsets = new int[chunks.length + 1];
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i + 1] = offsets[i] + chunks[i].length;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+        }
+        int chunk = Arrays.binarySearch(offsets, index);
+        // an exact hit may land on the offset of an empty chunk, so skip to the last chunk starting there
+        if (chunk >= 0) {
+            while (offsets[chunk + 1] == index) {
+                chunk++;
+            }
+        } else {
+            chunk = -chunk - 2;
+        }
+        return (T) chunks[chunk][index - offsets[chunk]];
+    }
+
+    @Override
+    public int size() {
+        return offsets[chunks.length];
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < chunks.length && position == chunks[chunk].length) {
+                    chunk++;
+                    position = 0;
+                }
+                return chunk < chunks.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) chunks[chunk][position++];
+            }
+        };
+    }
+}
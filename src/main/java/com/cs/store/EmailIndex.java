@@ -0,0 +1,72 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Users ordered by email, giving paging and streaming a stable iteration order that does
+ * not depend on hash layout.
+ */
+public class EmailIndex implements UserIndex {
+
+    private final ConcurrentSkipListMap<String, User> users = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void add(User user) {
+        users.put(user.getEmail(), user);
+    }
+
+    @Override
+    public void remove(User user) {
+        users.remove(user.getEmail(), user);
+    }
+
+    // both versions share their email, so the entry is overwritten in place
+    @Override
+    public void replace(User previous, User user) {
+        users.put(user.getEmail(), user);
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+    }
+
+    /**
+     * Streams users in email order, starting right after {@code afterEmail}, or from the
+     * first user when it is {@code null}.
+     */
+    public Stream<User> streamAfter(String afterEmail) {
+        return afterEmail == null
+                ? users.values().stream()
+                : users.tailMap(afterEmail, false).values().stream();
+    }
+
+    /**
+     * Streams users in email order between two bounds; a {@code null} bound leaves that
+     * side open.
+     */
+    public Stream<User> streamRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            return Stream.empty();
+        }
+        ConcurrentNavigableMap<String, User> range = users;
+        if (from != null) {
+            range = range.tailMap(from, fromInclusive);
+        }
+        if (to != null) {
+            range = range.headMap(to, toInclusive);
+        }
+        return range.values().stream();
+    }
+
+    /**
+     * Streams the users whose email starts with the prefix, in email order.
+     */
+    public Stream<User> streamPrefix(String prefix) {
+        return streamRange(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+}
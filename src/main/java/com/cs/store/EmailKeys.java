@@ -0,0 +1,48 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.util.Locale;
+
+/**
+ * The canonical form users are keyed by: the whole email lower-cased. Domains are
+ * case-insensitive, and although RFC 5321 leaves the case of the local part to the
+ * receiving host, mail providers ignore it in practice, so {@code A@x.com},
+ * {@code a@X.COM} and {@code a@x.com} are one user.
+ * <p>
+ * Keys stay plain strings: a stored user holds its canonical email, so the primary map
+ * shares that instance as its key, already compact (Latin-1 bytes for ASCII) and with
+ * its hash cached, where a separate key object would cost another object and array per
+ * user. {@code EmailKeyBenchmark} compares the two.
+ */
+public final class EmailKeys {
+
+    private EmailKeys() {
+    }
+
+    /**
+     * The canonical form of the email; the argument itself, without allocating, when it
+     * already is canonical, and {@code null} for {@code null}.
+     */
+    public static String canonical(String email) {
+        if (email == null) {
+            return null;
+        }
+        for (int i = 0; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || c >= 0x80) {
+                String lowerCase = email.toLowerCase(Locale.ROOT);
+                return lowerCase.equals(email) ? email : lowerCase;
+            }
+        }
+        return email;
+    }
+
+    /**
+     * The user with its email in canonical form, the same instance when it already is.
+     */
+    public static User canonical(User user) {
+        String email = canonical(user.getEmail());
+        return email == user.getEmail() ? user : user.toBuilder().email(email).build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Exact-match index from one user attribute to the users holding it, answering a lookup
+ * in O(1 + k). Keys are compared case-insensitively; users without the attribute are not
+ * indexed. Buckets of different segments may share a key, so buckets are updated with
+ * atomic {@code compute} calls and dropped once empty.
+ */
+public class HashUserIndex implements UserIndex {
+
+    private final Function<User, String> attribute;
+    private final ConcurrentHashMap<String, Map<String, User>> users = new ConcurrentHashMap<>();
+
+    public HashUserIndex(Function<User, String> attribute) {
+        this.attribute = attribute;
+    }
+
+    @Override
+    public void add(User user) {
+        String key = keyOf(user);
+        if (key != null) {
+            users.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(user.getEmail(), user);
+        }
+    }
+
+    @Override
+    public void remove(User user) {
+        String key = keyOf(user);
+        if (key != null) {
+            users.computeIfPresent(key, (k, bucket) -> {
+                bucket.remove(user.getEmail(), user);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    @Override
+    public void replace(User previous, User user) {
+        add(user);
+        if (!Objects.equals(keyOf(previous), keyOf(user))) {
+            remove(previous);
+        }
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+    }
+
+    public List<User> find(String value) {
+        Map<String, User> bucket = users.get(normalize(value));
+        return bucket == null ? List.of() : List.copyOf(bucket.values());
+    }
+
+    private String keyOf(User user) {
+        String value = attribute.apply(user);
+        return value == null ? null : normalize(value);
+    }
+
+    static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
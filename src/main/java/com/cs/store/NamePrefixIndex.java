@@ -0,0 +1,106 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Users ordered by first and by last name (each user appears once per name), answering
+ * case-insensitive prefix searches in O(log N + k).
+ */
+public class NamePrefixIndex implements UserIndex {
+
+    private static final Comparator<Key> ORDER = Comparator.comparing(Key::name)
+            .thenComparing(Key::email, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final ConcurrentSkipListMap<Key, User> users = new ConcurrentSkipListMap<>(ORDER);
+
+    @Override
+    public void add(User user) {
+        for (String name : names(user)) {
+            users.put(new Key(name, user.getEmail()), user);
+        }
+    }
+
+    @Override
+    public void remove(User user) {
+        for (String name : names(user)) {
+            users.remove(new Key(name, user.getEmail()), user);
+        }
+    }
+
+    @Override
+    public void replace(User previous, User user) {
+        List<String> names = names(user);
+        add(user);
+        for (String name : names(previous)) {
+            if (!names.contains(name)) {
+                users.remove(new Key(name, previous.getEmail()), previous);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+    }
+
+    /**
+     * Up to {@code limit} users whose first or last name starts with the prefix, ordered by
+     * the matching name and then email.
+     */
+    public List<User> findByPrefix(String prefix, int limit) {
+        return streamByPrefix(prefix)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Lazily streams the users whose first or last name starts with the prefix, in the
+     * order of {@link #findByPrefix(String, int)}.
+     */
+    public Stream<User> streamByPrefix(String prefix) {
+        String from = HashUserIndex.normalize(prefix);
+        return users.subMap(new Key(from, null), new Key(from + Character.MAX_VALUE, null))
+                .values().stream()
+                .distinct();
+    }
+
+    /**
+     * The order of {@link #findByPrefix(String, int)}: by the smallest of the user's names
+     * that starts with the prefix, then email. For stores that search without the index and
+     * must return the same order.
+     */
+    public static Comparator<User> prefixOrder(String prefix) {
+        String key = HashUserIndex.normalize(prefix);
+        return Comparator.comparing((User user) -> matchingName(user, key)).thenComparing(User::getEmail);
+    }
+
+    private static String matchingName(User user, String prefix) {
+        String firstName = user.getFirstName() == null ? null : HashUserIndex.normalize(user.getFirstName());
+        String lastName = user.getLastName() == null ? null : HashUserIndex.normalize(user.getLastName());
+        boolean first = firstName != null && firstName.startsWith(prefix);
+        boolean last = lastName != null && lastName.startsWith(prefix);
+        if (first && last) {
+            return firstName.compareTo(lastName) <= 0 ? firstName : lastName;
+        }
+        // users that match neither name sort first; callers only order matching users
+        return first ? firstName : last ? lastName : "";
+    }
+
+    private static List<String> names(User user) {
+        return Stream.of(user.getFirstName(), user.getLastName())
+                .filter(Objects::nonNull)
+                .map(HashUserIndex::normalize)
+                .distinct()
+                .toList();
+    }
+
+    // a null email sorts before every user with that name and marks a range bound
+    private record Key(String name, String email) {
+    }
+}
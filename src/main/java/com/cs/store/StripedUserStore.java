@@ -0,0 +1,337 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent user storage split into independently locked segments keyed by email.
+ * <p>
+ * Emails are keyed in their {@link EmailKeys#canonical canonical} form: every method
+ * taking an email canonicalizes it, and stored users must carry a canonical email.
+ * <p>
+ * Reads never lock: stored users are immutable and published with a single map write, so
+ * a reader always sees a whole version of a user. Mutations must run inside one of the {@code withLock} methods, which
+ * acquire the lock of every segment an operation touches in segment order, so compound
+ * operations spanning two emails (update, patch with a new email) are atomic and cannot
+ * deadlock against each other. Every registered {@link UserIndex} and
+ * {@link UserMutationListener} is notified under the same locks as the primary map.
+ */
+public class StripedUserStore {
+
+    public static final int DEFAULT_SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final UserIndex[] indexes;
+    private final List<UserMutationListener> listeners = new CopyOnWriteArrayList<>();
+    // set while the current thread runs a batch, whose afterUnlock is deferred to its end
+    private final ThreadLocal<Boolean> batching = new ThreadLocal<>();
+
+    public StripedUserStore(UserIndex... indexes) {
+        this(DEFAULT_SEGMENTS, indexes);
+    }
+
+    public StripedUserStore(int concurrencyLevel, UserIndex... indexes) {
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+
+        segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+        mask = size - 1;
+        this.indexes = indexes.clone();
+    }
+
+    public void addListener(UserMutationListener listener) {
+        listeners.add(listener);
+    }
+
+    public User get(String email) {
+        String key = EmailKeys.canonical(email);
+        return segmentFor(key).users.get(key);
+    }
+
+    public boolean contains(String email) {
+        String key = EmailKeys.canonical(email);
+        return segmentFor(key).users.containsKey(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.users.size();
+        }
+        return size;
+    }
+
+    public List<User> values() {
+        List<User> values = new ArrayList<>(size());
+        for (Segment segment : segments) {
+            values.addAll(segment.users.values());
+        }
+        return values;
+    }
+
+    /**
+     * All users, like {@link #values()}, but once the store reaches the pool's threshold
+     * every segment is copied on a pool thread and the copies are returned as one
+     * read-only list without being joined into a single array.
+     */
+    public List<User> values(UserScanPool pool) {
+        if (!pool.parallel(size())) {
+            return values();
+        }
+        return pool.collect(segments.length, i -> segments[i].users.values().toArray(new User[0]));
+    }
+
+    /**
+     * Weakly consistent iterator over all users, segment by segment, without copying.
+     */
+    public Iterator<User> iterator() {
+        return new Iterator<>() {
+            private int nextSegment;
+            private Iterator<User> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && nextSegment < segments.length) {
+                    current = segments[nextSegment++].users.values().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    public Stream<User> stream() {
+        return Arrays.stream(segments).flatMap(segment -> segment.users.values().stream());
+    }
+
+    /**
+     * Weakly consistent parallel stream over all users. The segments are the unit of
+     * splitting, so each fork-join task scans whole segments sequentially.
+     */
+    public Stream<User> parallelStream() {
+        return stream().parallel();
+    }
+
+    public <T> T withLock(String email, Supplier<T> action) {
+        ReentrantLock lock = segmentFor(EmailKeys.canonical(email)).lock;
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+            afterUnlock();
+        }
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Index of the segment holding the email, for callers that group work by segment.
+     */
+    public int segmentOf(String email) {
+        return indexFor(EmailKeys.canonical(email));
+    }
+
+    public <T> T withSegmentLock(int segment, Supplier<T> action) {
+        ReentrantLock lock = segments[segment].lock;
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+            afterUnlock();
+        }
+    }
+
+    public <T> T withLocks(String first, String second, Supplier<T> action) {
+        int firstIndex = indexFor(EmailKeys.canonical(first));
+        int secondIndex = indexFor(EmailKeys.canonical(second));
+        if (firstIndex == secondIndex) {
+            return withLock(first, action);
+        }
+
+        ReentrantLock outer = segments[Math.min(firstIndex, secondIndex)].lock;
+        ReentrantLock inner = segments[Math.max(firstIndex, secondIndex)].lock;
+        outer.lock();
+        try {
+            inner.lock();
+            try {
+                return action.get();
+            } finally {
+                inner.unlock();
+            }
+        } finally {
+            outer.unlock();
+            afterUnlock();
+        }
+    }
+
+    /**
+     * Runs several mutations of the current thread as one batch: each still takes and
+     * releases its own locks, but listeners get a single {@code afterUnlock} once the
+     * whole batch has run, so a write-ahead log commits the batch with one flush. Nested
+     * batches join the outermost one.
+     */
+    public void inBatch(Runnable mutations) {
+        if (batching.get() != null) {
+            mutations.run();
+            return;
+        }
+
+        batching.set(Boolean.TRUE);
+        try {
+            mutations.run();
+        } finally {
+            batching.remove();
+            afterUnlock();
+        }
+    }
+
+    public void withAllLocks(Runnable action) {
+        int locked = 0;
+        try {
+            for (Segment segment : segments) {
+                segment.lock.lock();
+                locked++;
+            }
+            action.run();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                segments[i].lock.unlock();
+            }
+            afterUnlock();
+        }
+    }
+
+    /**
+     * Stores the user under its email, which must be canonical. The caller must hold the
+     * lock for that email.
+     */
+    public User put(User user) {
+        if (!user.getEmail().equals(EmailKeys.canonical(user.getEmail()))) {
+            throw new IllegalArgumentException("Email " + user.getEmail() + " is not canonical");
+        }
+        Segment segment = lockedSegmentFor(user.getEmail());
+        beforeChange();
+        User previous = segment.users.put(user.getEmail(), user);
+        for (UserIndex index : indexes) {
+            if (previous != null) {
+                index.replace(previous, user);
+            } else {
+                index.add(user);
+            }
+        }
+        for (UserMutationListener listener : listeners) {
+            listener.onPut(previous, user);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the user stored under the email. The caller must hold the lock for that email.
+     */
+    public User remove(String email) {
+        String key = EmailKeys.canonical(email);
+        Segment segment = lockedSegmentFor(key);
+        if (!segment.users.containsKey(key)) {
+            return null;
+        }
+        beforeChange();
+        User removed = segment.users.remove(key);
+        if (removed != null) {
+            for (UserIndex index : indexes) {
+                index.remove(removed);
+            }
+            for (UserMutationListener listener : listeners) {
+                listener.onRemove(removed);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every user. The caller must hold all segment locks.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            checkHeld(segment);
+        }
+        beforeChange();
+        for (Segment segment : segments) {
+            segment.users.clear();
+        }
+        for (UserIndex index : indexes) {
+            index.clear();
+        }
+        for (UserMutationListener listener : listeners) {
+            listener.onClear();
+        }
+    }
+
+    private void beforeChange() {
+        for (UserMutationListener listener : listeners) {
+            listener.beforeChange();
+        }
+    }
+
+    private void afterUnlock() {
+        if (batching.get() != null) {
+            return;
+        }
+        for (UserMutationListener listener : listeners) {
+            listener.afterUnlock();
+        }
+    }
+
+    private Segment segmentFor(String email) {
+        return segments[indexFor(email)];
+    }
+
+    private Segment lockedSegmentFor(String email) {
+        Segment segment = segmentFor(email);
+        checkHeld(segment);
+        return segment;
+    }
+
+    private int indexFor(String email) {
+        int hash = email.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static void checkHeld(Segment segment) {
+        if (!segment.lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Store mutation outside of its segment lock");
+        }
+    }
+
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    }
+}
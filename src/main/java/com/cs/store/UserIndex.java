@@ -0,0 +1,24 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+/**
+ * Secondary index maintained by {@link StripedUserStore}. Callbacks run while the store
+ * holds the segment lock of the affected email, so an index never observes two concurrent
+ * changes for the same user.
+ */
+public interface UserIndex {
+
+    void add(User user);
+
+    void remove(User user);
+
+    /**
+     * Swaps a stored user for its new version under the same email. Lock-free readers must
+     * see one of the two throughout, so the new entry is added, or written over the old
+     * one, before anything is removed.
+     */
+    void replace(User previous, User user);
+
+    void clear();
+}
@@ -0,0 +1,33 @@
+package com.cs.store;
+
+import com.cs.entity.User;
+
+/**
+ * Observes every change applied to a {@link StripedUserStore}. The {@code on*} callbacks
+ * run while the store holds the segment lock of the affected email, after all indexes were
+ * updated, so a listener sees the changes to one user in the order they were applied.
+ */
+public interface UserMutationListener {
+
+    /**
+     * Called under the same locks before the store changes anything for a put, remove or
+     * clear. Throwing refuses the change: the store and its indexes stay as they were and
+     * no listener is notified.
+     */
+    default void beforeChange() {
+    }
+
+    void onPut(User previous, User user);
+
+    void onRemove(User removed);
+
+    void onClear();
+
+    /**
+     * Called on the mutating thread once it released its segment locks, whether or not the
+     * locked section changed anything. Work that must finish before the caller returns but
+     * should not block other writers of the segment, such as waiting for an fsync, goes here.
+     */
+    default void afterUnlock() {
+    }
+}
@@ -0,0 +1,9 @@
+package com.cs.store;
+
+/**
+ * A backend whose changes can be observed, in the order they are applied.
+ */
+public interface UserMutationSource {
+
+    void addMutationListener(UserMutationListener listener);
+}
@@ -0,0 +1,69 @@
+package com.cs.store;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Bounded fork-join pool for copying large parts of a store in parallel, kept apart from
+ * the common pool so a big read neither competes with other parallel streams of the
+ * application nor takes more than {@code parallelism} cores.
+ * <p>
+ * Reads smaller than the threshold are not worth forking for and stay on the calling
+ * thread. Worker threads are daemons and are only started by the first parallel read;
+ * idle ones are retired by the pool.
+ */
+public class UserScanPool {
+
+    public static final int DEFAULT_THRESHOLD = 100_000;
+
+    private static final AtomicInteger POOLS = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public UserScanPool() {
+        this(0, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param parallelism threads to scan on; 0 or less means one per available processor
+     * @param threshold   users a read must cover before it is split across the pool
+     */
+    public UserScanPool(int parallelism, int threshold) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        String prefix = "user-scan-" + POOLS.incrementAndGet() + "-";
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(prefix + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.threshold = threshold;
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Whether a read of {@code size} users should be split across the pool.
+     */
+    public boolean parallel(long size) {
+        return size >= threshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Reads {@code pieces} chunks on the pool and joins them, in chunk order, into a
+     * read-only list backed by the chunk arrays themselves.
+     */
+    public <T> List<T> collect(int pieces, IntFunction<T[]> chunk) {
+        Object[][] chunks = new Object[pieces][];
+        pool.submit(() -> IntStream.range(0, pieces).parallel().forEach(i -> chunks[i] = chunk.apply(i)))
+                .join();
+        return new ChunkedList<>(chunks);
+    }
+}
@@ -0,0 +1,85 @@
+package com.cs.validation;
+
+import com.cs.config.UserProperties;
+import com.cs.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Birth date rules for new and updated users. The latest allowed birth dates are derived
+ * from {@link UserProperties} and today's date and kept until midnight, so a check is a
+ * clock read and a plain date comparison; the first check of a new day recomputes them.
+ * {@link #refresh()} re-binds {@code user.properties.*} from the environment every
+ * {@code user.properties.refresh-interval}, so a changed min age applies within that
+ * interval without a restart.
+ */
+@Component
+@EnableConfigurationProperties(UserProperties.class)
+public class UserValidationPolicy {
+
+    private final Environment env;
+    private final Clock clock;
+    private volatile Cutoffs cutoffs;
+
+    @Autowired
+    public UserValidationPolicy(UserProperties properties, Environment env) {
+        this(properties, env, Clock.systemDefaultZone());
+    }
+
+    public UserValidationPolicy(UserProperties properties, Environment env, Clock clock) {
+        this.env = env;
+        this.clock = clock;
+        this.cutoffs = Cutoffs.of(properties.getMinAge(), clock);
+    }
+
+    /**
+     * Returns why the user's birth date is not acceptable, or {@code null} when it is.
+     */
+    public String validationError(User user) {
+        Cutoffs current = cutoffs;
+        if (clock.millis() >= current.expiresAt()) {
+            current = Cutoffs.of(current.minAge(), clock);
+            cutoffs = current;
+        }
+        LocalDate birthDate = user.getBirthDate();
+
+        if (birthDate.isAfter(current.latestBirthDate())) {
+            return "Invalid birth date";
+        } else if (birthDate.isAfter(current.latestAdultBirthDate())) {
+            return current.minAgeMessage();
+        }
+        return null;
+    }
+
+    public int getMinAge() {
+        return cutoffs.minAge();
+    }
+
+    @Scheduled(fixedDelayString = "${user.properties.refresh-interval:PT10S}",
+            initialDelayString = "${user.properties.refresh-interval:PT10S}")
+    public void refresh() {
+        UserProperties properties = Binder.get(env).bindOrCreate("user.properties", UserProperties.class);
+        if (properties.getMinAge() != cutoffs.minAge()) {
+            cutoffs = Cutoffs.of(properties.getMinAge(), clock);
+        }
+    }
+
+    private record Cutoffs(int minAge, LocalDate latestBirthDate, LocalDate latestAdultBirthDate,
+                           String minAgeMessage, long expiresAt) {
+
+        static Cutoffs of(int minAge, Clock clock) {
+            LocalDate today = LocalDate.now(clock);
+            long midnight = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            // born on latestAdultBirthDate means exactly minAge years old today
+            return new Cutoffs(minAge, today.minusDays(1), today.minusYears(minAge),
+                    "User must be " + minAge + " years old", midnight);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.cs.write;
+
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.entity.User;
+import com.cs.query.UserQuery;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Sends every write through a {@link UserWriteQueue} and returns once the writer has
+ * committed it, so concurrent callers share one log flush per batch instead of paying
+ * one each. Results and exceptions are those of the backend. Reads pass straight
+ * through and see a write as soon as the writer has applied it, possibly before the
+ * write's caller is released, and keep seeing it when the commit then fails. Writes that
+ * reach a durable backend after its log failed are refused and never seen.
+ */
+public class BatchingUserRepository implements UserRepository {
+
+    private final UserRepository repository;
+    private final UserWriteQueue writes;
+
+    /**
+     * @param writes a queue applying its commands to {@code repository}
+     */
+    public BatchingUserRepository(UserRepository repository, UserWriteQueue writes) {
+        this.repository = repository;
+        this.writes = writes;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return repository.findByEmail(email);
+    }
+
+    @Override
+    public Optional<User> findOptionalByEmail(String email) {
+        return repository.findOptionalByEmail(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    @Override
+    public UserPage findPage(String cursor, int limit) {
+        return repository.findPage(cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return repository.streamAll();
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        return repository.findByPhone(phone);
+    }
+
+    @Override
+    public List<User> findByLastName(String lastName) {
+        return repository.findByLastName(lastName);
+    }
+
+    @Override
+    public List<User> findByNamePrefix(String prefix, int limit) {
+        return repository.findByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public User save(User user) {
+        return UserWriteQueue.await(writes.submit(backend -> backend.save(user)));
+    }
+
+    @Override
+    public List<UserBatchResult> saveAll(List<User> users) {
+        return UserWriteQueue.await(writes.submit(backend -> backend.saveAll(users)));
+    }
+
+    @Override
+    public User restore(User user) {
+        return UserWriteQueue.await(writes.submit(backend -> backend.restore(user)));
+    }
+
+    @Override
+    public User update(String email, User user, long expectedVersion) {
+        return UserWriteQueue.await(writes.submit(backend -> backend.update(email, user, expectedVersion)));
+    }
+
+    @Override
+    public User patchUser(String email, User newUser, long expectedVersion) {
+        return UserWriteQueue.await(writes.submit(backend -> backend.patchUser(email, newUser, expectedVersion)));
+    }
+
+    @Override
+    public boolean readsBlock() {
+        return repository.readsBlock();
+    }
+
+    // a caller waits for the writer to commit its batch
+    @Override
+    public boolean writesBlock() {
+        return true;
+    }
+
+    // already part of a batch when the writer runs it, and a batch of the caller's own otherwise
+    @Override
+    public void inBatch(Runnable mutations) {
+        repository.inBatch(mutations);
+    }
+
+    @Override
+    public void deleteByEmail(String email) {
+        UserWriteQueue.await(writes.submit(backend -> {
+            backend.deleteByEmail(email);
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteAll() {
+        UserWriteQueue.await(writes.submit(backend -> {
+            backend.deleteAll();
+            return null;
+        }));
+    }
+
+    @Override
+    public List<User> findUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                LocalDate dateTo, boolean toInclusive) {
+        return repository.findUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public Stream<User> streamUsersInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                                    LocalDate dateTo, boolean toInclusive) {
+        return repository.streamUsersInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public List<User> findByBirthday(MonthDay day) {
+        return repository.findByBirthday(day);
+    }
+
+    @Override
+    public long countInBirthDateRange(LocalDate dateFrom, boolean fromInclusive,
+                                      LocalDate dateTo, boolean toInclusive) {
+        return repository.countInBirthDateRange(dateFrom, fromInclusive, dateTo, toInclusive);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(LocalDate date, int width, int maxAge) {
+        return repository.ageHistogram(date, width, maxAge);
+    }
+
+    @Override
+    public Stream<User> query(UserQuery query) {
+        return repository.query(query);
+    }
+}
@@ -0,0 +1,194 @@
+package com.cs.write;
+
+import com.cs.dto.UserRepository;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Funnels the mutations of many threads through one writer thread, which applies them in
+ * batches and commits each batch at once.
+ * <p>
+ * Callers enqueue commands on a lock-free queue and get a future back. The writer drains
+ * up to {@code maxBatchSize} commands, runs them through {@link UserRepository#inBatch},
+ * so a durable backend syncs its log once per batch, and only then completes their
+ * futures: a future completed with a result means the command was applied and its batch
+ * committed. A command that fails fails only its own future. A failing commit fails every
+ * future of its batch, but it is not rolled back: the mutations were applied before the
+ * commit and stay visible to readers of the store. Only their durability is in doubt; a
+ * durable backend whose log failed refuses every later write before applying it, so those
+ * fail without changing the store. Batches grow with the load by themselves: while the
+ * writer commits one batch, the next one queues up.
+ */
+public class UserWriteQueue implements Closeable {
+
+    private final UserRepository repository;
+    private final int maxBatchSize;
+    private final ConcurrentLinkedQueue<Command<?>> commands = new ConcurrentLinkedQueue<>();
+    // set while the writer is about to park, so only then do producers pay for an unpark
+    private final AtomicBoolean idle = new AtomicBoolean();
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    public UserWriteQueue(UserRepository repository, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batches need room for at least one command");
+        }
+        this.repository = repository;
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::run, "user-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Enqueues a command for the writer, which applies it to the repository. The future
+     * completes with its result once the batch it ran in is committed.
+     */
+    public <T> CompletableFuture<T> submit(Function<UserRepository, T> command) {
+        Command<T> queued = new Command<>(command);
+        if (closed) {
+            queued.future.completeExceptionally(closedException());
+            return queued.future;
+        }
+
+        commands.offer(queued);
+        if (closed && commands.remove(queued)) {
+            // closed while enqueueing and the writer may already be gone
+            queued.future.completeExceptionally(closedException());
+        } else if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+        return queued.future;
+    }
+
+    /**
+     * Waits for a submitted command and returns its result, rethrowing what it failed
+     * with as thrown by the repository.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting commands and returns once every command accepted so far is committed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Command<?>> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            Command<?> command = commands.poll();
+            if (command == null) {
+                if (closed) {
+                    // producers that enqueue after this check see closed and withdraw their command
+                    if (commands.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                idle.set(true);
+                // re-check after announcing, a producer may have enqueued before seeing idle
+                if (commands.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                idle.set(false);
+                continue;
+            }
+
+            do {
+                batch.add(command);
+            } while (batch.size() < maxBatchSize && (command = commands.poll()) != null);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Command<?>> batch) {
+        try {
+            repository.inBatch(() -> {
+                for (Command<?> command : batch) {
+                    command.apply(repository);
+                }
+            });
+        } catch (Throwable failure) {
+            for (Command<?> command : batch) {
+                command.fail(failure);
+            }
+            return;
+        }
+
+        for (Command<?> command : batch) {
+            command.complete();
+        }
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("User write queue is closed");
+    }
+
+    private static final class Command<T> {
+        private final Function<UserRepository, T> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException failure;
+
+        private Command(Function<UserRepository, T> action) {
+            this.action = action;
+        }
+
+        private void apply(UserRepository repository) {
+            try {
+                result = action.apply(repository);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        // the batch did not commit, so a command that succeeded is not durable either
+        private void fail(Throwable commitFailure) {
+            future.completeExceptionally(failure != null ? failure : commitFailure);
+        }
+    }
+}
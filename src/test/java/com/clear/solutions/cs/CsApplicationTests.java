@@ -1,9 +1,10 @@
 package com.clear.solutions.cs;
 
+import com.cs.CsApplication;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(classes = CsApplication.class)
 class CsApplicationTests {
 
 	@Test
@@ -0,0 +1,125 @@
+package com.clear.solutions.cs.cache;
+
+import com.cs.cache.CachingUserRepository;
+import com.cs.cache.CaffeineUserCache;
+import com.cs.cache.LruUserCache;
+import com.cs.config.UserProperties;
+import com.cs.dto.UserRepository;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.patcher.UserPatcher;
+import com.cs.validation.UserValidationPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CachingUserRepositoryTest {
+
+    private UserRepository backend;
+    private CachingUserRepository repository;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        backend = spy(new UserRepositoryImpl(
+                new UserValidationPolicy(new UserProperties(), new MockEnvironment()), new UserPatcher()));
+        repository = new CachingUserRepository(backend, new CaffeineUserCache(100));
+        registry = new SimpleMeterRegistry();
+        repository.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("Repeated Lookups, Found or Not, Hit the Cache")
+    void whenLookedUpTwice_thenBackendIsAskedOnce() {
+        repository.save(user("user1@example.com", "User1"));
+
+        repository.findByEmail("user1@example.com");
+        repository.findByEmail("user1@example.com");
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("missing@example.com"));
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("missing@example.com"));
+
+        verify(backend, times(1)).findOptionalByEmail("user1@example.com");
+        verify(backend, times(1)).findOptionalByEmail("missing@example.com");
+        assertEquals(2, registry.get("user.cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(2, registry.get("user.cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Writes Invalidate Cached Lookups")
+    void whenWritten_thenNextLookupSeesTheChange() {
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("user1@example.com"));
+        repository.save(user("user1@example.com", "User1"));
+        assertEquals("User1", repository.findByEmail("user1@example.com").getFirstName());
+
+        User patch = User.builder().firstName("Patched").build();
+        repository.patchUser("user1@example.com", patch);
+        assertEquals("Patched", repository.findByEmail("user1@example.com").getFirstName());
+
+        repository.findByEmail("user1@example.com");
+        repository.update("user1@example.com", user("moved@example.com", "Moved"));
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("user1@example.com"));
+        assertEquals("Moved", repository.findByEmail("moved@example.com").getFirstName());
+
+        repository.deleteByEmail("moved@example.com");
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("moved@example.com"));
+    }
+
+    @Test
+    @DisplayName("Spellings of One Email Share a Cache Entry")
+    void whenDomainCaseDiffers_thenLookupsShareAnEntry() {
+        repository.save(user("user1@example.com", "User1"));
+        repository.findByEmail("user1@example.com");
+        repository.findByEmail("user1@EXAMPLE.com");
+        verify(backend, times(1)).findOptionalByEmail(anyString());
+
+        repository.patchUser("user1@Example.com", User.builder().firstName("Patched").build());
+        assertEquals("Patched", repository.findByEmail("user1@EXAMPLE.com").getFirstName());
+    }
+
+    @Test
+    @DisplayName("A Load Racing a Write is Not Cached")
+    void whenWriteHappensDuringLoad_thenStaleResultIsDropped() {
+        repository.save(user("user1@example.com", "User1"));
+        doAnswer(invocation -> {
+            Object stale = invocation.callRealMethod();
+            repository.update("user1@example.com", user("user1@example.com", "Updated"));
+            return stale;
+        }).doCallRealMethod().when(backend).findOptionalByEmail(anyString());
+
+        assertEquals("User1", repository.findByEmail("user1@example.com").getFirstName());
+        assertEquals("Updated", repository.findByEmail("user1@example.com").getFirstName());
+    }
+
+    @Test
+    @DisplayName("LRU Evicts the Least Recently Used Lookup")
+    void whenLruIsFull_thenEldestIsEvicted() {
+        LruUserCache cache = new LruUserCache(2);
+        repository = new CachingUserRepository(backend, cache);
+        repository.save(user("user1@example.com", "User1"));
+        repository.save(user("user2@example.com", "User2"));
+        repository.save(user("user3@example.com", "User3"));
+
+        repository.findByEmail("user1@example.com");
+        repository.findByEmail("user2@example.com");
+        repository.findByEmail("user1@example.com");
+        repository.findByEmail("user3@example.com");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.getIfPresent("user2@example.com"));
+        assertNotNull(cache.getIfPresent("user1@example.com"));
+    }
+
+    private static User user(String email, String firstName) {
+        return new User(email, firstName, "Test", LocalDate.of(1990, 1, 1), null, null);
+    }
+}
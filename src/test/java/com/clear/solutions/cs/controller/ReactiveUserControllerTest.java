@@ -0,0 +1,299 @@
+package com.clear.solutions.cs.controller;
+
+import com.cs.controller.ReactiveUserController;
+import com.cs.dto.ReactiveUserRepositoryImpl;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.ReactiveRestExceptionHandler;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserVersionConflictException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest
+@ContextConfiguration(classes = {ReactiveUserController.class, ReactiveUserRepositoryImpl.class,
+        ReactiveRestExceptionHandler.class})
+public class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @MockBean
+    private UserRepositoryImpl userRepository;
+
+    private User createUser() {
+        User user = new User("user1@example.com", "User1", "Test1",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000111");
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(user);
+
+        client.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated();
+
+        return user;
+    }
+
+    @Test
+    @DisplayName("Create User with Valid Data")
+    void createUserWithValidDataTest() {
+        User user = createUser();
+
+        client.get().uri("/users/{email}", user.getEmail())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(user.getEmail())
+                .jsonPath("$.firstName").isEqualTo(user.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(user.getLastName())
+                .jsonPath("$.birthDate").isEqualTo(user.getBirthDate().toString())
+                .jsonPath("$.address").isEqualTo(user.getAddress())
+                .jsonPath("$.phone").isEqualTo(user.getPhone());
+    }
+
+    @Test
+    @DisplayName("Create User with Invalid Data")
+    void createUserWithInvalidDataTest() {
+        User user = new User("invalidUserData", "User1", "Test1",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000111");
+
+        client.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Update User with Valid Data")
+    void updateUserWithValidData() {
+        User user = createUser();
+        User updatedUser = new User("updatedUser@example.com", "updatedUser", "Test1",
+                LocalDate.of(2000, 11, 11), "Bridgewalk upd", "+380000000222");
+        when(userRepository.update(eq(user.getEmail()), any(), anyLong())).thenAnswer(invocation -> invocation.getArgument(1));
+
+        client.put().uri("/users/{email}", user.getEmail())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedUser)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(updatedUser.getEmail())
+                .jsonPath("$.firstName").isEqualTo(updatedUser.getFirstName());
+    }
+
+    @Test
+    @DisplayName("Update User with Invalid Data")
+    void updateUserWithInvalidData() {
+        User user = createUser();
+        User updatedUser = new User("updatedUser", "updatedUser", "Test1",
+                LocalDate.of(2022, 11, 11), "Bridgewalk upd", "+380000000222");
+
+        client.put().uri("/users/{email}", user.getEmail())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedUser)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Patch User with Valid Data")
+    void patchUserWithValidData() {
+        User user = createUser();
+        User patchedUser = new User(user.getEmail(), "patchedUser", user.getLastName(),
+                LocalDate.of(2002, 11, 12), user.getAddress(), user.getPhone());
+        when(userRepository.patchUser(eq(user.getEmail()), any(), anyLong())).thenReturn(patchedUser);
+
+        client.patch().uri("/users/{email}", user.getEmail())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(patchedUser)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("patchedUser")
+                .jsonPath("$.birthDate").isEqualTo("2002-11-12");
+    }
+
+    @Test
+    @DisplayName("Conditional Requests Use the Version as Entity Tag")
+    void conditionalRequestsTest() {
+        User user = createUser().withVersion(3);
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(user);
+        when(userRepository.update(eq(user.getEmail()), any(), eq(2L)))
+                .thenThrow(new UserVersionConflictException("User with email " + user.getEmail()
+                                                            + " is not at version 2"));
+
+        client.get().uri("/users/{email}", user.getEmail())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3\"");
+        client.get().uri("/users/{email}", user.getEmail())
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        client.put().uri("/users/{email}", user.getEmail())
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        client.put().uri("/users/{email}", user.getEmail())
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("Existence Check Answers without a Body")
+    void headUserTest() {
+        User user = createUser().withVersion(2);
+        when(userRepository.findOptionalByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.findOptionalByEmail("missing@example.com")).thenReturn(Optional.empty());
+
+        client.head().uri("/users/{email}", user.getEmail())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"2\"")
+                .expectBody().isEmpty();
+        client.head().uri("/users/{email}", "missing@example.com")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("Find Missing User")
+    void findMissingUserTest() {
+        when(userRepository.findByEmail("missing@example.com"))
+                .thenThrow(new UserNotFoundException("User with email missing@example.com was not found"));
+
+        client.get().uri("/users/{email}", "missing@example.com")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.message").isEqualTo("User with email missing@example.com was not found");
+    }
+
+    @Test
+    @DisplayName("Find Users in Birth Date Range with Valid Dates")
+    void findUsersInValidBirthDateRange() {
+        LocalDate dateFrom = LocalDate.of(2000, 1, 1);
+        LocalDate dateTo = LocalDate.of(2004, 10, 31);
+        User user = createUser();
+        when(userRepository.streamUsersInBirthDateRange(dateFrom, false, dateTo, false))
+                .thenReturn(Stream.of(user));
+
+        client.get().uri(uri -> uri.path("/users/in-birth-date-range")
+                        .queryParam("dateFrom", dateFrom)
+                        .queryParam("dateTo", dateTo)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Find All Users")
+    void findAllTest() {
+        User user = createUser();
+        when(userRepository.streamAll()).thenReturn(Stream.of(user));
+
+        List<User> users = client.get().uri("/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(1, users.size());
+        assertEquals(user.toString(), users.get(0).toString());
+    }
+
+    @Test
+    @DisplayName("Find Users Page by Cursor")
+    void findPageTest() {
+        User user = createUser();
+        when(userRepository.findPage(null, 1)).thenReturn(new UserPage(List.of(user), user.getEmail()));
+        when(userRepository.findPage(user.getEmail(), 1)).thenReturn(new UserPage(List.of(), null));
+
+        client.get().uri("/users?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", user.getEmail())
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].email").isEqualTo(user.getEmail());
+
+        client.get().uri(uri -> uri.path("/users")
+                        .queryParam("limit", 1)
+                        .queryParam("cursor", user.getEmail())
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Stream All Users as NDJSON with Backpressure")
+    void streamAllTest() {
+        User user = createUser();
+        User secondUser = new User("user2@example.com", "User2", "Test2",
+                LocalDate.of(2000, 1, 2), "Bridgewalk 2", "+380000000222");
+        when(userRepository.streamAll()).thenReturn(Stream.of(user, secondUser));
+
+        StepVerifier.create(client.get().uri("/users")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                        .returnResult(User.class)
+                        .getResponseBody()
+                        .map(User::getEmail), 1)
+                .expectNext(user.getEmail())
+                .thenRequest(1)
+                .expectNext(secondUser.getEmail())
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Delete User with Valid Email")
+    void deleteUserWithValidEmail() {
+        User user = createUser();
+
+        client.delete().uri("/users/{email}", user.getEmail())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("User with email " + user.getEmail() + " was deleted");
+        verify(userRepository).deleteByEmail(user.getEmail());
+    }
+}
@@ -0,0 +1,150 @@
+package com.clear.solutions.cs.controller;
+
+import com.cs.bulk.UserImportService;
+import com.cs.controller.UserBulkController;
+import com.cs.controller.UserController;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.patcher.UserPatcher;
+import com.cs.validation.UserValidationPolicy;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest
+@ContextConfiguration(classes = {UserBulkController.class, UserController.class,
+        UserImportService.class, UserRepositoryImpl.class, UserPatcher.class, UserValidationPolicy.class})
+@TestPropertySource(properties = "user.properties.min-age=18")
+public class UserBulkControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepositoryImpl userRepository;
+
+    @AfterEach
+    public void cleanUp(){
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Create Users in a Batch")
+    @SneakyThrows
+    void whenBatchIsPosted_thenEveryRowHasAResult(){
+        String body = """
+                [{"email":"user1@example.com","firstName":"User1","lastName":"Test1","birthDate":"2001-11-11"},
+                 {"email":"invalid","firstName":"User2","lastName":"Test2","birthDate":"2001-11-11"},
+                 {"email":"user3@example.com","firstName":"User3","lastName":"Test3","birthDate":"2020-01-01"},
+                 {"email":"user1@example.com","firstName":"User4","lastName":"Test4","birthDate":"2001-11-11"}]
+                """;
+
+        mvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].outcome").value("CREATED"))
+                .andExpect(jsonPath("$[1].outcome").value("INVALID"))
+                .andExpect(jsonPath("$[2].outcome").value("INVALID"))
+                .andExpect(jsonPath("$[2].message").value("User must be 18 years old"))
+                .andExpect(jsonPath("$[3].outcome").value("CONFLICT"));
+
+        assertEquals(1, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Import Users from NDJSON")
+    @SneakyThrows
+    void whenNdjsonIsImported_thenRowsAreCreatedAndReported(){
+        String body = """
+                {"email":"user1@example.com","firstName":"User1","lastName":"Test1","birthDate":"2001-11-11"}
+                {"email":"user2@example.com","firstName":
+                {"email":"user3@example.com","firstName":"User3","lastName":"Test3","birthDate":"1999-01-01"}
+                """;
+
+        String[] results = importBody(MediaType.APPLICATION_NDJSON_VALUE, body);
+
+        assertEquals(3, results.length);
+        assertTrue(results[0].contains("\"row\":1") && results[0].contains("CREATED"));
+        assertTrue(results[1].contains("\"row\":2") && results[1].contains("INVALID"));
+        assertTrue(results[2].contains("\"row\":3") && results[2].contains("CREATED"));
+        assertEquals(2, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("A Null NDJSON Line is Reported as an Invalid Row")
+    @SneakyThrows
+    void whenNdjsonLineIsNull_thenOnlyThatRowIsInvalid(){
+        String body = """
+                {"email":"user1@example.com","firstName":"User1","lastName":"Test1","birthDate":"2001-11-11"}
+                null
+                {"email":"user3@example.com","firstName":"User3","lastName":"Test3","birthDate":"1999-01-01"}
+                """;
+
+        String[] results = importBody(MediaType.APPLICATION_NDJSON_VALUE, body);
+
+        assertEquals(3, results.length);
+        assertTrue(results[0].contains("\"row\":1") && results[0].contains("CREATED"));
+        assertTrue(results[1].contains("\"row\":2") && results[1].contains("INVALID")
+                && results[1].contains("A user object is expected"));
+        assertTrue(results[2].contains("\"row\":3") && results[2].contains("CREATED"));
+        assertEquals(2, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Import Users from CSV and Export them Again")
+    @SneakyThrows
+    void whenCsvIsImported_thenUsersCanBeExportedAsCsv(){
+        String body = """
+                email,firstName,lastName,birthDate,address,phone
+                user1@example.com,User1,Test1,2001-11-11,"Bridgewalk 1, Kyiv",+380000000001
+                user2@example.com,User2,Test2,1999-01-01,,
+                """;
+
+        String[] results = importBody("text/csv", body);
+
+        assertEquals(2, results.length);
+        assertEquals("Bridgewalk 1, Kyiv", userRepository.findByEmail("user1@example.com").getAddress());
+        assertNull(userRepository.findByEmail("user2@example.com").getPhone());
+
+        MvcResult export = mvc.perform(get("/users").accept("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("""
+                email,firstName,lastName,birthDate,address,phone
+                user1@example.com,User1,Test1,2001-11-11,"Bridgewalk 1, Kyiv","+380000000001"
+                user2@example.com,User2,Test2,1999-01-01,,
+                """, csv);
+    }
+
+    @SneakyThrows
+    private String[] importBody(String contentType, String body){
+        MvcResult mvcResult = mvc.perform(post("/users/import")
+                        .contentType(contentType)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()
+                .split("\\n");
+    }
+}
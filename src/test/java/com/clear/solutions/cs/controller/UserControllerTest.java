@@ -1,9 +1,12 @@
 package com.clear.solutions.cs.controller;
 
 import com.cs.controller.UserController;
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserPage;
 import com.cs.dto.UserRepositoryImpl;
 import com.cs.entity.User;
 import com.cs.exception.user.UserNotFoundException;
+import com.cs.query.UserQuery;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -24,13 +27,19 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.awaitility.Awaitility.given;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -61,6 +70,7 @@ public class UserControllerTest {
         String requestBody = mapper.writeValueAsString(user);
 
         when(userRepository.findByEmail(user.getEmail())).thenReturn(user);
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         mvc.perform(post("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -81,6 +91,7 @@ public class UserControllerTest {
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
         String requestBody = mapper.writeValueAsString(user);
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         mvc.perform(post("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -135,6 +146,8 @@ public class UserControllerTest {
         String requestBody = mapper.writeValueAsString(updatedUser);
 
         when(userRepository.findByEmail(updatedUser.getEmail())).thenReturn(updatedUser);
+        when(userRepository.update(eq(user.getEmail()), any(), anyLong()))
+                .thenAnswer(invocation -> invocation.getArgument(1));
 
         mvc.perform(put("/users/{email}", user.getEmail())
                         .contentType(MediaType.APPLICATION_JSON)
@@ -178,10 +191,12 @@ public class UserControllerTest {
     @DisplayName("Patch User with Valid Data")
     @SneakyThrows
     public void patchUserWithValidData(){
-        User patchedUser = createUser();
-
-        patchedUser.setBirthDate(LocalDate.of(2002, 11, 12));
-        patchedUser.setFirstName("patchedUser");
+        User patchedUser = createUser().toBuilder()
+                .birthDate(LocalDate.of(2002, 11, 12))
+                .firstName("patchedUser")
+                .build();
+        when(userRepository.findByEmail(patchedUser.getEmail())).thenReturn(patchedUser);
+        when(userRepository.patchUser(eq(patchedUser.getEmail()), any(), anyLong())).thenReturn(patchedUser);
 
         mapper.registerModule(new JavaTimeModule());
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
@@ -221,6 +236,69 @@ public class UserControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Public Create Ignores a Version Sent by the Client")
+    @SneakyThrows
+    public void createUserIgnoresClientVersionTest(){
+        User user = new User("user@example.com", "User", "Test",
+                LocalDate.of(2002, 7, 5), "Bridgewalk", "+38000000000");
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.<User>getArgument(0).withVersion(1));
+
+        mvc.perform(post("/users")
+                        .header("X-User-Version", "7")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"user@example.com\",\"firstName\":\"User\",\"lastName\":\"Test\","
+                                 + "\"birthDate\":\"2002-07-05\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("ETag", "\"1\""));
+        verify(userRepository).save(any());
+        verify(userRepository, never()).restore(any());
+    }
+
+    @Test
+    @DisplayName("Conditional Requests Use the Version as Entity Tag")
+    @SneakyThrows
+    public void conditionalRequestsTest(){
+        User user = createUser().withVersion(3);
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(user);
+        when(userRepository.patchUser(eq(user.getEmail()), any(), eq(3L))).thenReturn(user.withVersion(4));
+
+        mvc.perform(get("/users/{email}", user.getEmail()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        mvc.perform(get("/users/{email}", user.getEmail()).header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(get("/users/{email}", user.getEmail()).header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk());
+
+        mvc.perform(patch("/users/{email}", user.getEmail())
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Patched\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+        verify(userRepository).patchUser(eq(user.getEmail()), any(), eq(3L));
+    }
+
+    @Test
+    @DisplayName("Existence Check Answers without a Body")
+    @SneakyThrows
+    public void headUserTest(){
+        User user = createUser().withVersion(2);
+        when(userRepository.findOptionalByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.findOptionalByEmail("missing@example.com")).thenReturn(Optional.empty());
+
+        mvc.perform(head("/users/{email}", user.getEmail()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(content().string(""));
+        mvc.perform(head("/users/{email}", "missing@example.com"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(""));
+        verify(userRepository, never()).findByEmail("missing@example.com");
+    }
+
     @Test //remake idk
     @DisplayName("Find Users in Birth Date Range with Valid Dates")
     @SneakyThrows
@@ -230,7 +308,8 @@ public class UserControllerTest {
 
         User user = createUser();
 
-        when(userRepository.findUsersInBirthDateRange(dateFrom, dateTo)).thenReturn(List.of(user));
+        when(userRepository.findUsersInBirthDateRange(dateFrom, false, dateTo, false))
+                .thenReturn(List.of(user));
 
         mvc.perform(get("/users/in-birth-date-range")
                         .param("dateFrom", dateFrom.toString())
@@ -259,6 +338,131 @@ public class UserControllerTest {
         assertEquals(users.get(0).toString(), responseUsersList.get(0).toString());
     }
 
+    @Test
+    @DisplayName(value = "Find Users Page by Cursor")
+    @SneakyThrows
+    public void findPageTest(){
+        User user = createUser();
+
+        when(userRepository.findPage(null, 1)).thenReturn(new UserPage(List.of(user), user.getEmail()));
+
+        mvc.perform(get("/users").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", user.getEmail()))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email").value(user.getEmail()));
+
+        when(userRepository.findPage(user.getEmail(), 1)).thenReturn(new UserPage(List.of(), null));
+
+        mvc.perform(get("/users").param("limit", "1").param("cursor", user.getEmail()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @DisplayName(value = "Stream All Users as NDJSON")
+    @SneakyThrows
+    public void streamAllTest(){
+        User user = createUser();
+        User secondUser = new User("user2@example.com", "User2", "Test2",
+                LocalDate.of(2000, 1, 2), "Bridgewalk 2", "+380000000222");
+
+        when(userRepository.streamAll()).thenReturn(Stream.of(user, secondUser));
+
+        MvcResult mvcResult = mvc.perform(get("/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String response = mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(user.toString(), mapper.readValue(lines[0], User.class).toString());
+        assertEquals(secondUser.toString(), mapper.readValue(lines[1], User.class).toString());
+    }
+
+    @Test
+    @DisplayName(value = "Search Users by Phone, Last Name and Name Prefix")
+    @SneakyThrows
+    public void searchTest(){
+        User user = createUser();
+
+        when(userRepository.findByPhone(user.getPhone())).thenReturn(List.of(user));
+        when(userRepository.findByLastName(user.getLastName())).thenReturn(List.of(user));
+        when(userRepository.findByNamePrefix("us", 10)).thenReturn(List.of(user));
+
+        mvc.perform(get("/users/search").param("phone", user.getPhone()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value(user.getEmail()));
+        mvc.perform(get("/users/search").param("lastName", user.getLastName()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        mvc.perform(get("/users/search").param("namePrefix", "us").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value(user.getEmail()));
+    }
+
+    @Test
+    @DisplayName(value = "Birthday, Range Count and Age Histogram Queries")
+    @SneakyThrows
+    public void birthDateAggregationTest(){
+        User user = createUser();
+        LocalDate date = LocalDate.of(2024, 6, 15);
+
+        when(userRepository.findByBirthday(MonthDay.of(11, 11))).thenReturn(List.of(user));
+        when(userRepository.countInBirthDateRange(LocalDate.of(2000, 1, 1), true,
+                LocalDate.of(2010, 1, 1), false)).thenReturn(42L);
+        when(userRepository.ageHistogram(date, 20, 40)).thenReturn(List.of(new AgeBucket(0, 20, 0),
+                new AgeBucket(20, 40, 1), new AgeBucket(40, null, 0)));
+
+        mvc.perform(get("/users/birthdays").param("month", "11").param("day", "11"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value(user.getEmail()));
+        mvc.perform(get("/users/in-birth-date-range/count")
+                        .param("dateFrom", "2000-01-01").param("dateTo", "2010-01-01")
+                        .param("fromInclusive", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("42"));
+        mvc.perform(get("/users/age-histogram").param("date", "2024-06-15")
+                        .param("width", "20").param("maxAge", "40"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[1].count").value(1))
+                .andExpect(jsonPath("$[2].toAge").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Filter, Sort and Limit Parameters Run a Query")
+    @SneakyThrows
+    public void queryTest(){
+        User user = createUser();
+        UserQuery query = UserQuery.parse("lastName = test1 and birthDate >= 2000-01-01", "-birthDate", 5);
+        when(userRepository.query(query)).thenAnswer(invocation -> Stream.of(user));
+        when(userRepository.query(UserQuery.parse("firstName ^= us", null, 1))).thenAnswer(invocation -> Stream.of(user));
+
+        mvc.perform(get("/users").param("filter", "lastName = test1 and birthDate >= 2000-01-01")
+                        .param("sort", "-birthDate").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email").value(user.getEmail()));
+
+        MvcResult mvcResult = mvc.perform(get("/users").accept(MediaType.APPLICATION_NDJSON)
+                        .param("filter", "firstName ^= us").param("limit", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(user.toString(), mapper.readValue(response.trim(), User.class).toString());
+        verify(userRepository, never()).findAll();
+        verify(userRepository, never()).streamAll();
+    }
+
     @Test
     @DisplayName("Delete User with Valid Email")
     @SneakyThrows
@@ -0,0 +1,181 @@
+package com.clear.solutions.cs.events;
+
+import com.cs.config.UserProperties;
+import com.cs.controller.UserEventController;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.events.UserChangeEvent;
+import com.cs.events.UserChangeLog;
+import com.cs.patcher.UserPatcher;
+import com.cs.validation.UserValidationPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.cs.events.UserChangeEvent.Type.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class UserChangeLogTest {
+
+    private UserRepositoryImpl repository;
+    private UserChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        repository = new UserRepositoryImpl(
+                new UserValidationPolicy(new UserProperties(), new MockEnvironment()), new UserPatcher());
+        changeLog = new UserChangeLog(8);
+        repository.addMutationListener(changeLog);
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeLog.close();
+    }
+
+    @Test
+    @DisplayName("Every Mutation is Published in Order")
+    void whenMutated_thenEventsFollowInOrder() {
+        repository.save(user("user1@example.com"));
+        repository.patchUser("user1@example.com", User.builder().firstName("Patched").build());
+        repository.update("user1@example.com", user("moved@example.com"));
+        repository.deleteByEmail("moved@example.com");
+        repository.deleteAll();
+
+        StepVerifier.create(changeLog.events(0).take(6))
+                .expectNextMatches(event -> is(event, 1, CREATED, "user1@example.com"))
+                .expectNextMatches(event -> is(event, 2, UPDATED, "user1@example.com")
+                        && event.user().getFirstName().equals("Patched"))
+                .expectNextMatches(event -> is(event, 3, CREATED, "moved@example.com"))
+                .expectNextMatches(event -> is(event, 4, DELETED, "user1@example.com"))
+                .expectNextMatches(event -> is(event, 5, DELETED, "moved@example.com"))
+                .expectNextMatches(event -> is(event, 6, CLEARED, null))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Subscribers Resume after a Sequence and Follow Live Changes")
+    void whenResuming_thenOnlyLaterChangesAreDelivered() {
+        repository.save(user("user1@example.com"));
+        repository.save(user("user2@example.com"));
+
+        StepVerifier.create(changeLog.events(1).take(3))
+                .expectNextMatches(event -> is(event, 2, CREATED, "user2@example.com"))
+                .then(() -> repository.save(user("user3@example.com")))
+                .expectNextMatches(event -> is(event, 3, CREATED, "user3@example.com"))
+                .then(() -> repository.deleteByEmail("user1@example.com"))
+                .expectNextMatches(event -> is(event, 4, DELETED, "user1@example.com"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("A Consumer Behind the Ring Gets a Reset")
+    void whenConsumerFallsBehind_thenResetEndsTheStream() {
+        StepVerifier.create(changeLog.events(0), 1)
+                .then(() -> repository.save(user("user0@example.com")))
+                .expectNextMatches(event -> is(event, 1, CREATED, "user0@example.com"))
+                .then(() -> {
+                    for (int i = 1; i <= 10; i++) {
+                        repository.save(user("user" + i + "@example.com"));
+                    }
+                })
+                .thenRequest(1)
+                .expectNextMatches(event -> is(event, 11, RESET, null))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(changeLog.events(42).take(1))
+                .expectNextMatches(event -> is(event, 11, RESET, null))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Events are Served as Server-Sent Events on Both Web Stacks")
+    void whenStreamedOverHttp_thenEventsCarryTheirSequenceAsId() throws Exception {
+        repository.save(user("user1@example.com"));
+        repository.save(user("user2@example.com"));
+        UserEventController controller = new UserEventController(changeLog);
+
+        List<ServerSentEvent<UserChangeEvent>> events = WebTestClient.bindToController(controller).build()
+                .get().uri("/users/events?after=0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<UserChangeEvent>>() {})
+                .getResponseBody()
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        assertEquals("2", events.get(1).id());
+        assertEquals("created", events.get(1).event());
+        assertEquals("user2@example.com", events.get(1).data().email());
+
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        MvcResult result = mvc.perform(get("/users/events")
+                        .header("Last-Event-ID", "99")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(content().string(containsString("id:2\nevent:reset\n")));
+    }
+
+    @Test
+    @DisplayName("A Negative Sequence Gets a Reset on Both Web Stacks")
+    void whenSequenceIsNegative_thenReset() throws Exception {
+        repository.save(user("user1@example.com"));
+        UserEventController controller = new UserEventController(changeLog);
+
+        List<ServerSentEvent<UserChangeEvent>> events = WebTestClient.bindToController(controller).build()
+                .get().uri("/users/events?after=-5")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<UserChangeEvent>>() {})
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        assertEquals(1, events.size());
+        assertEquals("1", events.get(0).id());
+        assertEquals("reset", events.get(0).event());
+
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        MvcResult result = mvc.perform(get("/users/events")
+                        .header("Last-Event-ID", "-5")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("id:1\nevent:reset\n")));
+    }
+
+    private static boolean is(UserChangeEvent event, long sequence, UserChangeEvent.Type type, String email) {
+        return event.sequence() == sequence && event.type() == type
+               && (email == null ? event.email() == null : email.equals(event.email()));
+    }
+
+    private static User user(String email) {
+        return new User(email, "User", "Test", LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000");
+    }
+}
@@ -0,0 +1,55 @@
+package com.clear.solutions.cs.json;
+
+import com.cs.entity.User;
+import com.cs.json.UserSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UserSerializerTest {
+
+    private static final List<User> USERS = List.of(
+            new User("user@example.com", "User", "Test", LocalDate.of(2001, 11, 11),
+                    "Bridgewalk \"1\"", "+380000000000", 7),
+            new User("old@example.com", "Ölga", "Ünal", LocalDate.of(1850, 2, 28), null, null),
+            new User("future@example.com", "Fu", "Ture", LocalDate.of(2100, 1, 1), "Somewhere", null),
+            User.builder().firstName("Patch").build());
+
+    @Test
+    @DisplayName("Output Matches the Default Bean Serializer")
+    void whenSerialized_thenOutputMatchesDefaultMapper() throws Exception {
+        ObjectMapper defaultMapper = mapper(false);
+        ObjectMapper fastMapper = mapper(true);
+
+        for (int pass = 0; pass < 2; pass++) {
+            assertEquals(defaultMapper.writeValueAsString(USERS), fastMapper.writeValueAsString(USERS));
+        }
+    }
+
+    @Test
+    @DisplayName("Dates as Timestamps Follow the Mapper Setting")
+    void whenDatesAsTimestamps_thenBirthDateIsAnArray() throws Exception {
+        ObjectMapper defaultMapper = mapper(false).enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper fastMapper = mapper(true).enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        assertEquals(defaultMapper.writeValueAsString(USERS), fastMapper.writeValueAsString(USERS));
+    }
+
+    private static ObjectMapper mapper(boolean fast) {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (fast) {
+            mapper.registerModule(new SimpleModule().addSerializer(new UserSerializer()));
+        }
+        return mapper;
+    }
+}
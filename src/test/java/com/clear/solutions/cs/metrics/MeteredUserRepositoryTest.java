@@ -0,0 +1,43 @@
+package com.clear.solutions.cs.metrics;
+
+import com.cs.config.UserProperties;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.metrics.MeteredUserRepository;
+import com.cs.patcher.UserPatcher;
+import com.cs.validation.UserValidationPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeteredUserRepositoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MeteredUserRepository repository = new MeteredUserRepository(
+            new UserRepositoryImpl(new UserValidationPolicy(new UserProperties(), new MockEnvironment()),
+                    new UserPatcher()),
+            registry);
+
+    @Test
+    @DisplayName("Calls, Errors and Size are Recorded")
+    void whenRepositoryIsUsed_thenMetersAreUpdated() {
+        repository.save(new User("user1@example.com", "User1", "Test1",
+                LocalDate.of(2001, 11, 11), null, null));
+        repository.findByEmail("user1@example.com");
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("missing@example.com"));
+
+        assertEquals(1, registry.get("user.repository").tag("method", "save").timer().count());
+        assertEquals(2, registry.get("user.repository").tag("method", "findByEmail").timer().count());
+        assertEquals(1, registry.get("user.repository.errors")
+                .tag("method", "findByEmail")
+                .tag("exception", "UserNotFoundException")
+                .counter().count());
+        assertEquals(1, registry.get("user.repository.size").gauge().value());
+    }
+}
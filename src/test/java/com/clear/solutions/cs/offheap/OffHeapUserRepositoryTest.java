@@ -0,0 +1,310 @@
+package com.clear.solutions.cs.offheap;
+
+import com.cs.config.UserProperties;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.offheap.OffHeapUserRepository;
+import com.cs.patcher.UserPatcher;
+import com.cs.query.UserQuery;
+import com.cs.query.UserSort;
+import com.cs.validation.UserValidationPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapUserRepositoryTest {
+
+    private OffHeapUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new OffHeapUserRepository(
+                new UserValidationPolicy(new UserProperties(), new MockEnvironment()), new UserPatcher());
+    }
+
+    @Test
+    @DisplayName("Users Round-Trip Through Off-Heap Storage")
+    void whenSaved_thenAllFieldsAreMaterialized() {
+        repository.save(new User("jürgen@example.com", "Jürgen", "Doe",
+                LocalDate.of(1990, 2, 3), null, "+380123456789"));
+
+        User found = repository.findByEmail("jürgen@example.com");
+        assertEquals("Jürgen", found.getFirstName());
+        assertEquals("Doe", found.getLastName());
+        assertEquals(LocalDate.of(1990, 2, 3), found.getBirthDate());
+        assertNull(found.getAddress());
+        assertEquals("+380123456789", found.getPhone());
+        assertThrows(UserAlreadyExistsException.class, () -> repository.save(user("jürgen@example.com", 1)));
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("missing@example.com"));
+    }
+
+    @Test
+    @DisplayName("Update, Patch and Delete Keep the Email Index Consistent")
+    void whenMutated_thenLookupsFollow() {
+        for (int i = 0; i < 5000; i++) {
+            repository.save(user("user" + i + "@example.com", i));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            repository.deleteByEmail("user" + i + "@example.com");
+        }
+        repository.update("user1@example.com", user("moved@example.com", 1));
+        User patch = User.builder().firstName("Patched").build();
+        repository.patchUser("user3@example.com", patch);
+
+        assertEquals(2500, repository.findAll().size());
+        assertEquals("Patched", repository.findByEmail("user3@example.com").getFirstName());
+        assertEquals(2, repository.findByEmail("user3@example.com").getVersion());
+        assertEquals(2, repository.findByEmail("moved@example.com").getVersion());
+        assertThrows(UserVersionConflictException.class,
+                () -> repository.patchUser("user3@example.com", patch, 1));
+        assertEquals(3, repository.patchUser("user3@example.com", patch, 2).getVersion());
+        assertEquals("moved@example.com", repository.findByEmail("moved@example.com").getEmail());
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("user1@example.com"));
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("user2@example.com"));
+        assertThrows(UserAlreadyExistsException.class,
+                () -> repository.update("user5@example.com", user("user7@example.com", 7)));
+        assertThrows(UserValidationException.class,
+                () -> repository.save(new User("young@example.com", "Y", "Y", LocalDate.now(), null, null)));
+
+        repository.deleteAll();
+        assertTrue(repository.findAll().isEmpty());
+        repository.save(user("user3@example.com", 3));
+        assertEquals(1, repository.streamAll().count());
+    }
+
+    @Test
+    @DisplayName("Updating a Missing User Creates It Like the Heap Store")
+    void whenUpdatedUserIsMissing_thenItIsCreated() {
+        repository.save(user("taken@example.com", 1));
+
+        assertThrows(UserVersionConflictException.class,
+                () -> repository.update("missing@example.com", user("missing@example.com", 2), 1));
+        assertThrows(UserAlreadyExistsException.class,
+                () -> repository.update("missing@example.com", user("taken@example.com", 2)));
+        User created = repository.update("missing@example.com", user("missing@example.com", 2));
+
+        assertEquals(1, created.getVersion());
+        assertEquals(created, repository.findByEmail("missing@example.com"));
+        assertEquals(1, repository.findByEmail("taken@example.com").getVersion());
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    @DisplayName("Emails Differing Only in Case Are One User")
+    void whenCaseDiffers_thenSameUser() {
+        assertEquals("mixed@example.com", repository.save(user("Mixed@Example.COM", 1)).getEmail());
+
+        assertEquals("mixed@example.com", repository.findByEmail("Mixed@EXAMPLE.com").getEmail());
+        assertEquals("mixed@example.com", repository.findByEmail("MIXED@example.com").getEmail());
+        assertThrows(UserAlreadyExistsException.class, () -> repository.save(user("mixed@example.com", 1)));
+        assertEquals(1, repository.query(UserQuery.parse("email = 'Mixed@X.com' or email = 'MIXED@EXAMPLE.COM'",
+                null, null)).count());
+        assertEquals(2, repository.update("Mixed@example.COM", user("Mixed@Example.com", 2)).getVersion());
+        repository.deleteByEmail("Mixed@EXAMPLE.COM");
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    @DisplayName("Birth Date Range is Ordered by Date and Email")
+    void whenRangeQueried_thenBoundsAndOrderMatchHeapStore() {
+        repository.save(user("b@example.com", 1));
+        repository.save(user("a@example.com", 1));
+        repository.save(user("c@example.com", 0));
+        repository.save(user("d@example.com", 2));
+
+        List<User> found = repository.findUsersInBirthDateRange(
+                LocalDate.of(1980, 1, 2), true, LocalDate.of(1980, 1, 3), false);
+
+        assertEquals(List.of("a@example.com", "b@example.com"), found.stream().map(User::getEmail).toList());
+        assertEquals(4, repository.findUsersInBirthDateRange(
+                LocalDate.of(1980, 1, 1), true, LocalDate.of(1980, 1, 3), true).size());
+    }
+
+    @Test
+    @DisplayName("Pages Cover Every User Exactly Once")
+    void whenPaged_thenAllUsersAreReturned() {
+        repository.saveAll(IntStream.range(0, 2500)
+                .mapToObj(i -> user("user" + i + "@example.com", i))
+                .toList());
+
+        List<String> emails = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPage page = repository.findPage(cursor, 1000);
+            page.users().forEach(user -> emails.add(user.getEmail()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(2500, emails.size());
+        assertEquals(2500, emails.stream().distinct().count());
+        assertEquals(2500, repository.streamAll().count());
+        assertEquals(UserBatchResult.Outcome.CONFLICT,
+                repository.saveAll(List.of(user("user1@example.com", 1))).get(0).outcome());
+    }
+
+    @Test
+    @DisplayName("Cursors Outside the Stored Rows are Rejected")
+    void whenCursorIsOutOfRange_thenUserValidationException() {
+        repository.save(user("user1@example.com", 1));
+        repository.save(user("user2@example.com", 2));
+
+        assertEquals(1, repository.findPage(repository.findPage(null, 1).nextCursor(), 1).users().size());
+        assertThrows(UserValidationException.class, () -> repository.findPage("-5", 10));
+        assertThrows(UserValidationException.class, () -> repository.findPage("-1", 10));
+        assertThrows(UserValidationException.class, () -> repository.findPage("2", 10));
+        assertThrows(UserValidationException.class, () -> repository.findPage(Integer.toString(Integer.MAX_VALUE), 10));
+        assertThrows(UserValidationException.class, () -> repository.findPage("next", 10));
+    }
+
+    @Test
+    @DisplayName("Phone, Last Name and Prefix Searches Follow Mutations")
+    void whenSearched_thenIndexesMatchHeapStore() {
+        repository.save(new User("anna@example.com", "Anna", "Andersen", LocalDate.of(1990, 1, 1), null, "+1"));
+        repository.save(new User("bob@example.com", "Bob", "Anderson", LocalDate.of(1990, 1, 1), null, "+2"));
+        repository.save(new User("carl@example.com", "Carl", "Olsen", LocalDate.of(1990, 1, 1), null, null));
+
+        assertEquals(List.of("anna@example.com"), emails(repository.findByPhone("+1")));
+        assertEquals(List.of("bob@example.com"), emails(repository.findByLastName("ANDERSON")));
+        assertEquals(List.of("anna@example.com", "bob@example.com"), emails(repository.findByNamePrefix("and", 10)));
+        assertEquals(List.of("anna@example.com"), emails(repository.findByNamePrefix("an", 1)));
+
+        repository.update("anna@example.com", new User("anna@example.com", "Anna", "Olsen",
+                LocalDate.of(1990, 1, 1), null, "+2"));
+
+        assertTrue(repository.findByPhone("+1").isEmpty());
+        assertEquals(List.of("anna@example.com", "bob@example.com"),
+                emails(repository.findByPhone("+2")).stream().sorted().toList());
+        assertEquals(List.of("anna@example.com", "carl@example.com"),
+                emails(repository.findByLastName("olsen")).stream().sorted().toList());
+
+        repository.deleteByEmail("bob@example.com");
+        assertTrue(repository.findByLastName("Anderson").isEmpty());
+        assertEquals(List.of("anna@example.com"), emails(repository.findByPhone("+2")));
+    }
+
+    private static List<String> emails(List<User> users) {
+        return users.stream().map(User::getEmail).toList();
+    }
+
+    @Test
+    @DisplayName("Birthday Lists and Range Counts Follow Reused Slots")
+    void whenSlotsReused_thenBirthdaysAndCountsFollow() {
+        Random random = new Random(21);
+        for (int i = 0; i < 2000; i++) {
+            repository.save(new User("born" + i + "@example.com", "Born", "Test",
+                    LocalDate.of(1880 + random.nextInt(125), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                    null, null));
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            repository.deleteByEmail("born" + i + "@example.com");
+        }
+        for (int i = 1; i < 2000; i += 3) {
+            repository.update("born" + i + "@example.com", new User("born" + i + "@example.com", "Born", "Test",
+                    LocalDate.of(1950 + i % 7, 3, 14), null, null));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = LocalDate.of(1870 + random.nextInt(140), 1, 1).plusDays(random.nextInt(365));
+            LocalDate to = from.plusDays(random.nextInt(20_000));
+            assertEquals(repository.findUsersInBirthDateRange(from, true, to, false).size(),
+                    repository.countInBirthDateRange(from, true, to, false));
+        }
+        for (MonthDay day : List.of(MonthDay.of(3, 14), MonthDay.of(1, 1), MonthDay.of(12, 28))) {
+            assertEquals(repository.findAll().stream()
+                            .filter(user -> MonthDay.from(user.getBirthDate()).equals(day))
+                            .map(User::getEmail)
+                            .sorted()
+                            .toList(),
+                    repository.findByBirthday(day).stream().map(User::getEmail).toList());
+        }
+
+        repository.deleteAll();
+        assertTrue(repository.findByBirthday(MonthDay.of(3, 14)).isEmpty());
+        assertEquals(0, repository.countInBirthDateRange(LocalDate.MIN, true, LocalDate.MAX, true));
+    }
+
+    @Test
+    @DisplayName("Updating Users Over and Over Reuses Their String Space")
+    void whenUpdatedRepeatedly_thenArenaStaysBounded() {
+        for (int i = 0; i < 10; i++) {
+            repository.save(new User("user" + i + "@example.com", "First", "Last", LocalDate.of(1990, 1, 1),
+                    "a".repeat(1000), null));
+        }
+        long allocated = repository.allocatedBytes();
+
+        // 40 000 rewrites of about 1 KB each would need three more 16 MB chunks without reuse
+        for (int i = 0; i < 40_000; i++) {
+            String email = "user" + i % 10 + "@example.com";
+            String address = (i % 2 == 0 ? "b" : "c").repeat(1000 + i % 3 * 150);
+            if (i % 4 == 0) {
+                repository.patchUser(email, User.builder().address(address).phone("+38050" + i).build());
+            } else {
+                repository.update(email, new User(email, "First" + i, "Last", LocalDate.of(1990, 1, 1),
+                        address, null));
+            }
+        }
+
+        assertEquals(allocated, repository.allocatedBytes());
+        User last = repository.findByEmail("user9@example.com");
+        assertEquals("First39999", last.getFirstName());
+        assertEquals("c".repeat(1000), last.getAddress());
+        assertEquals(4001, last.getVersion());
+    }
+
+    @Test
+    @DisplayName("Queries Match Filtering Every Row, through Hash Indexes, Date Column or Parallel Scan")
+    void whenQueried_thenSameUsersAsFilteringAll() {
+        Random random = new Random(22);
+        for (int i = 0; i < 3000; i++) {
+            repository.save(new User("q" + i + "@example.com", "First" + random.nextInt(300),
+                    "Last" + random.nextInt(50), LocalDate.of(1940, 1, 1).plusDays(random.nextInt(25_000)),
+                    "Street " + random.nextInt(20), "+38000" + random.nextInt(1000)));
+        }
+        for (int i = 0; i < 3000; i += 4) {
+            repository.deleteByEmail("q" + i + "@example.com");
+        }
+
+        assertEquals("lastName", repository.plan(UserQuery.parse("lastName = last4", null, null)).access());
+        assertEquals("birthDate", repository.plan(UserQuery.parse("birthDate < 1945-01-01", "birthDate", null))
+                .access());
+        assertEquals("parallel scan", repository.plan(UserQuery.parse("firstName ^= first1", null, null)).access());
+
+        for (String filter : List.of("email = q7@example.com", "lastName = LAST4 or phone = +38000123",
+                "birthDate >= 1990-01-01 and birthDate < 1991-01-01 and firstName ^= first1",
+                "firstName ^= first1 or address = 'Street 3'")) {
+            UserQuery query = UserQuery.parse(filter, "-lastName", 40);
+            List<User> expected = repository.findAll().stream()
+                    .filter(query.where()::test)
+                    .sorted(UserSort.comparator(query.sort()))
+                    .limit(40)
+                    .toList();
+            try (Stream<User> users = repository.query(query)) {
+                assertEquals(emails(expected), emails(users.toList()), filter);
+            }
+            try (Stream<User> users = repository.query(UserQuery.parse(filter, null, null))) {
+                assertEquals(repository.findAll().stream().filter(query.where()::test).count(), users.count(), filter);
+            }
+        }
+    }
+
+    private static User user(String email, int day) {
+        return new User(email, "First", "Last", LocalDate.of(1980, 1, 1).plusDays(day % 3),
+                "Address", "+380000000000");
+    }
+}
@@ -0,0 +1,77 @@
+package com.clear.solutions.cs.patcher;
+
+import com.cs.entity.User;
+import com.cs.patcher.EntityPatcher;
+import com.cs.patcher.UserPatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserPatcherTest {
+
+    private final UserPatcher patcher = new UserPatcher();
+
+    @Test
+    @DisplayName("Patch Overrides only Non-Null Fields")
+    void whenPatchHasNullFields_thenExistingValuesAreKept(){
+        User existing = new User("user@example.com", "User", "Test",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000");
+        User patch = User.builder()
+                .firstName("Patched")
+                .birthDate(LocalDate.of(2000, 1, 1))
+                .build();
+
+        User patched = patcher.patch(existing, patch);
+
+        assertEquals("user@example.com", patched.getEmail());
+        assertEquals("Patched", patched.getFirstName());
+        assertEquals("Test", patched.getLastName());
+        assertEquals(LocalDate.of(2000, 1, 1), patched.getBirthDate());
+        assertEquals("Bridgewalk 1", patched.getAddress());
+        assertEquals("+380000000000", patched.getPhone());
+    }
+
+    @Test
+    @DisplayName("Patch Leaves the Existing Instance Untouched")
+    void whenPatching_thenExistingUserIsNotMutated(){
+        User existing = new User("user@example.com", "User", "Test",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000");
+        User patch = User.builder().firstName("Patched").build();
+
+        User patched = patcher.patch(existing, patch);
+
+        assertNotSame(existing, patched);
+        assertNotSame(patch, patched);
+        assertEquals("User", existing.getFirstName());
+    }
+
+    @Test
+    @DisplayName("Patch Keeps the Existing Version")
+    void whenPatching_thenVersionOfExistingUserIsKept(){
+        User existing = new User("user@example.com", "User", "Test",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000").withVersion(7);
+        User patch = User.builder().lastName("Patched").version(3).build();
+
+        User patched = patcher.patch(existing, patch);
+
+        assertEquals("Patched", patched.getLastName());
+        assertEquals(7, patched.getVersion());
+    }
+
+    @Test
+    @DisplayName("Records are Patched Component by Component")
+    void whenPatchingRecord_thenNonNullComponentsOverride(){
+        EntityPatcher<Account> accountPatcher = EntityPatcher.of(Account.class);
+
+        Account patched = accountPatcher.patch(new Account("user@example.com", "Owner", 3),
+                new Account(null, "Patched", 0));
+
+        assertEquals(new Account("user@example.com", "Patched", 3), patched);
+    }
+
+    private record Account(String email, String owner, int limit) {
+    }
+}
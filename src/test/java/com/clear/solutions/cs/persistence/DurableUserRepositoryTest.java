@@ -0,0 +1,127 @@
+package com.clear.solutions.cs.persistence;
+
+import com.cs.config.UserProperties;
+import com.cs.entity.User;
+import com.cs.patcher.UserPatcher;
+import com.cs.persistence.DurableUserRepository;
+import com.cs.validation.UserValidationPolicy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DurableUserRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Mutations Survive a Restart")
+    void whenReopened_thenLogIsReplayed() throws IOException {
+        try (DurableUserRepository repository = open()) {
+            repository.save(user("user1@example.com", "User1"));
+            repository.save(user("user2@example.com", "User2"));
+            repository.save(user("user3@example.com", "User3"));
+
+            User patch = User.builder().firstName("Patched").build();
+            repository.patchUser("user1@example.com", patch);
+            repository.update("user2@example.com", user("moved@example.com", "Moved"));
+            repository.deleteByEmail("user3@example.com");
+        }
+
+        try (DurableUserRepository repository = open()) {
+            assertEquals(2, repository.findAll().size());
+            assertEquals("Patched", repository.findByEmail("user1@example.com").getFirstName());
+            assertEquals("Moved", repository.findByEmail("moved@example.com").getFirstName());
+            assertEquals(2, repository.findByEmail("user1@example.com").getVersion());
+            assertFalse(repository.isUserExists("user2@example.com"));
+            assertFalse(repository.isUserExists("user3@example.com"));
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot plus Log Tail Restores the Latest State")
+    void whenCompactedAndChangedAgain_thenSnapshotAndTailAreCombined() throws IOException {
+        DurableUserRepository repository = open();
+        repository.save(user("user1@example.com", "User1"));
+        repository.save(user("user2@example.com", "User2"));
+        repository.compact();
+        repository.patchUser("user2@example.com", User.builder().firstName("Patched").build());
+
+        repository.deleteByEmail("user1@example.com");
+        repository.save(user("user3@example.com", "User3"));
+        // simulate a crash: no close, so no final snapshot
+
+        try (DurableUserRepository reopened = open()) {
+            assertEquals(List.of("user2@example.com", "user3@example.com"),
+                    reopened.findAll().stream().map(User::getEmail).sorted().toList());
+            assertEquals(2, reopened.findByEmail("user2@example.com").getVersion());
+        }
+    }
+
+    @Test
+    @DisplayName("Delete All is Replayed")
+    void whenDeleteAllIsLogged_thenRecoveredStoreIsEmpty() throws IOException {
+        DurableUserRepository repository = open();
+        repository.save(user("user1@example.com", "User1"));
+        repository.deleteAll();
+        repository.save(user("user2@example.com", "User2"));
+
+        try (DurableUserRepository reopened = open()) {
+            assertEquals(List.of("user2@example.com"),
+                    reopened.findAll().stream().map(User::getEmail).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Torn Log Tail is Truncated on Recovery")
+    void whenLastRecordIsTorn_thenPrecedingRecordsAreRecovered() throws IOException {
+        DurableUserRepository repository = open();
+        repository.save(user("user1@example.com", "User1"));
+        repository.save(user("user2@example.com", "User2"));
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".log"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (DurableUserRepository reopened = open()) {
+            assertEquals(List.of("user1@example.com"),
+                    reopened.findAll().stream().map(User::getEmail).toList());
+
+            reopened.save(user("user3@example.com", "User3"));
+        }
+
+        try (DurableUserRepository reopened = open()) {
+            assertEquals(2, reopened.findAll().size());
+        }
+    }
+
+    private DurableUserRepository open() throws IOException {
+        UserValidationPolicy validationPolicy =
+                new UserValidationPolicy(new UserProperties(), new MockEnvironment());
+        return new DurableUserRepository(validationPolicy, new UserPatcher(), directory, true, Duration.ofHours(1));
+    }
+
+    private static User user(String email, String firstName){
+        return new User(email, firstName, "Test",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000");
+    }
+}
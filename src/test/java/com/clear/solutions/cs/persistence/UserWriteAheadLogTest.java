@@ -0,0 +1,93 @@
+package com.clear.solutions.cs.persistence;
+
+import com.cs.entity.User;
+import com.cs.persistence.UserWriteAheadLog;
+import com.cs.store.EmailIndex;
+import com.cs.store.StripedUserStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserWriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("A Failed Group Commit Fails Its Followers and Every Later Write")
+    void whenFlushFails_thenWaitersAndLaterWritesFail() throws Exception {
+        CountDownLatch forcing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, 1, true,
+                segment -> FailingForceChannel.open(segment, forcing, release));
+
+        CompletableFuture<Void> leader = CompletableFuture.runAsync(() -> write(log, "leader@example.com"));
+        forcing.await();
+
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        CompletableFuture<Void> follower = CompletableFuture.runAsync(() -> {
+            followerThread.set(Thread.currentThread());
+            write(log, "follower@example.com");
+        });
+        // the follower appended its record and waits for the leader's flush
+        while (followerThread.get() == null || followerThread.get().getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertInstanceOf(UncheckedIOException.class, assertThrows(ExecutionException.class, leader::get).getCause());
+        assertInstanceOf(UncheckedIOException.class, assertThrows(ExecutionException.class, follower::get).getCause());
+        assertThrows(UncheckedIOException.class, () -> write(log, "later@example.com"));
+        assertThrows(IOException.class, log::roll);
+        log.close();
+    }
+
+    @Test
+    @DisplayName("A Write After a Log Failure Leaves the Store Unchanged")
+    void whenLogHasFailed_thenLaterWritesAreNotApplied() throws Exception {
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, 1, true,
+                segment -> FailingForceChannel.open(segment, new CountDownLatch(1), new CountDownLatch(0)));
+        EmailIndex emails = new EmailIndex();
+        StripedUserStore store = new StripedUserStore(emails);
+        store.addListener(log);
+
+        User first = user("first@example.com");
+        assertThrows(UncheckedIOException.class, () -> store.withLock(first.getEmail(), () -> store.put(first)));
+
+        User second = user("second@example.com");
+        assertThrows(UncheckedIOException.class, () -> store.withLock(second.getEmail(), () -> store.put(second)));
+        assertThrows(UncheckedIOException.class, () -> store.withLock(first.getEmail(),
+                () -> store.put(first.withVersion(2))));
+        assertThrows(UncheckedIOException.class, () -> store.withLock(first.getEmail(),
+                () -> store.remove(first.getEmail())));
+        assertThrows(UncheckedIOException.class, () -> store.withAllLocks(store::clear));
+
+        // the failed commit stays visible, nothing after it was applied
+        assertSame(first, store.get(first.getEmail()));
+        assertNull(store.get(second.getEmail()));
+        assertEquals(1, store.size());
+        assertEquals(List.of(first), emails.streamAfter(null).toList());
+        log.close();
+    }
+
+    private static User user(String email) {
+        return new User(email, "First", "Last", LocalDate.of(1990, 1, 1), null, null);
+    }
+
+    private static void write(UserWriteAheadLog log, String email) {
+        log.onPut(null, user(email));
+        log.afterUnlock();
+    }
+}
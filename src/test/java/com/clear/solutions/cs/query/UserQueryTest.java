@@ -0,0 +1,144 @@
+package com.clear.solutions.cs.query;
+
+import com.cs.entity.User;
+import com.cs.exception.user.UserValidationException;
+import com.cs.query.IndexScan;
+import com.cs.query.UserAccessPaths;
+import com.cs.query.UserField;
+import com.cs.query.UserPredicate;
+import com.cs.query.UserQuery;
+import com.cs.query.UserQueryPlanner;
+import com.cs.query.UserSort;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserQueryTest {
+
+    private static final User ANNA = new User("anna@example.com", "Anna", "O'Neil",
+            LocalDate.of(1990, 5, 1), null, "+380001");
+
+    @Test
+    void andBindsTighterThanOr() {
+        assertTrue(UserQuery.parse("firstName = x or lastName ^= 'o''n' and birthDate < 2000-01-01",
+                null, null).where().test(ANNA));
+        assertFalse(UserQuery.parse("(firstName = x or lastName ^= 'o''n') and birthDate < 1990-05-01",
+                null, null).where().test(ANNA));
+    }
+
+    @Test
+    void namesAndEmailsIgnoreCaseAndOtherFieldsDoNot() {
+        assertTrue(test("firstName = ANNA"));
+        assertTrue(test("lastName ^= 'O''n'"));
+        assertTrue(test("email = ANNA@example.com"), "emails compare in canonical form");
+        assertTrue(test("email ^= ANNA@"));
+        assertFalse(test("address = x"), "a missing field matches nothing");
+        assertTrue(test("phone >= +38 and phone <= +380001"));
+        assertFalse(test("birthDate > 1990-05-01"));
+    }
+
+    @Test
+    void rangesOnOneFieldAreIntersected() {
+        UserPredicate where = UserQuery.parse("birthDate >= 1990-01-01 and birthDate > 1990-01-01 "
+                                              + "and birthDate < 2000-01-01 and birthDate <= 1995-01-01",
+                null, null).where();
+
+        assertEquals(new UserPredicate.Range(UserField.BIRTH_DATE, LocalDate.of(1990, 1, 1), false,
+                LocalDate.of(1995, 1, 1), true), where);
+    }
+
+    @Test
+    void filtersParseBackFromTheirText() {
+        for (String filter : List.of("email = 'a b@x'",
+                "(lastName = 'x' or lastName = 'y') and birthDate >= '1990-01-01' and birthDate < '2000-01-01'",
+                "firstName ^= 'it''s' or phone <= '+3' and address > 'a'")) {
+            UserQuery query = UserQuery.parse(filter, "lastName,-birthDate", 5);
+
+            assertEquals(filter, query.filter());
+            assertEquals(query, UserQuery.parse(query.filter(), UserSort.toString(query.sort()), 5));
+        }
+    }
+
+    @Test
+    void sortIsCompletedByEmail() {
+        List<UserSort> sort = UserSort.parseAll("-birthDate");
+
+        assertEquals(List.of(new UserSort(UserField.BIRTH_DATE, true), UserSort.ascending(UserField.EMAIL)),
+                UserSort.complete(sort));
+        assertEquals(List.of(UserSort.ascending(UserField.EMAIL)), UserSort.complete(UserSort.parseAll("email,phone")));
+        assertNull(UserQuery.parse(" ", null, null).where());
+    }
+
+    @Test
+    void malformedQueriesAreRejected() {
+        for (String filter : List.of("age = 3", "email", "email = ", "email == x", "(email = x",
+                "email = x and", "email = 'x", "birthDate = yesterday", "email = x y")) {
+            assertThrows(UserValidationException.class, () -> UserQuery.parse(filter, null, null), filter);
+        }
+        assertThrows(UserValidationException.class, () -> UserQuery.parse(null, "email,,phone", null));
+        assertThrows(UserValidationException.class, () -> UserQuery.parse(null, "-age", null));
+        assertThrows(UserValidationException.class, () -> UserQuery.parse(null, null, 0));
+    }
+
+    @Test
+    void plannerSwitchesToScanAboveTheScanFraction() {
+        List<User> users = IntStream.range(0, 100)
+                .mapToObj(i -> new User("u" + i + "@x", "F", "L" + i % 10, LocalDate.of(1990, 1, 1), null, null))
+                .toList();
+        UserAccessPaths paths = new UserAccessPaths() {
+            @Override
+            public long size() {
+                return users.size();
+            }
+
+            @Override
+            public Stream<User> scan() {
+                return users.parallelStream();
+            }
+
+            @Override
+            public IndexScan index(UserPredicate.Condition condition, long budget) {
+                if (condition instanceof UserPredicate.Equal equal && equal.field() == UserField.LAST_NAME) {
+                    return IndexScan.unordered("lastName", users.stream().filter(equal::test).toList());
+                }
+                if (condition instanceof UserPredicate.Prefix prefix && prefix.field() == UserField.EMAIL) {
+                    return IndexScan.counted("email", UserSort.complete(List.of()),
+                            () -> users.stream().filter(prefix::test).sorted(UserField.EMAIL.order()), budget);
+                }
+                return null;
+            }
+        };
+
+        assertEquals("lastName", access("lastName = l1 and email ^= u1", paths, 0.2));
+        assertEquals("email", access("lastName = l1 and email ^= u11", paths, 0.2));
+        assertEquals("parallel scan", access("lastName = l1 and email ^= u1", paths, 0.05));
+        assertEquals("union(lastName + lastName)", access("lastName = l1 or lastName = l2", paths, 0.2));
+        assertEquals("parallel scan", access("lastName = l1 or lastName = l2", paths, 0.15));
+        assertEquals("parallel scan", access("lastName = l1 or firstName = f", paths, 1));
+
+        UserQuery query = UserQuery.parse("email ^= u1", "email", 3);
+        assertEquals("email", UserQueryPlanner.plan(query, paths, 0.5).access());
+        assertEquals(List.of("u10@x", "u11@x", "u12@x"),
+                UserQueryPlanner.plan(query, paths, 0.5).execute().map(User::getEmail).toList());
+        assertEquals("parallel scan, sorted", UserQueryPlanner.plan(query, paths, 0.05).access());
+        assertEquals(List.of("u10@x", "u11@x", "u12@x"),
+                UserQueryPlanner.plan(query, paths, 0.05).execute().map(User::getEmail).toList());
+    }
+
+    private static String access(String filter, UserAccessPaths paths, double scanFraction) {
+        return UserQueryPlanner.plan(UserQuery.parse(filter, null, null), paths, scanFraction).access();
+    }
+
+    private static boolean test(String filter) {
+        return UserQuery.parse(filter, null, null).where().test(ANNA);
+    }
+}
@@ -0,0 +1,265 @@
+package com.clear.solutions.cs.service;
+
+import com.cs.config.UserProperties;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.patcher.UserPatcher;
+import com.cs.validation.UserValidationPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserRepositoryConcurrencyTest {
+
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    private UserRepositoryImpl userRepository;
+
+    @BeforeEach
+    public void setUp(){
+        UserValidationPolicy validationPolicy =
+                new UserValidationPolicy(new UserProperties(), new MockEnvironment());
+        userRepository = new UserRepositoryImpl(validationPolicy, new UserPatcher());
+    }
+
+    @Test
+    @DisplayName("Concurrent Saves of Distinct Users are not Lost")
+    void whenConcurrentDistinctSaves_thenAllUsersAreStored() throws Exception {
+        int threads = 8;
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < 1_000; i++) {
+                userRepository.save(user("user-" + thread + "-" + i + "@example.com"));
+            }
+        });
+
+        assertEquals(threads * 1_000, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Concurrent Saves of the Same Email Create one User")
+    void whenConcurrentSavesOfSameEmail_thenExactlyOneSucceeds() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(16, thread -> {
+            try {
+                userRepository.save(user("same@example.com"));
+                created.incrementAndGet();
+            } catch (UserAlreadyExistsException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, created.get());
+        assertEquals(15, rejected.get());
+        assertEquals(1, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Concurrent Patches of one User are Applied Atomically")
+    void whenConcurrentPatches_thenEveryPatchedStateIsConsistent() throws Exception {
+        userRepository.save(user("user@example.com"));
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 1_000; i++) {
+                User patch = User.builder()
+                        .firstName("first-" + thread)
+                        .lastName("last-" + thread)
+                        .build();
+                userRepository.patchUser("user@example.com", patch);
+
+                User current = userRepository.findByEmail("user@example.com");
+                assertEquals(current.getFirstName().substring(6), current.getLastName().substring(5));
+            }
+        });
+
+        assertEquals(1, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Lock-Free Readers Never See a Half-Patched User")
+    void whenReadingDuringPatches_thenEveryReadIsOneWholeVersion() throws Exception {
+        userRepository.save(new User("user@example.com", "first-0", "last-0",
+                LocalDate.of(2001, 11, 11), "address-0", "+380000000000"));
+
+        runConcurrently(8, thread -> {
+            long lastVersion = 0;
+            for (int i = 0; i < 5_000; i++) {
+                if (thread < 4) {
+                    String suffix = thread + "-" + i;
+                    userRepository.patchUser("user@example.com", User.builder()
+                            .firstName("first-" + suffix)
+                            .lastName("last-" + suffix)
+                            .address("address-" + suffix)
+                            .build());
+                } else {
+                    User current = thread % 2 == 0
+                            ? userRepository.findByEmail("user@example.com")
+                            : userRepository.findAll().get(0);
+                    String suffix = current.getFirstName().substring(6);
+                    assertEquals(suffix, current.getLastName().substring(5));
+                    assertEquals(suffix, current.getAddress().substring(8));
+                    assertTrue(current.getVersion() >= lastVersion);
+                    lastVersion = current.getVersion();
+                }
+            }
+        });
+
+        assertEquals(4 * 5_000 + 1, userRepository.findByEmail("user@example.com").getVersion());
+    }
+
+    @Test
+    @DisplayName("Index Readers Never Miss a User While It is Updated")
+    void whenUserIsUpdatedInPlace_thenIndexReadersAlwaysFindIt() throws Exception {
+        userRepository.save(user("user@example.com"));
+        LocalDate birthDate = LocalDate.of(2001, 11, 11);
+        AtomicBoolean updating = new AtomicBoolean(true);
+
+        runConcurrently(5, thread -> {
+            if (thread == 0) {
+                for (int i = 0; i < 20_000; i++) {
+                    userRepository.patchUser("user@example.com", User.builder().address("address-" + i).build());
+                }
+                updating.set(false);
+                return;
+            }
+            while (updating.get()) {
+                assertEquals(1, userRepository.findPage(null, 10).users().size());
+                assertEquals(1, userRepository.findByLastName("Test").size());
+                assertEquals(1, userRepository.findByPhone("+380000000000").size());
+                assertEquals(1, userRepository.findByNamePrefix("te", 10).size());
+                assertEquals(1, userRepository.streamUsersInBirthDateRange(
+                        birthDate, true, birthDate, true).count());
+                assertEquals(1, userRepository.countInBirthDateRange(birthDate, true, birthDate, true));
+            }
+        });
+
+        assertEquals("address-19999", userRepository.findByEmail("user@example.com").getAddress());
+    }
+
+    @Test
+    @DisplayName("Compare-and-Set Patches Never Lose an Increment")
+    void whenConcurrentConditionalPatches_thenEverySuccessIsKept() throws Exception {
+        userRepository.save(new User("user@example.com", "User", "Test",
+                LocalDate.of(2001, 11, 11), "0", "+380000000000"));
+
+        runConcurrently(8, thread -> {
+            for (int applied = 0; applied < 500; ) {
+                User current = userRepository.findByEmail("user@example.com");
+                String next = Integer.toString(Integer.parseInt(current.getAddress()) + 1);
+                try {
+                    userRepository.patchUser("user@example.com",
+                            User.builder().address(next).build(), current.getVersion());
+                    applied++;
+                } catch (UserVersionConflictException e) {
+                    // another thread won the race; re-read and retry
+                }
+            }
+        });
+
+        User user = userRepository.findByEmail("user@example.com");
+        assertEquals("4000", user.getAddress());
+        assertEquals(4001, user.getVersion());
+    }
+
+    @Test
+    @DisplayName("Concurrent Email Changes Never Duplicate or Lose a User")
+    void whenConcurrentUpdatesMoveEmails_thenUserCountIsStable() throws Exception {
+        userRepository.save(user("a@example.com"));
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 1_000; i++) {
+                User patch = User.builder()
+                        .email(thread % 2 == 0 ? "b@example.com" : "a@example.com")
+                        .build();
+                try {
+                    userRepository.patchUser(thread % 2 == 0 ? "a@example.com" : "b@example.com", patch);
+                } catch (RuntimeException ignored) {
+                    // the user already moved, which is expected under contention
+                }
+            }
+        });
+
+        assertEquals(1, userRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Mixed Workload on Disjoint Users Loses no Write")
+    void whenMixedWorkloadRuns_thenEveryOperationSeesItsOwnWrites() throws Exception {
+        int threads = 8;
+        AtomicInteger operations = new AtomicInteger();
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                String email = "user-" + thread + "-" + (i / 4 % 512) + "@example.com";
+                switch (i % 4) {
+                    case 0 -> assertEquals(1, userRepository.save(user(email)).getVersion());
+                    case 1 -> assertTrue(userRepository.isUserExists(email));
+                    case 2 -> assertEquals(2, userRepository.update(email, user(email)).getVersion());
+                    default -> {
+                        userRepository.deleteByEmail(email);
+                        assertFalse(userRepository.isUserExists(email));
+                    }
+                }
+                operations.incrementAndGet();
+            }
+        });
+
+        assertEquals(threads * OPERATIONS_PER_THREAD, operations.get());
+        assertEquals(0, userRepository.findAll().size());
+        assertEquals(0, userRepository.count());
+    }
+
+    private static User user(String email){
+        return new User(email, "User", "Test",
+                LocalDate.of(2001, 11, 11), "Bridgewalk 1", "+380000000000");
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < threads; thread++) {
+                int id = thread;
+                Callable<Void> callable = () -> {
+                    start.await();
+                    task.run(id);
+                    return null;
+                };
+                futures.add(executor.submit(callable));
+            }
+
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
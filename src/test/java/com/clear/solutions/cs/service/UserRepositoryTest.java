@@ -1,10 +1,20 @@
 package com.clear.solutions.cs.service;
 
+import com.cs.dto.AgeBucket;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
 import com.cs.dto.UserRepositoryImpl;
 import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
 import com.cs.exception.user.UserNotFoundException;
 import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
 import com.cs.patcher.UserPatcher;
+import com.cs.query.UserField;
+import com.cs.query.UserQuery;
+import com.cs.query.UserSort;
+import com.cs.store.UserScanPool;
+import com.cs.validation.UserValidationPolicy;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,19 +24,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 
-@SpringBootTest(classes = {UserRepositoryTest.class, UserRepositoryImpl.class, UserPatcher.class})
+@SpringBootTest(classes = {UserRepositoryTest.class, UserRepositoryImpl.class, UserPatcher.class,
+        UserValidationPolicy.class})
 @AutoConfigureMockMvc
 public class UserRepositoryTest {
 
     @Autowired
     private UserRepositoryImpl userRepository;
 
+    @Autowired
+    private UserValidationPolicy validationPolicy;
+
     @BeforeEach
     public void setUp(){
         User user = new User("user@example.com", "User", "Test",
@@ -54,6 +72,24 @@ public class UserRepositoryTest {
                 () -> userRepository.findByEmail(email));
     }
 
+    @Test
+    @DisplayName("Optional Lookup Reports Misses without Throwing")
+    void whenLookingUpOptionally_thenMissIsEmpty(){
+        assertEquals("User", userRepository.findOptionalByEmail("user@example.com")
+                .map(User::getFirstName).orElse(null));
+        assertTrue(userRepository.findOptionalByEmail("invalidUser@example.com").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Domain Exceptions Carry no Stack Trace")
+    void whenUserIsMissing_thenExceptionHasNoStackTrace(){
+        UserNotFoundException exception = assertThrows(UserNotFoundException.class,
+                () -> userRepository.findByEmail("invalidUser@example.com"));
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("User with email invalidUser@example.com was not found", exception.getMessage());
+    }
+
     @Test
     @DisplayName("Find All")
     void findAllTest(){
@@ -63,7 +99,7 @@ public class UserRepositoryTest {
     @Test
     @DisplayName("Create User with Valid Data")
     void whenValidUserDataCreate_thenUserIsCreated(){
-        User validUser = new User("validUser@example.com", "validUser", "validTest",
+        User validUser = new User("validuser@example.com", "validUser", "validTest",
                 LocalDate.of(1999, 10, 5), "Bridgewalk Valid", "+380000000001");
 
         assertEquals(1, userRepository.findAll().size());
@@ -93,9 +129,10 @@ public class UserRepositoryTest {
     @Test
     @DisplayName("Update User with Valid Data")
     void whenValidUserDataUpdate_thenUserIsUpdated(){
-        User updatedUser = userRepository.findByEmail("user@example.com");
-        updatedUser.setEmail("validUser@example.com");
-        updatedUser.setFirstName("UpdatedUser");
+        User updatedUser = userRepository.findByEmail("user@example.com").toBuilder()
+                .email("validuser@example.com")
+                .firstName("UpdatedUser")
+                .build();
 
         assertEquals(1, userRepository.findAll().size());
 
@@ -109,9 +146,10 @@ public class UserRepositoryTest {
     @Test
     @DisplayName("Update User with Invalid Data")
     void whenInValidUserDataUpdate_thenUserValidationException(){
-        User invalidUpdatedUser = userRepository.findByEmail("user@example.com");
-        invalidUpdatedUser.setFirstName("InvalidUser");
-        invalidUpdatedUser.setBirthDate(LocalDate.of(2023, 1, 1));
+        User invalidUpdatedUser = userRepository.findByEmail("user@example.com").toBuilder()
+                .firstName("InvalidUser")
+                .birthDate(LocalDate.of(2023, 1, 1))
+                .build();
 
         assertEquals(1, userRepository.findAll().size());
 
@@ -125,9 +163,10 @@ public class UserRepositoryTest {
     @Test
     @DisplayName("Patch User with Valid Data")
     void whenValidUserDataUpdatePatch_thenUserIsUpdated(){
-        User user = new User();
-        user.setBirthDate(LocalDate.of(2002, 11, 12));
-        user.setFirstName("patchedUser");
+        User user = User.builder()
+                .birthDate(LocalDate.of(2002, 11, 12))
+                .firstName("patchedUser")
+                .build();
 
         assertEquals(1, userRepository.findAll().size());
 
@@ -143,12 +182,63 @@ public class UserRepositoryTest {
         assertEquals(user, userRepository.findByEmail(user.getEmail()));
     }
 
+    @Test
+    @DisplayName("Every Write Publishes a New Version")
+    void whenUserIsWritten_thenVersionIncrementsAndOldVersionIsUntouched(){
+        User original = userRepository.findByEmail("user@example.com");
+        assertEquals(1, original.getVersion());
+
+        User patched = userRepository.patchUser("user@example.com",
+                User.builder().firstName("Patched").build());
+        User updated = userRepository.update("user@example.com",
+                patched.toBuilder().lastName("Updated").build());
+
+        assertEquals(2, patched.getVersion());
+        assertEquals(3, updated.getVersion());
+        assertEquals(3, userRepository.findByEmail("user@example.com").getVersion());
+        assertEquals("User", original.getFirstName());
+        assertEquals("Patched", userRepository.findByEmail("user@example.com").getFirstName());
+    }
+
+    @Test
+    @DisplayName("Update to Another User's Email is Rejected")
+    void whenUpdateTakesExistingEmail_thenUserAlreadyExistsException(){
+        User other = userRepository.save(new User("other@example.com", "Other", "User",
+                LocalDate.of(1990, 1, 1), null, null));
+        User moved = userRepository.findByEmail("user@example.com").toBuilder().email("other@example.com").build();
+
+        assertThrows(UserAlreadyExistsException.class, () -> userRepository.update("user@example.com", moved));
+        assertThrows(UserAlreadyExistsException.class, () -> userRepository.update("missing@example.com", moved));
+
+        assertEquals(other, userRepository.findByEmail("other@example.com"));
+        assertEquals(1, userRepository.findByEmail("other@example.com").getVersion());
+        assertTrue(userRepository.findOptionalByEmail("user@example.com").isPresent());
+    }
+
+    @Test
+    @DisplayName("Writes Against a Stale Version are Rejected")
+    void whenExpectedVersionIsStale_thenVersionConflictException(){
+        User current = userRepository.findByEmail("user@example.com");
+        User patch = User.builder().firstName("Patched").build();
+
+        userRepository.patchUser("user@example.com", patch, current.getVersion());
+
+        assertThrows(UserVersionConflictException.class,
+                () -> userRepository.patchUser("user@example.com", patch, current.getVersion()));
+        assertThrows(UserVersionConflictException.class,
+                () -> userRepository.update("user@example.com", current, current.getVersion()));
+        assertThrows(UserVersionConflictException.class,
+                () -> userRepository.update("missing@example.com", current, 1));
+        assertEquals(2, userRepository.findByEmail("user@example.com").getVersion());
+    }
+
     @Test
     @DisplayName("Patch User with inValid Data")
     void whenInValidUserDataPatch_thenUserValidationException(){
-        User invalidUpdatedUser = new User();
-        invalidUpdatedUser.setFirstName("InvalidUser");
-        invalidUpdatedUser.setBirthDate(LocalDate.of(2023, 1, 1));
+        User invalidUpdatedUser = User.builder()
+                .firstName("InvalidUser")
+                .birthDate(LocalDate.of(2023, 1, 1))
+                .build();
 
         assertEquals(1, userRepository.findAll().size());
 
@@ -230,6 +320,311 @@ public class UserRepositoryTest {
                 userRepository.findUsersInBirthDateRange(dateFrom, dateTo).size());
     }
 
+    @Test
+    @DisplayName("Find Users in Birth Date Range with Inclusive Bounds")
+    void whenInclusiveBounds_thenUsersOnBoundaryDatesAreFound(){
+        User user = new User("user1@example.com", "User1", "Test1",
+                LocalDate.of(2005, 10, 1), "Bridgewalk 11", "+380000000001");
+
+        userRepository.save(user);
+
+        LocalDate dateFrom = LocalDate.of(2001, 11, 11);
+        LocalDate dateTo = LocalDate.of(2005, 10, 1);
+
+        assertEquals(0,
+                userRepository.findUsersInBirthDateRange(dateFrom, dateTo).size());
+        assertEquals(2,
+                userRepository.findUsersInBirthDateRange(dateFrom, true, dateTo, true).size());
+        assertIterableEquals(List.of(user),
+                userRepository.findUsersInBirthDateRange(dateFrom, false, dateTo, true));
+    }
+
+    @Test
+    @DisplayName("Birth Date Range Follows Updated Birth Dates")
+    void whenBirthDateIsPatched_thenRangeQueryReflectsNewDate(){
+        User patch = User.builder().birthDate(LocalDate.of(1990, 5, 5)).build();
+
+        userRepository.patchUser("user@example.com", patch);
+
+        assertEquals(0, userRepository.findUsersInBirthDateRange(
+                LocalDate.of(2001, 1, 1), LocalDate.of(2002, 1, 1)).size());
+        assertEquals(1, userRepository.findUsersInBirthDateRange(
+                LocalDate.of(1990, 5, 5), true, LocalDate.of(1990, 5, 5), true).size());
+
+        userRepository.deleteByEmail("user@example.com");
+
+        assertEquals(0, userRepository.findUsersInBirthDateRange(
+                LocalDate.of(1990, 5, 5), true, LocalDate.of(1990, 5, 5), true).size());
+    }
+
+    @Test
+    @DisplayName("Page Through Users in Email Order")
+    void whenPagingWithCursor_thenEveryUserIsReturnedOnceInOrder(){
+        for (int i = 0; i < 4; i++) {
+            userRepository.save(new User("user" + i + "@example.com", "User" + i, "Test" + i,
+                    LocalDate.of(2000, 1, 1 + i), "Bridgewalk", "+38000000000" + i));
+        }
+
+        UserPage first = userRepository.findPage(null, 2);
+        UserPage second = userRepository.findPage(first.nextCursor(), 2);
+        UserPage third = userRepository.findPage(second.nextCursor(), 2);
+
+        assertEquals(List.of("user0@example.com", "user1@example.com"),
+                first.users().stream().map(User::getEmail).toList());
+        assertEquals(List.of("user2@example.com", "user3@example.com"),
+                second.users().stream().map(User::getEmail).toList());
+        assertEquals(List.of("user@example.com"),
+                third.users().stream().map(User::getEmail).toList());
+        assertNull(third.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Save All Reports every Row")
+    void whenSavingBatch_thenValidUsersAreCreatedAndOthersReported(){
+        List<User> batch = List.of(
+                new User("user1@example.com", "User1", "Test1",
+                        LocalDate.of(2001, 1, 1), "Bridgewalk 11", "+380000000001"),
+                new User("user@example.com", "User", "Test",
+                        LocalDate.of(2001, 1, 1), "Bridgewalk 1", "+380000000000"),
+                new User("user2@example.com", "User2", "Test2",
+                        LocalDate.of(2023, 1, 1), "Bridgewalk 12", "+380000000002"),
+                new User("user1@example.com", "User3", "Test3",
+                        LocalDate.of(2001, 1, 1), "Bridgewalk 13", "+380000000003"));
+
+        List<UserBatchResult> results = userRepository.saveAll(batch);
+
+        assertEquals(List.of(UserBatchResult.Outcome.CREATED, UserBatchResult.Outcome.CONFLICT,
+                        UserBatchResult.Outcome.INVALID, UserBatchResult.Outcome.CONFLICT),
+                results.stream().map(UserBatchResult::outcome).toList());
+        assertEquals(2, userRepository.findAll().size());
+        assertEquals("User1", userRepository.findByEmail("user1@example.com").getFirstName());
+    }
+
+    @Test
+    @DisplayName("Secondary Indexes Follow Every Mutation")
+    void whenUserIsMutated_thenPhoneLastNameAndPrefixSearchFollow(){
+        userRepository.save(new User("anna@example.com", "Anna", "Andersen",
+                LocalDate.of(1990, 1, 1), null, "+380000000009"));
+
+        assertEquals(List.of("user@example.com"), emails(userRepository.findByPhone("+380000000000")));
+        assertEquals(List.of("anna@example.com"), emails(userRepository.findByLastName("andersen")));
+        assertEquals(List.of("anna@example.com"), emails(userRepository.findByNamePrefix("an", 10)));
+        assertEquals(List.of("user@example.com"), emails(userRepository.findByNamePrefix("TE", 10)));
+
+        User patch = User.builder().lastName("Olsen").phone("+380000000010").build();
+        userRepository.patchUser("anna@example.com", patch);
+
+        assertTrue(userRepository.findByPhone("+380000000009").isEmpty());
+        assertTrue(userRepository.findByLastName("Andersen").isEmpty());
+        assertEquals(List.of("anna@example.com"), emails(userRepository.findByLastName("Olsen")));
+        assertEquals(List.of("anna@example.com"), emails(userRepository.findByNamePrefix("ol", 10)));
+
+        userRepository.update("user@example.com", new User("moved@example.com", "Moved", "Olsen",
+                LocalDate.of(2001, 11, 11), null, "+380000000010"));
+
+        assertEquals(List.of("anna@example.com", "moved@example.com"),
+                emails(userRepository.findByPhone("+380000000010")).stream().sorted().toList());
+        assertTrue(userRepository.findByNamePrefix("te", 10).isEmpty());
+        assertEquals(1, userRepository.findByNamePrefix("o", 1).size());
+
+        userRepository.deleteByEmail("anna@example.com");
+
+        assertEquals(List.of("moved@example.com"), emails(userRepository.findByLastName("OLSEN")));
+    }
+
+    @Test
+    @DisplayName("Birthday and Range Counts Follow Every Mutation")
+    void whenMutated_thenBirthdaysAndCountsFollow(){
+        Random random = new Random(21);
+        for(int i = 0; i < 500; i++){
+            userRepository.save(new User("born" + i + "@example.com", "Born", "Test",
+                    LocalDate.of(1880 + random.nextInt(125), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                    null, null));
+        }
+        userRepository.save(new User("leap@example.com", "Leap", "Test", LocalDate.of(2000, 2, 29), null, null));
+        for(int i = 0; i < 500; i += 3){
+            userRepository.deleteByEmail("born" + i + "@example.com");
+        }
+        for(int i = 1; i < 500; i += 3){
+            userRepository.patchUser("born" + i + "@example.com",
+                    User.builder().birthDate(LocalDate.of(1950, 3, 14)).build());
+        }
+
+        for(int i = 0; i < 200; i++){
+            LocalDate from = LocalDate.of(1870 + random.nextInt(140), 1, 1).plusDays(random.nextInt(365));
+            LocalDate to = from.plusDays(random.nextInt(20_000));
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            assertEquals(userRepository.findUsersInBirthDateRange(from, fromInclusive, to, toInclusive).size(),
+                    userRepository.countInBirthDateRange(from, fromInclusive, to, toInclusive));
+        }
+
+        MonthDay piDay = MonthDay.of(3, 14);
+        assertEquals(emails(userRepository.findAll().stream()
+                        .filter(user -> MonthDay.from(user.getBirthDate()).equals(piDay))
+                        .sorted(Comparator.comparing(User::getEmail))
+                        .toList()),
+                emails(userRepository.findByBirthday(piDay)));
+        assertEquals(List.of("leap@example.com"), emails(userRepository.findByBirthday(MonthDay.of(2, 29))));
+        assertEquals(List.of("user@example.com"), emails(userRepository.findByBirthday(MonthDay.of(11, 11))));
+    }
+
+    @Test
+    @DisplayName("Age Histogram Counts Users per Bracket")
+    void whenHistogram_thenUsersCountedByAge(){
+        LocalDate today = LocalDate.of(2024, 6, 15);
+        userRepository.save(new User("nineteen@example.com", "A", "A", LocalDate.of(2005, 6, 15), null, null));
+        userRepository.save(new User("almost20@example.com", "A", "A", LocalDate.of(2004, 6, 16), null, null));
+        userRepository.save(new User("twenty@example.com", "A", "A", LocalDate.of(2004, 6, 15), null, null));
+        userRepository.save(new User("old@example.com", "A", "A", LocalDate.of(1900, 1, 1), null, null));
+
+        List<AgeBucket> histogram = userRepository.ageHistogram(today, 10, 40);
+
+        assertEquals(List.of(new AgeBucket(0, 10, 0), new AgeBucket(10, 20, 2), new AgeBucket(20, 30, 2),
+                new AgeBucket(30, 40, 0), new AgeBucket(40, null, 1)), histogram);
+        assertThrows(UserValidationException.class, () -> userRepository.ageHistogram(today, 0, 40));
+    }
+
+    @Test
+    @DisplayName("Queries Return What Filtering Every User Returns, Whatever the Plan")
+    void whenQueried_thenSameUsersAsFilteringAll(){
+        Random random = new Random(22);
+        for(int i = 0; i < 2000; i++){
+            userRepository.save(new User("q" + i + "@example.com", "First" + random.nextInt(300),
+                    "Last" + random.nextInt(50), LocalDate.of(1940, 1, 1).plusDays(random.nextInt(25_000)),
+                    "Street " + random.nextInt(20), "+38000" + random.nextInt(1000)));
+        }
+        List<String> filters = List.of(
+                "email = q7@example.com",
+                "email ^= q12 and lastName = last3",
+                "email >= q5 and email < q6",
+                "lastName = LAST7",
+                "phone = +38000123 or phone = +38000456",
+                "firstName = first12",
+                "firstName ^= FIRST29",
+                "birthDate >= 1990-01-01 and birthDate < 1990-03-01",
+                "birthDate = 1990-01-01",
+                "birthDate > 1950-01-01 and lastName = last1 and address = 'Street 4'",
+                "lastName = last1 or birthDate < 1941-01-01",
+                "(lastName = last1 or lastName = last2) and birthDate >= 2000-01-01",
+                "address = 'Street 4'",
+                "address ^= 'Street 1' or lastName ^= last4",
+                "birthDate >= 1945-01-01");
+
+        for(String filter : filters){
+            UserQuery query = UserQuery.parse(filter, null, null);
+            List<User> expected = userRepository.findAll().stream()
+                    .filter(query.where()::test)
+                    .sorted(Comparator.comparing(User::getEmail))
+                    .toList();
+            try(Stream<User> users = userRepository.query(query)){
+                assertEquals(filter, emails(expected), emails(users.sorted(Comparator.comparing(User::getEmail)).toList()));
+            }
+
+            UserQuery sorted = query.sortedBy(new UserSort(UserField.BIRTH_DATE, true)).limit(25);
+            List<User> expectedSorted = expected.stream()
+                    .sorted(UserSort.comparator(sorted.sort()))
+                    .limit(25)
+                    .toList();
+            try(Stream<User> users = userRepository.query(sorted)){
+                assertEquals(filter, emails(expectedSorted), emails(users.toList()));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Planner Reads Selective Conditions Through Indexes and Scans Otherwise")
+    void whenPlanned_thenIndexOnlyWhenSelective(){
+        for(int i = 0; i < 400; i++){
+            userRepository.save(new User("p" + i + "@example.com", "First" + i, "Last" + i % 40,
+                    LocalDate.of(1950, 1, 1).plusDays(i * 30L), "Street", null));
+        }
+
+        assertEquals("email", plan("email = p1@example.com", null));
+        assertEquals("lastName", plan("lastName = last3 and address = Street", null));
+        assertEquals("birthDate", plan("birthDate >= 1960-01-01 and birthDate < 1961-01-01", "birthDate"));
+        assertEquals("birthDate, sorted", plan("birthDate >= 1960-01-01 and birthDate < 1961-01-01", "-birthDate"));
+        assertEquals("union(lastName + lastName)", plan("lastName = last1 or lastName = last2", null));
+        assertEquals("parallel scan", plan("lastName = last1 or address = Street", null));
+        assertEquals("parallel scan, sorted", plan(null, "lastName"));
+        assertEquals("email", plan("email ^= p39", "email"));
+    }
+
+    @Test
+    @DisplayName("Emails Differing Only in Case Are One User")
+    void whenCaseDiffers_thenSameUser(){
+        User saved = userRepository.save(new User("Mixed.Case@Example.COM", "Mixed", "Case",
+                LocalDate.of(1990, 1, 1), null, null));
+
+        assertEquals("mixed.case@example.com", saved.getEmail());
+        assertSame(saved, userRepository.findByEmail("Mixed.Case@EXAMPLE.com"));
+        assertSame(saved, userRepository.findByEmail("mixed.case@example.com"));
+        assertThrows(UserAlreadyExistsException.class, () -> userRepository.save(
+                new User("MIXED.case@example.com", "Other", "Case", LocalDate.of(1990, 1, 1), null, null)));
+
+        User patched = userRepository.patchUser("Mixed.Case@example.COM",
+                User.builder().email("Mixed.Case@EXAMPLE.com").firstName("Patched").build());
+        assertEquals("mixed.case@example.com", patched.getEmail());
+        assertEquals(2, patched.getVersion());
+        assertEquals(3, userRepository.update("Mixed.Case@Example.com", new User("Mixed.Case@EXAMPLE.com",
+                "Updated", "Case", LocalDate.of(1990, 1, 1), null, null)).getVersion());
+
+        userRepository.deleteByEmail("Mixed.Case@EXAMPLE.COM");
+        assertTrue(userRepository.findOptionalByEmail("Mixed.Case@example.com").isEmpty());
+        assertEquals(List.of("user@example.com"), emails(userRepository.findAll()));
+    }
+
+    @Test
+    @DisplayName("Email Filters Match Whatever the Case")
+    void whenEmailFilterCaseDiffers_thenUserIsFound(){
+        userRepository.save(new User("a@x.com", "Case", "Filter", LocalDate.of(1990, 1, 1), null, null));
+
+        assertEquals(List.of("a@x.com"), emails(userRepository.query(UserQuery.parse("email = 'a@X.COM'", null, null))
+                .toList()));
+        assertEquals(List.of("a@x.com"), emails(userRepository.query(UserQuery.parse("email ^= 'A@'", null, null))
+                .toList()));
+        assertEquals("email", plan("email = 'A@x.com'", null));
+    }
+
+    @Test
+    @DisplayName("Parallel Reads Return What Sequential Reads Return")
+    void whenReadOnScanPool_thenSameUsersAsSequentialRead(){
+        UserRepositoryImpl parallel = new UserRepositoryImpl(validationPolicy, new UserPatcher(),
+                new UserScanPool(4, 1));
+        userRepository.deleteAll();
+        Random random = new Random(23);
+        for(int i = 0; i < 3000; i++){
+            User user = new User("s" + i + "@example.com", "First", "Last",
+                    LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000)), null, null);
+            userRepository.save(user);
+            parallel.save(user);
+        }
+
+        List<User> all = parallel.findAll();
+        assertEquals(userRepository.count(), all.size());
+        assertEquals(emails(userRepository.findAll().stream().sorted(Comparator.comparing(User::getEmail)).toList()),
+                emails(all.stream().sorted(Comparator.comparing(User::getEmail)).toList()));
+        assertEquals(new ArrayList<>(all), all.stream().toList());
+        assertEquals(all.get(all.size() - 1), new ArrayList<>(all).get(all.size() - 1));
+        assertThrows(UnsupportedOperationException.class, () -> all.add(all.get(0)));
+
+        LocalDate from = LocalDate.of(1960, 3, 1);
+        for(LocalDate to : List.of(from, from.plusDays(1), from.plusDays(3), from.plusYears(20), LocalDate.MAX)){
+            for(boolean inclusive : new boolean[]{true, false}){
+                assertIterableEquals(userRepository.findUsersInBirthDateRange(from, inclusive, to, inclusive),
+                        parallel.findUsersInBirthDateRange(from, inclusive, to, inclusive));
+            }
+        }
+    }
+
+    private String plan(String filter, String sort){
+        return userRepository.plan(UserQuery.parse(filter, sort, null)).access();
+    }
+
+    private static List<String> emails(List<User> users){
+        return users.stream().map(User::getEmail).toList();
+    }
+
     @AfterEach
     public void cleanUp(){
         userRepository.deleteAll();
@@ -0,0 +1,75 @@
+package com.clear.solutions.cs.shard;
+
+import com.cs.shard.ConsistentHashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 20_000;
+
+    @Test
+    void spreadsKeysEvenlyOverNodes() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c", "d");
+
+        Map<String, Integer> counts = new HashMap<>();
+        IntStream.range(0, KEYS).forEach(i -> counts.merge(ring.nodeFor(key(i)), 1, Integer::sum));
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.25,
+                "unbalanced: " + counts));
+    }
+
+    @Test
+    void ownersDoNotDependOnTheOrderNodesJoined() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c");
+        ConsistentHashRing<String> reversed = ring("c", "b", "a");
+
+        IntStream.range(0, KEYS).forEach(i -> assertEquals(ring.nodeFor(key(i)), reversed.nodeFor(key(i))));
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c");
+        ConsistentHashRing<String> grown = ring.with("d", "d");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String before = ring.nodeFor(key(i));
+            String after = grown.nodeFor(key(i));
+            if (!before.equals(after)) {
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > KEYS / 4 * 0.75 && moved < KEYS / 4 * 1.25, "moved " + moved);
+        assertEquals(3, ring.nodes().size());
+    }
+
+    @Test
+    void rejectsDuplicateAndMissingNodes() {
+        assertThrows(IllegalArgumentException.class, () -> ring("a").with("a", "a"));
+        assertThrows(IllegalArgumentException.class, () -> ConsistentHashRing.of(Map.of(), 16));
+    }
+
+    private static ConsistentHashRing<String> ring(String... names) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (String name : names) {
+            nodes.put(name, name);
+        }
+        return ConsistentHashRing.of(nodes, 128);
+    }
+
+    private static String key(int i) {
+        return "user" + i + "@example.com";
+    }
+}
@@ -0,0 +1,412 @@
+package com.clear.solutions.cs.shard;
+
+import com.cs.CsApplication;
+import com.cs.config.UserProperties;
+import com.cs.dto.ReactiveUserRepository;
+import com.cs.dto.ReactiveUserRepositoryImpl;
+import com.cs.dto.UserBatchResult;
+import com.cs.dto.UserPage;
+import com.cs.dto.UserRepository;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.exception.user.UserValidationException;
+import com.cs.exception.user.UserVersionConflictException;
+import com.cs.patcher.UserPatcher;
+import com.cs.query.UserQuery;
+import com.cs.query.UserSort;
+import com.cs.shard.RemoteUserRepository;
+import com.cs.shard.ShardUnavailableException;
+import com.cs.shard.ShardedUserRepository;
+import com.cs.validation.UserValidationPolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Runs the router against shards that are instances of the application on their own
+ * ports, reached over HTTP like in a deployment.
+ */
+class ShardedUserRepositoryTest {
+
+    private static final int SHARDS = 3;
+
+    private static final List<ConfigurableApplicationContext> shardApps = new ArrayList<>();
+    private static final Map<String, UserRepository> shards = new LinkedHashMap<>();
+    private static ObjectMapper mapper;
+    private static HttpClient client;
+
+    private final List<ConfigurableApplicationContext> addedApps = new ArrayList<>();
+    private ShardedUserRepository repository;
+
+    @BeforeAll
+    static void startShards() {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        for (int i = 0; i < SHARDS; i++) {
+            ConfigurableApplicationContext app = startShard();
+            shardApps.add(app);
+            mapper = app.getBean(ObjectMapper.class);
+            String url = url(app);
+            shards.put(url, remote(url));
+        }
+    }
+
+    @AfterAll
+    static void stopShards() {
+        shardApps.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @BeforeEach
+    void setUp() {
+        repository = new ShardedUserRepository(shards, 128, new UserPatcher(), url -> remote(url));
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+        addedApps.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Users are Spread over Shards and Found Through the Router")
+    void whenSaved_thenStoredOnOneShardAndFound() {
+        List<User> saved = IntStream.range(0, 30).mapToObj(i -> repository.save(user(i))).toList();
+
+        saved.forEach(user -> assertEquals(1, user.getVersion()));
+        assertEquals(user(7), repository.findByEmail(email(7)));
+        assertTrue(repository.findOptionalByEmail("missing@example.com").isEmpty());
+        assertThrows(UserNotFoundException.class, () -> repository.findByEmail("missing@example.com"));
+        assertThrows(UserAlreadyExistsException.class, () -> repository.save(user(7)));
+        assertThrows(UserValidationException.class, () -> repository.save(User.builder()
+                .email("young@example.com").firstName("Y").lastName("Y").birthDate(LocalDate.now()).build()));
+
+        long stored = 0;
+        for (UserRepository shard : shards.values()) {
+            long count = shard.count();
+            assertTrue(count > 0, "a shard got no users");
+            stored += count;
+        }
+        assertEquals(30, stored);
+        assertEquals(30, repository.count());
+    }
+
+    @Test
+    @DisplayName("Scatter-Gather Merges Shards in the Order of a Single Store")
+    void whenListed_thenMergedInStoreOrder() {
+        List<User> users = IntStream.range(0, 40).mapToObj(ShardedUserRepositoryTest::user).toList();
+        users.forEach(repository::save);
+
+        List<String> byEmail = users.stream().map(User::getEmail).sorted().toList();
+        assertEquals(byEmail, repository.findAll().stream().map(User::getEmail).toList());
+
+        List<String> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPage page = repository.findPage(cursor, 7);
+            page.users().forEach(user -> walked.add(user.getEmail()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertEquals(byEmail, walked);
+
+        LocalDate from = LocalDate.of(1980, 1, 1);
+        LocalDate to = LocalDate.of(1990, 1, 1);
+        List<User> expected = users.stream()
+                .filter(user -> !user.getBirthDate().isBefore(from) && user.getBirthDate().isBefore(to))
+                .sorted(Comparator.comparing(User::getBirthDate).thenComparing(User::getEmail))
+                .toList();
+        assertIterableEquals(expected, repository.findUsersInBirthDateRange(from, true, to, false));
+        try (var stream = repository.streamUsersInBirthDateRange(from, true, to, false)) {
+            assertIterableEquals(expected, stream.toList());
+        }
+
+        assertEquals(List.of(email(13), email(23), email(33), email(3)),
+                repository.findByLastName("last3").stream().map(User::getEmail).toList());
+        assertEquals(List.of(email(1), email(10), email(11)),
+                repository.findByNamePrefix("first1", 3).stream().map(User::getEmail).toList());
+    }
+
+    @Test
+    @DisplayName("Queries Run on Every Shard and are Merged in Their Sort Order")
+    void whenQueried_thenShardResultsMerged() {
+        List<User> users = IntStream.range(0, 40).mapToObj(ShardedUserRepositoryTest::user).toList();
+        users.forEach(repository::save);
+        UserQuery query = UserQuery.parse("lastName = last3 or birthDate < 1975-01-01 and address ^= 'Street 3'",
+                "-birthDate", 6);
+
+        List<User> expected = users.stream()
+                .filter(query.where()::test)
+                .sorted(UserSort.comparator(query.sort()))
+                .limit(6)
+                .toList();
+        try (var stream = repository.query(query)) {
+            assertIterableEquals(expected, stream.toList());
+        }
+        try (var stream = repository.query(UserQuery.parse("lastName = last3", null, null))) {
+            assertEquals(List.of(email(13), email(23), email(33), email(3)),
+                    stream.map(User::getEmail).sorted().toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Batch Rows are Sent to Their Shards and Keep Their Row Numbers")
+    void whenSavedInBatch_thenResultsFollowInputRows() {
+        repository.save(user(2));
+        List<User> batch = List.of(user(0), user(1), user(2), user(3), user(1));
+
+        List<UserBatchResult> results = repository.saveAll(batch);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(UserBatchResult::row).toList());
+        assertEquals(List.of(UserBatchResult.Outcome.CREATED, UserBatchResult.Outcome.CREATED,
+                        UserBatchResult.Outcome.CONFLICT, UserBatchResult.Outcome.CREATED,
+                        UserBatchResult.Outcome.CONFLICT),
+                results.stream().map(UserBatchResult::outcome).toList());
+        assertEquals(4, repository.count());
+    }
+
+    @Test
+    @DisplayName("Changing the Email Moves the User to the Shard that Owns the New One")
+    void whenEmailChangesOwner_thenUserIsMoved() {
+        repository.save(user(0));
+        UserRepository source = owner(email(0));
+        String movedEmail = IntStream.range(100, 200).mapToObj(ShardedUserRepositoryTest::email)
+                .filter(email -> owner(email) != source)
+                .findFirst()
+                .orElseThrow();
+        UserRepository target = owner(movedEmail);
+
+        User moved = repository.update(email(0), user(0).toBuilder().email(movedEmail).build(), 1);
+
+        assertEquals(movedEmail, moved.getEmail());
+        assertTrue(source.findOptionalByEmail(email(0)).isEmpty());
+        assertEquals(moved, target.findByEmail(movedEmail));
+        assertEquals(2, target.findByEmail(movedEmail).getVersion());
+        assertEquals(1, repository.count());
+
+        User patched = repository.patchUser(movedEmail, User.builder().email(email(0)).firstName("Back").build(), 2);
+        assertEquals(3, patched.getVersion());
+        assertEquals("Back", patched.getFirstName());
+        assertEquals(user(0).getLastName(), patched.getLastName());
+        assertTrue(target.findOptionalByEmail(movedEmail).isEmpty());
+        assertEquals(patched, source.findByEmail(email(0)));
+    }
+
+    @Test
+    @DisplayName("A Cross-Shard Move Checks the Version and the New Email")
+    void whenMoveConflicts_thenNothingChanges() {
+        repository.save(user(0));
+        String otherEmail = IntStream.range(100, 200).mapToObj(ShardedUserRepositoryTest::email)
+                .filter(email -> owner(email) != owner(email(0)))
+                .findFirst()
+                .orElseThrow();
+        repository.save(user(1).toBuilder().email(otherEmail).build());
+
+        assertThrows(UserVersionConflictException.class,
+                () -> repository.update(email(0), user(0).toBuilder().email("x" + otherEmail).build(), 5));
+        assertThrows(UserAlreadyExistsException.class,
+                () -> repository.update(email(0), user(0).toBuilder().email(otherEmail).build()));
+
+        assertEquals(1, repository.findByEmail(email(0)).getVersion());
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    @DisplayName("Adding a Shard Moves the Users It Owns and Loses None")
+    void whenShardAdded_thenUsersRebalanced() {
+        IntStream.range(0, 60).forEach(i -> repository.save(user(i)));
+        ConfigurableApplicationContext app = startShard();
+        addedApps.add(app);
+        String url = url(app);
+
+        int moved = repository.addShard(url);
+
+        UserRepository added = remote(url);
+        assertTrue(moved > 0);
+        assertEquals(moved, added.count());
+        assertEquals(60, repository.count());
+        assertEquals(4, repository.shards().size());
+        IntStream.range(0, 60).forEach(i -> assertEquals(user(i), repository.findByEmail(email(i))));
+    }
+
+    @Test
+    @DisplayName("Reactive Reads and Writes Call Shards off the Subscribing Thread")
+    void whenUsedReactively_thenShardCallsRunOnBoundedElastic() {
+        ReactiveUserRepository reactive = new ReactiveUserRepositoryImpl(repository);
+
+        String writer = reactive.save(user(1)).map(user -> Thread.currentThread().getName()).block();
+        String reader = reactive.findByEmail(email(1)).map(user -> Thread.currentThread().getName()).block();
+        String scanner = reactive.findAll().map(user -> Thread.currentThread().getName()).blockFirst();
+
+        assertTrue(writer.startsWith("boundedElastic"), writer);
+        assertTrue(reader.startsWith("boundedElastic"), reader);
+        assertTrue(scanner.startsWith("boundedElastic"), scanner);
+    }
+
+    @Test
+    @DisplayName("A Move Whose Source Delete Fails Leaves the User on the Source Alone")
+    void whenSourceDeleteFails_thenCopyIsRemoved() {
+        UserRepositoryImpl first = spy(heapShard());
+        UserRepositoryImpl second = heapShard();
+        Map<String, UserRepository> heapShards = new LinkedHashMap<>();
+        heapShards.put("first", first);
+        heapShards.put("second", second);
+        try (ShardedUserRepository router = new ShardedUserRepository(heapShards, 128, new UserPatcher(),
+                name -> heapShard())) {
+            String email = IntStream.range(0, 100).mapToObj(ShardedUserRepositoryTest::email)
+                    .filter(candidate -> {
+                        router.save(user(0).toBuilder().email(candidate).build());
+                        boolean onFirst = first.isUserExists(candidate);
+                        router.deleteByEmail(candidate);
+                        return onFirst;
+                    })
+                    .findFirst()
+                    .orElseThrow();
+            String movedEmail = IntStream.range(100, 200).mapToObj(ShardedUserRepositoryTest::email)
+                    .filter(candidate -> {
+                        router.save(user(0).toBuilder().email(candidate).build());
+                        boolean onSecond = second.isUserExists(candidate);
+                        router.deleteByEmail(candidate);
+                        return onSecond;
+                    })
+                    .findFirst()
+                    .orElseThrow();
+            router.save(user(0).toBuilder().email(email).build());
+            doThrow(new ShardUnavailableException("Shard first is unavailable", null))
+                    .when(first).deleteByEmail(email);
+
+            assertThrows(ShardUnavailableException.class,
+                    () -> router.update(email, user(0).toBuilder().email(movedEmail).build()));
+
+            assertEquals(1, first.findByEmail(email).getVersion());
+            assertFalse(second.isUserExists(movedEmail));
+            assertEquals(1, router.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Rebalanced Users Keep Their Versions and Entity Tags")
+    void whenShardAdded_thenVersionsSurvive() {
+        IntStream.range(0, 60).forEach(i -> {
+            repository.save(user(i));
+            for (int patch = 0; patch < i % 3; patch++) {
+                repository.patchUser(email(i), User.builder().firstName("Patched" + patch).build());
+            }
+        });
+        ConfigurableApplicationContext app = startShard();
+        addedApps.add(app);
+        String url = url(app);
+
+        assertTrue(repository.addShard(url) > 0);
+
+        // remote shards derive versions from the entity tags they answer with
+        UserRepository added = remote(url);
+        IntStream.range(0, 60).forEach(i -> assertEquals(1 + i % 3, repository.findByEmail(email(i)).getVersion()));
+        String moved = IntStream.range(0, 60).filter(i -> i % 3 == 2).mapToObj(ShardedUserRepositoryTest::email)
+                .filter(email -> added.findOptionalByEmail(email).isPresent())
+                .findFirst()
+                .orElseThrow();
+        // a tag from before the user reached version 3 must not match again after the move
+        assertThrows(UserVersionConflictException.class,
+                () -> repository.patchUser(moved, User.builder().firstName("Stale").build(), 1));
+        assertEquals(4, repository.patchUser(moved, User.builder().firstName("Fresh").build(), 3).getVersion());
+    }
+
+    @Test
+    @DisplayName("Writes During Rebalancing are Neither Lost nor Duplicated")
+    void whenWritingWhileRebalancing_thenEveryUserStoredOnce() throws Exception {
+        IntStream.range(0, 100).forEach(i -> repository.save(user(i)));
+        ConfigurableApplicationContext app = startShard();
+        addedApps.add(app);
+
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> creates = writers.submit(() -> IntStream.range(100, 160).forEach(i -> repository.save(user(i))));
+            Future<?> updates = writers.submit(() -> IntStream.range(0, 100).forEach(i ->
+                    repository.patchUser(email(i), User.builder().firstName("Updated" + i).build())));
+            repository.addShard(url(app));
+            creates.get();
+            updates.get();
+        } finally {
+            writers.shutdown();
+        }
+
+        assertEquals(160, repository.count());
+        List<User> all = repository.findAll();
+        assertEquals(160, all.size());
+        IntStream.range(0, 100).forEach(i -> assertEquals("Updated" + i, repository.findByEmail(email(i)).getFirstName()));
+    }
+
+    private UserRepository owner(String email) {
+        return shards.values().stream()
+                .filter(shard -> shard.findOptionalByEmail(email).isPresent())
+                .findFirst()
+                .orElseGet(() -> {
+                    // not stored yet: save and look again, then remove the probe
+                    repository.save(user(0).toBuilder().email(email).build());
+                    UserRepository owner = owner(email);
+                    repository.deleteByEmail(email);
+                    return owner;
+                });
+    }
+
+    private static UserRepositoryImpl heapShard() {
+        return new UserRepositoryImpl(new UserValidationPolicy(new UserProperties(), new MockEnvironment()),
+                new UserPatcher());
+    }
+
+    private static ConfigurableApplicationContext startShard() {
+        return new SpringApplicationBuilder(CsApplication.class)
+                .properties("server.port=0", "user.store.backend=heap", "user.shards.member=true",
+                        "spring.main.banner-mode=off")
+                .run();
+    }
+
+    private static String url(ConfigurableApplicationContext app) {
+        return "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+    }
+
+    private static UserRepository remote(String url) {
+        return new RemoteUserRepository(URI.create(url), client, mapper, Duration.ofSeconds(10));
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email(email(i))
+                .firstName("First" + i)
+                .lastName("Last" + (i % 10))
+                .birthDate(LocalDate.of(1970 + i % 30, 1 + i % 12, 1 + i % 28))
+                .address("Street " + i)
+                .phone("+38000000" + String.format("%04d", i))
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.clear.solutions.cs.store;
+
+import com.cs.store.EmailKeys;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EmailKeysTest {
+
+    @Test
+    void variantsInCaseFoldToOneKey() {
+        for (String variant : List.of("A@x.com", "a@x.com", "a@X.COM", "A@X.Com")) {
+            assertEquals("a@x.com", EmailKeys.canonical(variant));
+        }
+        assertEquals("élise@straße.de", EmailKeys.canonical("Élise@Straße.DE"));
+    }
+
+    @Test
+    void canonicalEmailsAreReturnedAsIs() {
+        String email = "user.name+tag@example.com";
+        assertSame(email, EmailKeys.canonical(email));
+        assertNull(EmailKeys.canonical((String) null));
+    }
+}
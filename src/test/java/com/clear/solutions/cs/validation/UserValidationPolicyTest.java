@@ -0,0 +1,116 @@
+package com.clear.solutions.cs.validation;
+
+import com.cs.config.UserProperties;
+import com.cs.entity.User;
+import com.cs.validation.UserValidationPolicy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserValidationPolicyTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-02-28T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    @DisplayName("User Turning Min Age Today is Accepted")
+    void whenMinAgeReachedToday_thenUserIsValid(){
+        UserValidationPolicy policy = new UserValidationPolicy(new UserProperties(), new MockEnvironment(), CLOCK);
+
+        assertNull(policy.validationError(user(LocalDate.of(2008, 2, 28))));
+        assertEquals("User must be 18 years old",
+                policy.validationError(user(LocalDate.of(2008, 2, 29))));
+        assertEquals("Invalid birth date",
+                policy.validationError(user(LocalDate.of(2026, 2, 28))));
+    }
+
+    @Test
+    @DisplayName("Refresh Picks up a Changed Min Age")
+    void whenMinAgeChangesAndPolicyRefreshes_thenNewAgeApplies(){
+        MockEnvironment env = new MockEnvironment().withProperty("user.properties.min-age", "18");
+        UserValidationPolicy policy = new UserValidationPolicy(new UserProperties(), env, CLOCK);
+        User user = user(LocalDate.of(2006, 1, 1));
+
+        assertNull(policy.validationError(user));
+
+        env.setProperty("user.properties.min-age", "21");
+        policy.refresh();
+
+        assertEquals(21, policy.getMinAge());
+        assertEquals("User must be 21 years old", policy.validationError(user));
+    }
+
+    @Test
+    @DisplayName("A Changed Min Age Applies on the Next Scheduled Refresh")
+    void whenMinAgePropertyChanges_thenScheduledRefreshAppliesIt(){
+        new ApplicationContextRunner()
+                .withPropertyValues("user.properties.min-age=18", "user.properties.refresh-interval=PT0.05S")
+                .withUserConfiguration(Scheduling.class, UserValidationPolicy.class)
+                .run(context -> {
+                    UserValidationPolicy policy = context.getBean(UserValidationPolicy.class);
+                    User user = user(LocalDate.now().minusYears(20));
+                    assertNull(policy.validationError(user));
+
+                    TestPropertyValues.of("user.properties.min-age=21").applyTo(context.getEnvironment());
+
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (policy.getMinAge() != 21 && System.nanoTime() < deadline) {
+                        Thread.sleep(10);
+                    }
+                    assertEquals("User must be 21 years old", policy.validationError(user));
+                });
+    }
+
+    @Test
+    @DisplayName("A New Day Moves the Cutoffs without a Refresh")
+    void whenDateRollsOver_thenCutoffsFollow(){
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2026-02-28T23:59:59Z"));
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        UserValidationPolicy policy = new UserValidationPolicy(new UserProperties(), new MockEnvironment(), clock);
+        User user = user(LocalDate.of(2008, 3, 1));
+
+        assertEquals("User must be 18 years old", policy.validationError(user));
+
+        now.set(Instant.parse("2026-03-01T00:00:00Z"));
+
+        assertNull(policy.validationError(user));
+    }
+
+    @Configuration
+    @EnableScheduling
+    static class Scheduling {
+    }
+
+    private static User user(LocalDate birthDate){
+        return new User("user@example.com", "User", "Test",
+                birthDate, "Bridgewalk 1", "+380000000000");
+    }
+}
@@ -0,0 +1,229 @@
+package com.clear.solutions.cs.write;
+
+import com.clear.solutions.cs.persistence.FailingForceChannel;
+import com.cs.config.UserProperties;
+import com.cs.dto.ReactiveUserRepository;
+import com.cs.dto.ReactiveUserRepositoryImpl;
+import com.cs.dto.UserRepository;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.patcher.UserPatcher;
+import com.cs.persistence.UserWriteAheadLog;
+import com.cs.store.UserMutationListener;
+import com.cs.validation.UserValidationPolicy;
+import com.cs.write.BatchingUserRepository;
+import com.cs.write.UserWriteQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UserWriteQueueTest {
+
+    private UserRepositoryImpl backend;
+    private UserWriteQueue writes;
+    private final AtomicInteger commits = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        backend = spy(new UserRepositoryImpl(
+                new UserValidationPolicy(new UserProperties(), new MockEnvironment()), new UserPatcher()));
+        backend.addMutationListener(new UserMutationListener() {
+            @Override
+            public void onPut(User previous, User user) {
+            }
+
+            @Override
+            public void onRemove(User removed) {
+            }
+
+            @Override
+            public void onClear() {
+            }
+
+            @Override
+            public void afterUnlock() {
+                commits.incrementAndGet();
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writes != null) {
+            writes.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Writes Queued Behind a Batch Are Committed Together")
+    void whenWritesQueueUp_thenTheyAreCommittedAsOneBatch() throws Exception {
+        writes = new UserWriteQueue(backend, 256);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> blocker = writes.submit(repository -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return null;
+        });
+        started.await();
+
+        List<CompletableFuture<User>> saved = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = user("user" + i + "@example.com");
+            saved.add(writes.submit(repository -> repository.save(user)));
+        }
+        assertTrue(saved.stream().noneMatch(CompletableFuture::isDone), "nothing completes before its commit");
+        commits.set(0);
+        release.countDown();
+
+        blocker.get();
+        for (CompletableFuture<User> future : saved) {
+            assertEquals("First", future.get().getFirstName());
+        }
+        assertEquals(10, backend.count());
+        verify(backend, times(2)).inBatch(any());
+        assertEquals(2, commits.get(), "one commit for the blocker and one for the ten saves");
+    }
+
+    @Test
+    @DisplayName("A Failing Write Fails Only Its Own Request")
+    void whenOneWriteFails_thenTheRestOfTheBatchCommits() {
+        writes = new UserWriteQueue(backend, 256);
+        UserRepository repository = new BatchingUserRepository(backend, writes);
+        repository.save(user("taken@example.com"));
+
+        assertThrows(UserAlreadyExistsException.class, () -> repository.save(user("taken@example.com")));
+        assertEquals("First", repository.save(user("free@example.com")).getFirstName());
+        repository.deleteByEmail("taken@example.com");
+        assertEquals(List.of("free@example.com"), repository.findAll().stream().map(User::getEmail).toList());
+    }
+
+    @Test
+    @DisplayName("A Failing Commit Fails Every Write of the Batch but Leaves Them Applied")
+    void whenCommitFails_thenEveryWriteOfTheBatchFailsButStaysVisible() {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            throw new IllegalStateException("disk full");
+        }).when(backend).inBatch(any());
+        writes = new UserWriteQueue(backend, 256);
+
+        CompletableFuture<User> saved = writes.submit(repository -> repository.save(user("user@example.com")));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> UserWriteQueue.await(saved));
+        assertEquals("disk full", failure.getMessage());
+        assertTrue(backend.findOptionalByEmail("user@example.com").isPresent(),
+                "a failed commit is not rolled back");
+    }
+
+    @Test
+    @DisplayName("Writes After a Failed Log Commit are Refused Without Being Applied")
+    void whenLogHasFailed_thenLaterWritesLeaveTheStoreUnchanged(@TempDir Path directory) throws Exception {
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, 1, true,
+                segment -> FailingForceChannel.open(segment, new CountDownLatch(1), new CountDownLatch(0)));
+        backend.addMutationListener(log);
+        writes = new UserWriteQueue(backend, 256);
+        UserRepository repository = new BatchingUserRepository(backend, writes);
+
+        assertThrows(UncheckedIOException.class, () -> repository.save(user("first@example.com")));
+        assertThrows(UncheckedIOException.class, () -> repository.save(user("second@example.com")));
+        assertThrows(UncheckedIOException.class, () -> repository.deleteByEmail("first@example.com"));
+
+        assertTrue(backend.findOptionalByEmail("first@example.com").isPresent(),
+                "a failed commit is not rolled back");
+        assertTrue(backend.findOptionalByEmail("second@example.com").isEmpty());
+        assertEquals(1, backend.count());
+        log.close();
+    }
+
+    @Test
+    @DisplayName("Reactive Writes Wait for Their Batch off the Subscribing Thread")
+    void whenUsedReactively_thenWritesRunOnBoundedElastic() {
+        writes = new UserWriteQueue(backend, 256);
+        ReactiveUserRepository reactive = new ReactiveUserRepositoryImpl(new BatchingUserRepository(backend, writes));
+        String caller = Thread.currentThread().getName();
+
+        String writer = reactive.save(user("user@example.com")).map(user -> Thread.currentThread().getName()).block();
+        String reader = reactive.findByEmail("user@example.com").map(user -> Thread.currentThread().getName()).block();
+
+        assertTrue(writer.startsWith("boundedElastic"), writer);
+        assertEquals(caller, reader);
+    }
+
+    @Test
+    @DisplayName("Concurrent Writers All Get Committed")
+    void whenManyThreadsWrite_thenEveryWriteIsCommitted() throws Exception {
+        writes = new UserWriteQueue(backend, 16);
+        UserRepository repository = new BatchingUserRepository(backend, writes);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread * 200;
+                writers.add(executor.submit(() -> {
+                    for (int i = first; i < first + 200; i++) {
+                        repository.save(user("user" + i + "@example.com"));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1600, backend.count());
+    }
+
+    @Test
+    @DisplayName("Closing Commits Accepted Writes and Rejects Later Ones")
+    void whenClosed_thenAcceptedWritesCompleteAndNewOnesFail() throws Exception {
+        writes = new UserWriteQueue(backend, 4);
+        List<CompletableFuture<User>> saved = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            User user = user("user" + i + "@example.com");
+            saved.add(writes.submit(repository -> repository.save(user)));
+        }
+
+        writes.close();
+
+        for (CompletableFuture<User> future : saved) {
+            assertNotNull(future.get());
+        }
+        assertEquals(100, backend.count());
+        assertThrows(IllegalStateException.class,
+                () -> UserWriteQueue.await(writes.submit(repository -> repository.save(user("late@example.com")))));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static User user(String email) {
+        return new User(email, "First", "Last", LocalDate.of(1990, 1, 1), null, null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.clear.solutions.cs.service;
+
+import com.cs.config.UserProperties;
+import com.cs.dto.UserRepository;
+import com.cs.dto.UserRepositoryImpl;
+import com.cs.entity.User;
+import com.cs.exception.user.UserAlreadyExistsException;
+import com.cs.exception.user.UserNotFoundException;
+import com.cs.offheap.OffHeapUserRepository;
+import com.cs.patcher.UserPatcher;
+import com.cs.persistence.DurableUserRepository;
+import com.cs.validation.UserValidationPolicy;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs contended repository traffic on virtual threads and fails on any
+ * {@code jdk.VirtualThreadPinned} event, i.e. a virtual thread blocking while it holds a
+ * monitor. Only compiled by the {@code java21} profile.
+ */
+public class VirtualThreadPinningTest {
+
+    private static final int TASKS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Heap Store Never Pins a Carrier Thread")
+    void heapStore() throws Exception {
+        assertNoPinning(new UserRepositoryImpl(validationPolicy(), new UserPatcher()));
+    }
+
+    @Test
+    @DisplayName("Durable Store Never Pins a Carrier Thread")
+    void durableStore() throws Exception {
+        try (DurableUserRepository repository = new DurableUserRepository(validationPolicy(), new UserPatcher(),
+                directory, true, Duration.ofHours(1))) {
+            assertNoPinning(repository);
+        }
+    }
+
+    @Test
+    @DisplayName("Off-Heap Store Never Pins a Carrier Thread")
+    void offHeapStore() throws Exception {
+        assertNoPinning(new OffHeapUserRepository(validationPolicy(), new UserPatcher()));
+    }
+
+    private static void assertNoPinning(UserRepository repository) throws Exception {
+        List<String> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream events = new RecordingStream()) {
+            events.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            events.onEvent("jdk.VirtualThreadPinned", event -> pinned.add(String.valueOf(event.getStackTrace())));
+            events.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < TASKS; i++) {
+                    int id = i % 64;
+                    executor.submit(() -> {
+                        try {
+                            switch (id % 4) {
+                                case 0 -> repository.save(user(id));
+                                case 1 -> repository.update(email(id - 1), user(id - 1));
+                                case 2 -> repository.findByEmail(email(id - 2));
+                                default -> repository.deleteByEmail(email(id - 3));
+                            }
+                        } catch (UserNotFoundException | UserAlreadyExistsException expected) {
+                            // the mix races on purpose
+                        }
+                    });
+                }
+            }
+            events.stop();
+        }
+
+        assertEquals(List.of(), pinned);
+    }
+
+    private static UserValidationPolicy validationPolicy() {
+        return new UserValidationPolicy(new UserProperties(), new MockEnvironment());
+    }
+
+    private static String email(int id) {
+        return "user" + id + "@example.com";
+    }
+
+    private static User user(int id) {
+        return new User(email(id), "User" + id, "Test", LocalDate.of(1990, 1, 1), null, null);
+    }
+}